@@ -1,200 +1,283 @@
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
  * The algorithm used for bot movement
  */
-public class AStarAlgorithm
+public class AStarAlgorithm extends Pathfinder
 {
 	// The map used for the algorithm(currently it is only the bot map since only
 	// bot uses A*)
-	private char[][] map;
+	private Grid map;
 
-	// a priority queue of all the points that are "visited" during the algorithm
-	private PriorityQueue<Point> visitedPoints = new PriorityQueue<>();
+	// the difference between the index of a point and the one below it - every
+	// point is stored under its index in the grid
+	private int stride;
 
-	// a collection of all the points on the map
-	private Point[][] points;
+	// the distance from the beginning to each point
+	private int[] distance;
 
-	// an array that holds the coordinates of the route
-	private int[][] finalRoute;
+	// the index of the point each point has been reached from(the route is built by
+	// walking these back from the end point)
+	private int[] parent;
 
-	/**
-	 * Class to represent a point on the map
+	/*
+	 * the search each point has last been "visited" in - a point counts as visited
+	 * only if its stamp equals the current search, so nothing has to be reset
+	 * between searches
 	 */
-	private class Point implements Comparable<Point>
-	{
-		// x and y coordinate of the point
-		int x;
-		int y;
-		// the points will be compared by their priority in the priority queue
-		int priority;
-		// the distance from the beginning(to this point)
-		int distance;
-		/*
-		 * string containing the route so far its structure is like this x1-y1 x2-y2...
-		 * where x1,y1,x2,y2,.. are the coordinates of the corresponding point
-		 */
-		String route;
-		// bool to indicate whether the point has already been "visited"
-		boolean visited;
-
-		/**
-		 * Default constructor
-		 */
-		private Point()
-		{
-			route = "";
-			priority = 0;
-			distance = 0;
-			visited = false;
-		}
+	private int[] visited;
+	private int currentSearch;
 
-		/**
-		 * Determines the heuristic between the current and another point
-		 * 
-		 * @param end : the end point
-		 * @return the distance between current and end point
-		 */
-		private int heuristic(Point end)
-		{
-			return Math.abs(x - end.x) + Math.abs(y - end.y);
-		}
+	/*
+	 * binary heap of point indices ordered by their priority - it is the priority
+	 * queue of all the points that are "visited" during the algorithm
+	 */
+	private int[] visitedPoints;
+	private int visitedPointsSize;
 
-		/**
-		 * @return : all point coordinates that are 1 distance away from the
-		 *         current(neighbours)
-		 */
-		private int[][] getNeighbourPoints()
-		{
-			return new int[][]
-			{
-					{ x + 1, y },
-					{ x, y + 1 },
-					{ x - 1, y },
-					{ x, y - 1 } };
-		}
+	// the priority of each point(distance + heuristic)
+	private int[] priority;
 
-		/**
-		 * Compares 2 points by their priority(in the priority queue)
-		 */
-		@Override
-		public int compareTo(Point o)
-		{
-			return Integer.compare(this.priority, o.priority);
-		}
-	}
+	// the position of each point in the heap or -1 once it has been taken out of it
+	private int[] heapIndex;
+
+	// the number of points expanded by the last search
+	private int expandedPoints;
 
 	/**
 	 * Constructor for the class
-	 * 
+	 *
 	 * @param map : the map that the algorithm will use
 	 */
-	public AStarAlgorithm(char[][] map)
+	public AStarAlgorithm(Grid map)
 	{
 		this.map = map;
-		points = new Point[map.length][map[0].length];
-		for (int i = 0; i < map.length; i++)
-		{
-			for (int j = 0; j < map[0].length; j++)
-			{
-				points[i][j] = new Point();
-				points[i][j].x = i;
-				points[i][j].y = j;
-			}
-		}
+		stride = map.getStride();
+		int size = map.getSize();
+		distance = new int[size];
+		parent = new int[size];
+		visited = new int[size];
+		visitedPoints = new int[size];
+		priority = new int[size];
+		heapIndex = new int[size];
 	}
 
 	/**
 	 * Method with the logic behind the A* algorithm. Finds the shortest route from
 	 * a start to an end point and returns it.
-	 * 
+	 *
 	 * @param x1 : x coordinate of the start point
 	 * @param y1 : y coordinate of the start point
 	 * @param x2 : x coordinate of the end point
 	 * @param y2 : y coordinate of the end point
-	 * @return : a 2d array of the coordinates of the route
+	 * @return : a 2d array of the coordinates of the route(without the start point)
+	 *         or null if there is no route
 	 */
+	@Override
 	protected int[][] pathfind(int x1, int y1, int x2, int y2)
 	{
+		int start = map.index(x1, y1);
+		int end = map.index(x2, y2);
+		// start a new search which makes every point unvisited
+		startNewSearch();
+
 		// handle the attributes of the first point
-		points[x1][y1].distance = 0;
-		points[x1][y1].visited = true;
-		points[x1][y1].route = "";
-		visitedPoints.add(points[x1][y1]);
-		try
+		distance[start] = 0;
+		parent[start] = -1;
+		visited[start] = currentSearch;
+		priority[start] = heuristic(start, end);
+		siftUp(start, visitedPointsSize++);
+
+		while (visitedPointsSize > 0)
 		{
-			while (true)
+			// go through every point in the priority queue until we reach the end point
+			int curPoint = poll();
+			expandedPoints++;
+			// check if the end point has been reached
+			if (curPoint == end)
 			{
-				// go through every point in the priority queue until we reach the end point
-				Point curPoint = visitedPoints.poll();
-				// check if the end point has been reached
-				if (curPoint.x == x2 && curPoint.y == y2)
-				{
-					// split the route into pieces
-					String[] coordinates = curPoint.route.split(" ");
-					finalRoute = new int[coordinates.length][2];
-					for (int i = 0; i < coordinates.length; i++)
-					{
-						String[] point = coordinates[i].split("-");
-						// store each coordinate in final route
-						finalRoute[i][0] = Integer.parseInt(point[0]);
-						finalRoute[i][1] = Integer.parseInt(point[1]);
-					}
-					// reset values for future use
-					visitedPoints.clear();
-					resetVisitedValue();
-
-					return finalRoute;
-				}
-				// if the point hasn't been reached yet keep looking
-
-				// go through each of the neighbours of the current point
-				for (int[] coordinate : curPoint.getNeighbourPoints())
-				{
-					Point neighbour = points[coordinate[0]][coordinate[1]];
-
-					// if the neighbour hasn't been "visited" yet and it isn't a wall
-					if (!(neighbour.visited || map[coordinate[0]][coordinate[1]] == '#'))
-					{
-						// handle the attributes of the neighbour and add it to the priority queue
-						neighbour.distance = curPoint.distance + 1;
-						neighbour.visited = true;
-						neighbour.route = curPoint.route + coordinate[0] + "-" + coordinate[1] + " ";
-						neighbour.priority = neighbour.distance + neighbour.heuristic(points[x2][y2]);
-						visitedPoints.add(neighbour);
-					}
-				}
+				return buildRoute(end);
 			}
-		} catch (NullPointerException e)
-		{
-			return null;
+			// if the point hasn't been reached yet keep looking - the border around the map
+			// is wall so every neighbour is in the grid
+			visitNeighbour(curPoint, curPoint + stride, end);
+			visitNeighbour(curPoint, curPoint + 1, end);
+			visitNeighbour(curPoint, curPoint - stride, end);
+			visitNeighbour(curPoint, curPoint - 1, end);
 		}
 
+		// every reachable point has been visited without reaching the end point
+		return null;
 	}
 
 	/**
-	 * 
+	 *
 	 * @param positionX : x coordinate of the point in the map
 	 * @param positionY : y coordinate of the point in the map
 	 * @param c         : the new char representation of that point
 	 */
+	@Override
 	protected void setMapPoint(int positionX, int positionY, char c)
 	{
-		map[positionX][positionY] = c;
+		map.set(positionX, positionY, c);
+	}
+
+	/**
+	 * @return : the number of points expanded by the last search
+	 */
+	@Override
+	protected int getExpandedPoints()
+	{
+		return expandedPoints;
+	}
+
+	/**
+	 * Adds a neighbour of the current point to the priority queue if it hasn't
+	 * been "visited" yet and it isn't a wall
+	 *
+	 * @param curPoint  : index of the current point
+	 * @param neighbour : index of the neighbour
+	 * @param end       : index of the end point
+	 */
+	private void visitNeighbour(int curPoint, int neighbour, int end)
+	{
+		if (map.isWallAt(neighbour))
+		{
+			return;
+		}
+		if (visited[neighbour] != currentSearch)
+		{
+			// handle the attributes of the neighbour and add it to the priority queue
+			distance[neighbour] = distance[curPoint] + 1;
+			parent[neighbour] = curPoint;
+			visited[neighbour] = currentSearch;
+			priority[neighbour] = distance[neighbour] + heuristic(neighbour, end);
+			siftUp(neighbour, visitedPointsSize++);
+		}
+		else if (heapIndex[neighbour] >= 0 && distance[curPoint] + 1 < distance[neighbour])
+		{
+			// a shorter way to a point that is still in the priority queue has been found
+			priority[neighbour] -= distance[neighbour] - distance[curPoint] - 1;
+			distance[neighbour] = distance[curPoint] + 1;
+			parent[neighbour] = curPoint;
+			siftUp(neighbour, heapIndex[neighbour]);
+		}
+	}
+
+	/**
+	 * Walks the parents back from the end point and stores the coordinates of each
+	 * point on the way
+	 *
+	 * @param end : index of the end point
+	 * @return : a 2d array of the coordinates of the route
+	 */
+	private int[][] buildRoute(int end)
+	{
+		int[][] finalRoute = new int[distance[end]][];
+		for (int point = end, i = finalRoute.length - 1; i >= 0; point = parent[point], i--)
+		{
+			finalRoute[i] = new int[]
+			{ map.getX(point), map.getY(point) };
+		}
+		return finalRoute;
+	}
+
+	/**
+	 * Determines the heuristic between two points
+	 *
+	 * @return the distance between the two points
+	 */
+	private int heuristic(int a, int b)
+	{
+		return Math.abs(a / stride - b / stride) + Math.abs(a % stride - b % stride);
+	}
+
+	/**
+	 * Compares 2 points by their priority(in the priority queue). On equal priority
+	 * the point further from the beginning goes first as it is closer to the end.
+	 *
+	 * @return : true if point a goes before point b
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		return priority[a] < priority[b] || (priority[a] == priority[b] && distance[a] > distance[b]);
 	}
 
 	/**
-	 * Reset the visited value of every point so that they can be used again in the
-	 * future
+	 * Moves a point up the heap until its parent goes before it
+	 *
+	 * @param point : index of the point
+	 * @param i     : the position in the heap the point starts from
 	 */
-	private void resetVisitedValue()
+	private void siftUp(int point, int i)
 	{
-		for (int i = 0; i < points.length; i++)
+		while (i > 0)
 		{
-			for (int j = 0; j < points[0].length; j++)
+			int up = (i - 1) >>> 1;
+			if (!isBefore(point, visitedPoints[up]))
 			{
-				points[i][j].visited = false;
+				break;
 			}
+			visitedPoints[i] = visitedPoints[up];
+			heapIndex[visitedPoints[i]] = i;
+			i = up;
+		}
+		visitedPoints[i] = point;
+		heapIndex[point] = i;
+	}
+
+	/**
+	 * Removes the point with the lowest priority from the priority queue
+	 *
+	 * @return : index of the point
+	 */
+	private int poll()
+	{
+		int first = visitedPoints[0];
+		int last = visitedPoints[--visitedPointsSize];
+		int i = 0;
+		// move the last point down the heap until both its children go after it
+		while (true)
+		{
+			int down = 2 * i + 1;
+			if (down >= visitedPointsSize)
+			{
+				break;
+			}
+			if (down + 1 < visitedPointsSize && isBefore(visitedPoints[down + 1], visitedPoints[down]))
+			{
+				down++;
+			}
+			if (!isBefore(visitedPoints[down], last))
+			{
+				break;
+			}
+			visitedPoints[i] = visitedPoints[down];
+			heapIndex[visitedPoints[i]] = i;
+			i = down;
+		}
+		if (visitedPointsSize > 0)
+		{
+			visitedPoints[i] = last;
+			heapIndex[last] = i;
+		}
+		heapIndex[first] = -1;
+		return first;
+	}
+
+	/**
+	 * Empties the priority queue and moves on to the next search stamp. The
+	 * visited values only have to be reset when the stamp runs out of values.
+	 */
+	private void startNewSearch()
+	{
+		visitedPointsSize = 0;
+		expandedPoints = 0;
+		currentSearch++;
+		if (currentSearch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(visited, 0);
+			currentSearch = 1;
 		}
 	}
 }
@@ -0,0 +1,13 @@
+/**
+ * Plays the human player of a game without a console - it is asked for the
+ * command of every turn(see Simulator).
+ */
+public interface Agent
+{
+	/**
+	 * @param game : the game being played
+	 * @return : the command of the human player for this turn(its number, e.g.
+	 *         GameLogic.MOVE_NORTH)
+	 */
+	int nextCommand(GameLogic game);
+}
@@ -0,0 +1,834 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+import java.util.function.IntConsumer;
+
+/**
+ * Benchmark harness for pathfinding, map loading and turn processing. Each
+ * benchmark is warmed up and then measured for a few iterations, reporting
+ * throughput, latency percentiles and the allocation rate of the benchmark
+ * thread so that every change can be compared against a baseline.
+ * <p>
+ * Run it from the directory with the map files: java -Xmx4g Benchmark [filter]
+ * where the optional filter only runs benchmarks whose name contains it. The
+ * same operations are measured by JMH in forked JVMs(see
+ * benchmarks/GameBenchmarks.java): mvn package, then java -jar
+ * target/benchmarks.jar.
+ */
+public class Benchmark
+{
+	// the maps that come with the game
+	private static final String[] MAP_NAMES =
+	{ "Bridges of Doom", "Christmas Cane", "Maze of Doom", "Merry Christmas", "Tiny Map", "Test Map" };
+	// the sizes of the generated square maps
+	private static final int[] PATHFIND_SIZES =
+	{ 256, 1024, 4096 };
+	private static final int[] PARSE_SIZES =
+	{ 256, 1024, 4096 };
+	// how much of a generated map is wall(in a dungeon and in an open arena)
+	private static final double WALL_DENSITY = 0.2;
+	private static final double OPEN_WALL_DENSITY = 0.0;
+	// how many start/end pairs are prepared for each pathfinding benchmark
+	private static final int QUERIES = 256;
+
+	// how many bots chase the same target in the swarm benchmarks
+	private static final int SWARM_SIZE = 128;
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final long ITERATION_NANOS = 200_000_000L;
+
+	// results of the benchmarked code are added here so it can't be optimised away
+	private static long sink;
+
+	// the latency of each measured operation
+	private static long[] latencies = new long[1024];
+	private static int recorded;
+
+	// the filter of benchmark names(null runs everything)
+	private static String filter;
+
+	// the benchmark whose operation is wanted instead of measured(null if they are
+	// all measured, see operation) and its operation once it is found
+	private static String capture;
+	private static IntConsumer captured;
+
+	/**
+	 * Runs all the benchmarks
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		filter = args.length > 0 ? args[0] : null;
+		System.out.printf("%-36s %12s %10s %10s %10s %12s %10s%n", "Benchmark", "ops/s", "mean us", "p50 us",
+				"p99 us", "alloc B/op", "alloc MB/s");
+		benchmarkAll();
+		// print the sink so that nothing is considered unused
+		System.out.println("(" + sink + ")");
+	}
+
+	/**
+	 * Prepares a benchmark without measuring it, so something else(e.g. JMH) can
+	 *
+	 * @param name : the name of the benchmark(as printed by main)
+	 * @return : its operation, which is given the operation number
+	 * @throws IOException              if a map file can't be read or written
+	 * @throws IllegalArgumentException if there is no benchmark with that name
+	 */
+	protected static IntConsumer operation(String name) throws IOException
+	{
+		capture = name;
+		captured = null;
+		try
+		{
+			benchmarkAll();
+		} finally
+		{
+			capture = null;
+		}
+		if (captured == null)
+		{
+			throw new IllegalArgumentException("There is no benchmark " + name);
+		}
+		return captured;
+	}
+
+	/**
+	 * Runs the benchmarks that are selected
+	 *
+	 * @throws IOException if a map file can't be read or written
+	 */
+	private static void benchmarkAll() throws IOException
+	{
+		for (String name : MAP_NAMES)
+		{
+			if (isSelected("pathfind " + name))
+			{
+				char[][] map = new Map(name).getGrid().toCharArray();
+				benchmarkPathfind("pathfind " + name, map, new AStarAlgorithm(new Grid(map)));
+			}
+		}
+		for (int size : PATHFIND_SIZES)
+		{
+			for (String type : new String[]
+			{ "generated", "open" })
+			{
+				char[][] map = generateMap(size, size, type.equals("open") ? OPEN_WALL_DENSITY : WALL_DENSITY, 1);
+				if (isSelected("pathfind A* " + type + " " + size))
+				{
+					benchmarkPathfind("pathfind A* " + type + " " + size, map, new AStarAlgorithm(new Grid(map)));
+				}
+				if (isSelected("pathfind JPS " + type + " " + size))
+				{
+					benchmarkPathfind("pathfind JPS " + type + " " + size, map, new JumpPointSearch(new Grid(map)));
+				}
+				// only the first leg of the route is found by the hierarchical pathfinder
+				if (isSelected("pathfind HPA* " + type + " " + size))
+				{
+					benchmarkPathfind("pathfind HPA* " + type + " " + size, map, new HierarchicalPathfinder(new Grid(map)));
+				}
+			}
+		}
+
+		for (int size : PATHFIND_SIZES)
+		{
+			char[][] map = generateMap(size, size, WALL_DENSITY, 1);
+			if (isSelected("chase A* " + size))
+			{
+				benchmarkChase("chase A* " + size, map, new AStarAlgorithm(new Grid(map)));
+			}
+			if (isSelected("chase incremental " + size))
+			{
+				benchmarkChase("chase incremental " + size, map, new IncrementalPathfinder(new Grid(map)));
+			}
+			if (isSelected("chase HPA* " + size))
+			{
+				benchmarkChase("chase HPA* " + size, map, new HierarchicalPathfinder(new Grid(map)));
+			}
+			if (isSelected("swarm A* " + size))
+			{
+				AStarAlgorithm pathfinder = new AStarAlgorithm(new Grid(map));
+				benchmarkSwarm("swarm A* " + size, map, (chaser, target) ->
+				{
+					int[][] route = pathfinder.pathfind(chaser[0], chaser[1], target[0], target[1]);
+					return route == null || route.length == 0 ? null : route[0];
+				});
+			}
+			if (isSelected("swarm flow field " + size))
+			{
+				FlowField flowField = new FlowField(new Grid(map));
+				benchmarkSwarm("swarm flow field " + size, map, (chaser, target) ->
+				{
+					flowField.setGoal(target[0], target[1]);
+					return flowField.getNextStep(chaser[0], chaser[1]);
+				});
+			}
+			if (isSelected("build HPA* " + size))
+			{
+				run("build HPA* " + size, i -> sink += new HierarchicalPathfinder(new Grid(map)).getExpandedPoints());
+			}
+			if (isSelected("wall change HPA* " + size))
+			{
+				benchmarkWallChange("wall change HPA* " + size, map, new HierarchicalPathfinder(new Grid(map)));
+			}
+		}
+
+		for (String name : MAP_NAMES)
+		{
+			if (isSelected("readMap " + name))
+			{
+				run("readMap " + name, i -> sink += readMap(name).getGoldRequired());
+			}
+		}
+		for (int size : PARSE_SIZES)
+		{
+			if (isSelected("readMap generated " + size))
+			{
+				String fileName = writeMapFile(generateMap(size, size, WALL_DENSITY, 2));
+				run("readMap generated " + size, i -> sink += readMap(fileName).getGoldRequired());
+			}
+			if (isSelected("readMap binary " + size))
+			{
+				String fileName = writeMapFile(generateMap(size, size, WALL_DENSITY, 2));
+				readMap(fileName).writeBinaryMap(fileName);
+				Path binaryFile = Paths.get(System.getProperty("user.dir"), fileName + Map.BINARY_EXTENSION);
+				binaryFile.toFile().deleteOnExit();
+				run("readMap binary " + size, i -> sink += readMap(fileName).getGoldRequired());
+			}
+			// a game on a map the repository already keeps only copies the pages it changes
+			if (isSelected("new game repository " + size))
+			{
+				String fileName = writeMapFile(generateMap(size, size, WALL_DENSITY, 2));
+				MapRepository repository = new MapRepository();
+				run("new game repository " + size, i ->
+				{
+					Map game = newGame(repository, fileName);
+					game.setMapPoint(size / 2, size / 2, 'P');
+					sink += game.getGrid().getOwnedBytes();
+				});
+			}
+		}
+
+		String[] difficulties =
+		{ "EASY", "NORMAL", "HARD" };
+		for (int difficulty = 1; difficulty <= difficulties.length; difficulty++)
+		{
+			if (isSelected("turn " + difficulties[difficulty - 1]))
+			{
+				benchmarkTurn("turn " + difficulties[difficulty - 1], difficulty, false);
+			}
+			if (isSelected("turn binary " + difficulties[difficulty - 1]))
+			{
+				benchmarkTurn("turn binary " + difficulties[difficulty - 1], difficulty, true);
+			}
+		}
+
+		for (int size : new int[]
+		{ 64, 256 })
+		{
+			if (isSelected("snapshot " + size) || isSelected("restore " + size))
+			{
+				benchmarkSnapshot(size);
+			}
+		}
+
+		for (int radius : new int[]
+		{ 5, 20 })
+		{
+			char[][] map = generateMap(1024, 1024, WALL_DENSITY / 4, 6);
+			if (isSelected("field of view " + radius))
+			{
+				benchmarkFieldOfView("field of view " + radius, map, radius);
+			}
+		}
+
+		for (int size : PATHFIND_SIZES)
+		{
+			if (isSelected("nearest gold " + size))
+			{
+				benchmarkNearestGold("nearest gold " + size, size);
+			}
+		}
+
+		for (int size : new int[]
+		{ 64, 256 })
+		{
+			char[][] map = generateMap(size, size, WALL_DENSITY, 4);
+			if (isSelected("render map " + size))
+			{
+				benchmarkRender("render map " + size, map, false);
+			}
+			if (isSelected("render map ANSI " + size))
+			{
+				benchmarkRender("render map ANSI " + size, map, true);
+			}
+			if (isSelected("render map journal " + size))
+			{
+				benchmarkRenderJournal("render map journal " + size, map);
+			}
+		}
+	}
+
+	/**
+	 * Benchmarks working out what can be seen from random points of a map and
+	 * getting it from the cache(the points are fewer than the cache keeps)
+	 *
+	 * @param name   : the name of the benchmark
+	 * @param map    : the map
+	 * @param radius : how far can be seen
+	 */
+	private static void benchmarkFieldOfView(String name, char[][] map, int radius)
+	{
+		FieldOfView fieldOfView = new FieldOfView(new Grid(map));
+		int[][] points = new int[QUERIES][];
+		Random random = new Random(radius);
+		for (int i = 0; i < QUERIES; i++)
+		{
+			points[i] = randomFloor(map, random);
+		}
+		run(name + " compute", i -> sink += fieldOfView.compute(points[i % QUERIES][0], points[i % QUERIES][1],
+				radius).length);
+		run(name + " cached", i -> sink += fieldOfView.getVisible(points[i % QUERIES][0], points[i % QUERIES][1],
+				radius).length);
+	}
+
+	/**
+	 * Benchmarks drawing only the tiles the map journal says changed after a turn
+	 * in which a player moved
+	 *
+	 * @param name : the name of the benchmark
+	 * @param map  : the map
+	 */
+	private static void benchmarkRenderJournal(String name, char[][] map)
+	{
+		Map gameMap = new Map("Generated", 1, map);
+		int[] tile = randomFloor(map, new Random(map.length));
+		FrameRenderer renderer = new FrameRenderer(OutputStream.nullOutputStream(), true);
+		run(name, i ->
+		{
+			gameMap.setMapPoint(tile[0], tile[1], i % 2 == 0 ? 'P' : '.');
+			try
+			{
+				renderer.renderMap(gameMap);
+			} catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Benchmarks finding the 4 nearest gold to random points of a map with a gold
+	 * for every 1000 tiles by route length
+	 *
+	 * @param name : the name of the benchmark
+	 * @param size : the size of the square map
+	 */
+	private static void benchmarkNearestGold(String name, int size)
+	{
+		char[][] map = generateMap(size, size, WALL_DENSITY, 5);
+		Random random = new Random(size);
+		for (int i = 0; i < size * size / 1000; i++)
+		{
+			int[] tile = randomFloor(map, random);
+			map[tile[0]][tile[1]] = 'G';
+		}
+		Map gameMap = new Map("Generated", 1, map);
+		PointIndex gold = gameMap.getGoldIndex();
+		int[][] queries = new int[QUERIES][];
+		for (int i = 0; i < QUERIES; i++)
+		{
+			queries[i] = randomFloor(map, random);
+		}
+		run(name + " path", i ->
+		{
+			int[] nearest = gold.nearestByPath(gameMap.getGrid(), queries[i % QUERIES][0], queries[i % QUERIES][1], 4,
+					'#');
+			sink += nearest.length;
+		});
+	}
+
+	/**
+	 * Benchmarks drawing a map after a turn in which a player moved
+	 *
+	 * @param name : the name of the benchmark
+	 * @param map  : the map
+	 * @param ansi : whether only the changed tiles are drawn
+	 */
+	private static void benchmarkRender(String name, char[][] map, boolean ansi)
+	{
+		Grid grid = new Grid(map);
+		int[] tile = randomFloor(map, new Random(map.length));
+		// count what would be written to the terminal
+		long[] written = new long[1];
+		FrameRenderer renderer = new FrameRenderer(new OutputStream()
+		{
+			@Override
+			public void write(int b)
+			{
+				written[0]++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len)
+			{
+				written[0] += len;
+			}
+		}, ansi);
+		run(name, i ->
+		{
+			grid.set(tile[0], tile[1], i % 2 == 0 ? 'P' : '.');
+			try
+			{
+				renderer.renderMap(grid);
+			} catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+		sink += written[0];
+	}
+
+	/**
+	 * Benchmarks a pathfinding algorithm on random pairs of floor tiles of its map
+	 *
+	 * @param name       : the name of the benchmark
+	 * @param map        : the map the algorithm uses
+	 * @param pathfinder : the algorithm that finds the routes
+	 */
+	private static void benchmarkPathfind(String name, char[][] map, Pathfinder pathfinder)
+	{
+		int[][] queries = new int[QUERIES][];
+		Random random = new Random(QUERIES);
+		for (int i = 0; i < QUERIES; i++)
+		{
+			int[] start = randomFloor(map, random);
+			int[] end = randomFloor(map, random);
+			queries[i] = new int[]
+			{ start[0], start[1], end[0], end[1] };
+		}
+		long[] expanded = new long[2];
+		run(name, i ->
+		{
+			int[] query = queries[i % QUERIES];
+			int[][] route = pathfinder.pathfind(query[0], query[1], query[2], query[3]);
+			sink += route == null ? -1 : route.length;
+			expanded[0] += pathfinder.getExpandedPoints();
+			expanded[1]++;
+		});
+		if (capture == null)
+		{
+			System.out.printf("%-36s %12.1f expanded points per search%n", "", (double) expanded[0] / expanded[1]);
+		}
+	}
+
+	/**
+	 * Benchmarks replanning while chasing: every operation the chaser takes one
+	 * step along its route, the target takes a random step and the route is found
+	 * again.
+	 *
+	 * @param name       : the name of the benchmark
+	 * @param map        : the map to chase on
+	 * @param pathfinder : the algorithm that finds the routes
+	 */
+	private static void benchmarkChase(String name, char[][] map, Pathfinder pathfinder)
+	{
+		Random random = new Random(map.length);
+		int[] chaser = randomFloor(map, random);
+		int[] target = randomFloor(map, random);
+		int[][] directions =
+		{
+				{ 1, 0 },
+				{ 0, 1 },
+				{ -1, 0 },
+				{ 0, -1 } };
+		run(name, i ->
+		{
+			int[] direction = directions[random.nextInt(4)];
+			if (map[target[0] + direction[0]][target[1] + direction[1]] != '#')
+			{
+				target[0] += direction[0];
+				target[1] += direction[1];
+			}
+			int[][] route = pathfinder.pathfind(chaser[0], chaser[1], target[0], target[1]);
+			if (route == null || route.length < 2)
+			{
+				// caught the target(or it can't be reached) - start somewhere else
+				int[] tile = randomFloor(map, random);
+				chaser[0] = tile[0];
+				chaser[1] = tile[1];
+			}
+			else
+			{
+				chaser[0] = route[0][0];
+				chaser[1] = route[0][1];
+				sink += route.length;
+			}
+		});
+	}
+
+	/**
+	 * Benchmarks many bots chasing one target: every operation is a turn where the
+	 * target takes a random step and then every chaser takes one step towards it
+	 *
+	 * @param name     : the name of the benchmark
+	 * @param map      : the map to chase on
+	 * @param nextStep : finds the next step of a chaser(first argument) towards the
+	 *                 target(second argument)
+	 */
+	private static void benchmarkSwarm(String name, char[][] map, BinaryOperator<int[]> nextStep)
+	{
+		Random random = new Random(map.length);
+		int[][] chasers = new int[SWARM_SIZE][];
+		for (int i = 0; i < SWARM_SIZE; i++)
+		{
+			chasers[i] = randomFloor(map, random);
+		}
+		int[] target = randomFloor(map, random);
+		int[][] directions =
+		{
+				{ 1, 0 },
+				{ 0, 1 },
+				{ -1, 0 },
+				{ 0, -1 } };
+		run(name, i ->
+		{
+			int[] direction = directions[random.nextInt(4)];
+			if (map[target[0] + direction[0]][target[1] + direction[1]] != '#')
+			{
+				target[0] += direction[0];
+				target[1] += direction[1];
+			}
+			for (int j = 0; j < SWARM_SIZE; j++)
+			{
+				int[] step = nextStep.apply(chasers[j], target);
+				if (step == null || (step[0] == target[0] && step[1] == target[1]))
+				{
+					// caught the target(or it can't be reached) - start somewhere else
+					chasers[j] = randomFloor(map, random);
+				}
+				else
+				{
+					chasers[j] = step;
+				}
+			}
+			sink += chasers[0][0];
+		});
+	}
+
+	/**
+	 * Benchmarks repairing the clusters after a wall change: every operation a
+	 * random floor tile turns into a wall and back and a route is found across the
+	 * map
+	 *
+	 * @param name       : the name of the benchmark
+	 * @param map        : the map the algorithm was built from
+	 * @param pathfinder : the algorithm that finds the routes
+	 */
+	private static void benchmarkWallChange(String name, char[][] map, Pathfinder pathfinder)
+	{
+		Random random = new Random(map.length);
+		int[] start = randomFloor(map, random);
+		int[] end = randomFloor(map, random);
+		run(name, i ->
+		{
+			int[] tile = randomFloor(map, random);
+			if ((tile[0] != start[0] || tile[1] != start[1]) && (tile[0] != end[0] || tile[1] != end[1]))
+			{
+				pathfinder.setMapPoint(tile[0], tile[1], '#');
+				int[][] route = pathfinder.pathfind(start[0], start[1], end[0], end[1]);
+				sink += route == null ? -1 : route.length;
+				pathfinder.setMapPoint(tile[0], tile[1], '.');
+			}
+		});
+	}
+
+	/**
+	 * Benchmarks whole turns(human command followed by the bot turn). The human
+	 * player is walled in so the game never ends while the bot explores the map.
+	 *
+	 * @param name       : the name of the benchmark
+	 * @param difficulty : the difficulty of the bot
+	 * @param binary     : whether the turns are played with the binary protocol
+	 */
+	private static void benchmarkTurn(String name, int difficulty, boolean binary)
+	{
+		char[][] map = generateMap(64, 64, WALL_DENSITY, 3);
+		// wall in a 3x3 room in the middle of the map for the human player
+		for (int i = 30; i <= 34; i++)
+		{
+			for (int j = 30; j <= 34; j++)
+			{
+				map[i][j] = i == 30 || i == 34 || j == 30 || j == 34 ? '#' : '.';
+			}
+		}
+		GameLogic logic = new GameLogic(new Map("Generated", 1, map));
+		logic.spawnHumanPlayer(32, 32);
+		int[] botTile = randomFloor(map, new Random(difficulty));
+		logic.spawnBot(difficulty, botTile[0], botTile[1]);
+
+		String[] commands =
+		{ "LOOK", "MOVE N", "MOVE S", "MOVE E", "MOVE W", "HELLO", "GOLD", "PICKUP" };
+		if (binary)
+		{
+			ByteBuffer reply = ByteBuffer.allocate(BinaryProtocol.MAX_REPLY_SIZE);
+			int[] opcodes = new int[commands.length];
+			for (int i = 0; i < commands.length; i++)
+			{
+				opcodes[i] = GameLogic.parseCommand(commands[i]);
+			}
+			run(name, i ->
+			{
+				reply.clear();
+				BinaryProtocol.playTurn(logic, opcodes[i % opcodes.length], reply);
+				sink += reply.position();
+			});
+			return;
+		}
+		run(name, i -> sink += logic.playTurn(commands[i % commands.length]).length());
+	}
+
+	/**
+	 * Benchmarks saving a game in the middle into a snapshot and restoring it
+	 *
+	 * @param size : the size of the generated map
+	 */
+	private static void benchmarkSnapshot(int size)
+	{
+		char[][] map = generateMap(size, size, WALL_DENSITY, 7);
+		GameLogic logic = new GameLogic(new Map("Generated", 1, map), 7);
+		logic.spawnHumanPlayer();
+		logic.spawnBots(3, 4);
+		String[] commands =
+		{ "LOOK", "MOVE N", "MOVE E", "MOVE S", "MOVE W" };
+		for (int i = 0; i < 100 && !logic.isGameOver(); i++)
+		{
+			logic.playTurn(commands[i % commands.length]);
+		}
+		byte[] snapshot = logic.snapshot();
+		if (isSelected("snapshot " + size))
+		{
+			run("snapshot " + size + " (" + snapshot.length + " B)", i -> sink += logic.snapshot().length);
+		}
+		if (isSelected("restore " + size))
+		{
+			run("restore " + size, i -> sink += GameLogic.restore(snapshot).getBots().size());
+		}
+	}
+
+	/**
+	 * Loads a map file
+	 *
+	 * @param fileName : the name of the map file
+	 * @return : the loaded map
+	 */
+	private static Map readMap(String fileName)
+	{
+		try
+		{
+			return new Map(fileName);
+		} catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Makes a map for a new game from a repository
+	 *
+	 * @param repository : the repository that keeps the map
+	 * @param fileName   : the name of the map file
+	 * @return : the map of the game
+	 */
+	private static Map newGame(MapRepository repository, String fileName)
+	{
+		try
+		{
+			return repository.newGame(fileName);
+		} catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Runs a benchmark and prints its results
+	 *
+	 * @param name      : the name of the benchmark
+	 * @param operation : the benchmarked operation, it is given the operation number
+	 */
+	private static void run(String name, IntConsumer operation)
+	{
+		if (capture != null)
+		{
+			// the first operation of the wanted benchmark is kept(names like
+			// "snapshot 64 (24586 B)" end with what only the setup knows)
+			if (captured == null && name.startsWith(capture))
+			{
+				captured = operation;
+			}
+			return;
+		}
+		int count = 0;
+		int previous = 0;
+		for (int i = 0; i < WARMUP_ITERATIONS; i++)
+		{
+			previous = count;
+			count = iteration(operation, count, false);
+		}
+
+		recorded = 0;
+		int operations = 0;
+		long time = 0;
+		long allocated = 0;
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++)
+		{
+			// make room for at least twice the operations of the previous iteration
+			if (latencies.length < recorded + 2 * (count - previous) + 1024)
+			{
+				latencies = Arrays.copyOf(latencies, recorded + 2 * (count - previous) + 1024);
+			}
+			previous = count;
+			long allocatedBefore = allocatedBytes();
+			long begin = System.nanoTime();
+			count = iteration(operation, count, true);
+			time += System.nanoTime() - begin;
+			allocated += allocatedBytes() - allocatedBefore;
+			operations += count - previous;
+		}
+
+		if (allocatedBytes() < 0)
+		{
+			allocated = -1;
+		}
+		Arrays.sort(latencies, 0, recorded);
+		System.out.printf("%-36s %12.1f %10.2f %10.2f %10.2f %12s %10s%n", name, operations * 1e9 / time,
+				time / 1e3 / operations, latencies[recorded / 2] / 1e3, latencies[recorded * 99 / 100] / 1e3,
+				allocated < 0 ? "n/a" : String.valueOf(allocated / operations),
+				allocated < 0 ? "n/a" : String.format("%.1f", allocated * 1e9 / time / (1 << 20)));
+	}
+
+	/**
+	 * Runs the operation for one iteration
+	 *
+	 * @param operation : the benchmarked operation
+	 * @param count     : the number of the first operation
+	 * @param record    : whether the latency of each operation is stored
+	 * @return : the number of the next operation
+	 */
+	private static int iteration(IntConsumer operation, int count, boolean record)
+	{
+		long end = System.nanoTime() + ITERATION_NANOS;
+		long finish;
+		do
+		{
+			long begin = System.nanoTime();
+			operation.accept(count++);
+			finish = System.nanoTime();
+			// samples that don't fit are dropped rather than allocating while measuring
+			if (record && recorded < latencies.length)
+			{
+				latencies[recorded++] = finish - begin;
+			}
+		} while (finish < end);
+		return count;
+	}
+
+	/**
+	 * @return : the bytes allocated by the current thread so far or -1 if the JVM
+	 *         can't tell
+	 */
+	private static long allocatedBytes()
+	{
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Generates a map surrounded by walls with randomly placed walls inside
+	 *
+	 * @param rows        : the number of rows
+	 * @param columns     : the number of columns
+	 * @param wallDensity : how much of the map is wall
+	 * @param seed        : the seed for the random walls
+	 * @return : the generated map
+	 */
+	protected static char[][] generateMap(int rows, int columns, double wallDensity, long seed)
+	{
+		Random random = new Random(seed);
+		char[][] map = new char[rows][columns];
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				boolean edge = i == 0 || j == 0 || i == rows - 1 || j == columns - 1;
+				map[i][j] = edge || random.nextDouble() < wallDensity ? '#' : '.';
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Writes a map into a temporary map file
+	 *
+	 * @param map : the map to write
+	 * @return : the file name that can be given to Map(String)
+	 */
+	private static String writeMapFile(char[][] map) throws IOException
+	{
+		Path file = Files.createTempFile("generated", ".txt");
+		file.toFile().deleteOnExit();
+		try (BufferedWriter writer = Files.newBufferedWriter(file))
+		{
+			writer.write("name Generated " + map.length + "x" + map[0].length + "\nwin 1\n");
+			for (char[] row : map)
+			{
+				writer.write(row);
+				writer.write('\n');
+			}
+		}
+		// Map(String) reads files relative to the current directory without the .txt
+		String relative = Paths.get(System.getProperty("user.dir")).relativize(file).toString();
+		return relative.substring(0, relative.length() - ".txt".length());
+	}
+
+	/**
+	 * @param map    : the map
+	 * @param random : the random numbers to use
+	 * @return : the coordinates of a random tile that isn't a wall
+	 */
+	private static int[] randomFloor(char[][] map, Random random)
+	{
+		while (true)
+		{
+			int x = random.nextInt(map.length);
+			int y = random.nextInt(map[0].length);
+			if (map[x][y] != '#')
+			{
+				return new int[]
+				{ x, y };
+			}
+		}
+	}
+
+	/**
+	 * @param name : the name of the benchmark
+	 * @return : whether the benchmark should run
+	 */
+	private static boolean isSelected(String name)
+	{
+		if (capture != null)
+		{
+			// the name of an operation starts with the name of the benchmark it is in
+			return capture.startsWith(name);
+		}
+		return filter == null || name.contains(filter);
+	}
+}
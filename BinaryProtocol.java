@@ -0,0 +1,72 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A binary version of the text protocol for clients that play many turns - a
+ * command is one byte(its opcode) and every reply has a fixed layout, so
+ * neither side parses or builds strings. The opcodes are the numbers of the
+ * commands in GameLogic(MOVE_NORTH = 1 to QUIT = 9) and the game plays them
+ * exactly like the text commands. A session of the text protocol switches to
+ * this one with the line "BINARY", which is answered with the same line.
+ * <p>
+ * Every reply is REPLY_SIZE bytes(all numbers big endian):
+ * 
+ * <pre>
+ * opcode status(SUCCESS, FAIL or INVALID) state(PLAYING, WON, LOST or CAUGHT) 0
+ * gold(int - the gold required for HELLO, the gold owned for the others)
+ * </pre>
+ * 
+ * and the reply to LOOK is followed by the LOOK_SIZE x LOOK_SIZE tiles around
+ * the player row by row(as ASCII, 0 outside the map or if the LOOK failed).
+ */
+public class BinaryProtocol
+{
+	// the line of the text protocol that switches a session to this one
+	protected static final String SWITCH_COMMAND = "BINARY";
+
+	// the size of the replies
+	protected static final int REPLY_SIZE = 8;
+	protected static final int LOOK_REPLY_SIZE = REPLY_SIZE + GameLogic.LOOK_SIZE * GameLogic.LOOK_SIZE;
+	protected static final int MAX_REPLY_SIZE = LOOK_REPLY_SIZE;
+
+	/**
+	 * @param opcode : the opcode of a command
+	 * @return : the size of the reply to it
+	 */
+	protected static int getReplySize(int opcode)
+	{
+		return opcode == GameLogic.LOOK ? LOOK_REPLY_SIZE : REPLY_SIZE;
+	}
+
+	/**
+	 * Plays a turn of a game and puts the reply
+	 *
+	 * @param game   : the game
+	 * @param opcode : the command of the human player(0 to 255 - anything that
+	 *               isn't a command is INVALID)
+	 * @param reply  : where the reply is put(it needs room for MAX_REPLY_SIZE
+	 *               bytes)
+	 */
+	protected static void playTurn(GameLogic game, int opcode, ByteBuffer reply)
+	{
+		int status = game.playTurn(opcode);
+		reply.put((byte) opcode);
+		reply.put((byte) status);
+		reply.put((byte) game.getState());
+		reply.put((byte) 0);
+		reply.putInt(opcode == GameLogic.HELLO ? game.getMap().getGoldRequired() : game.getHumanPlayer().getGold());
+		if (opcode == GameLogic.LOOK)
+		{
+			if (status == GameLogic.SUCCESS)
+			{
+				reply.put(game.getLookWindow());
+			}
+			else
+			{
+				for (int i = 0; i < GameLogic.LOOK_SIZE * GameLogic.LOOK_SIZE; i++)
+				{
+					reply.put((byte) 0);
+				}
+			}
+		}
+	}
+}
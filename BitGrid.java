@@ -0,0 +1,159 @@
+/**
+ * A bit for every point of a grid(including its border, see Grid.index),
+ * packed 64 to a long. It takes an eighth of the memory of a boolean array
+ * and the questions about many points at once(e.g. whether any bit is set, or
+ * which is the first clear one) are answered a word at a time.
+ */
+public class BitGrid
+{
+	// the bits, point i is bit i % 64 of words[i / 64]
+	private long[] words;
+
+	// the grid the points are indices of
+	private Grid grid;
+
+	/**
+	 * Constructor for a bit grid with every bit clear
+	 *
+	 * @param grid : the grid the points are indices of
+	 */
+	public BitGrid(Grid grid)
+	{
+		this.grid = grid;
+		words = new long[(grid.getSize() + 63) >>> 6];
+	}
+
+	/**
+	 * Constructor for a bit grid with the bits of another one(e.g. from a snapshot
+	 * of a game)
+	 *
+	 * @param grid  : the grid the points are indices of
+	 * @param words : the bits as given by getWords()
+	 * @throws IllegalArgumentException if they don't fit the grid
+	 */
+	public BitGrid(Grid grid, long[] words)
+	{
+		if (words.length != (grid.getSize() + 63) >>> 6)
+		{
+			throw new IllegalArgumentException("the bits don't match the size of the grid");
+		}
+		this.grid = grid;
+		this.words = words;
+	}
+
+	/**
+	 * @return : the bits, point i is bit i % 64 of word i / 64(the array can only
+	 *         be read)
+	 */
+	protected long[] getWords()
+	{
+		return words;
+	}
+
+	/**
+	 * @param index : the point(see Grid.index)
+	 * @return : whether its bit is set
+	 */
+	protected boolean get(int index)
+	{
+		return (words[index >>> 6] & 1L << index) != 0;
+	}
+
+	/**
+	 * @param x : x coordinate of the point
+	 * @param y : y coordinate of the point
+	 * @return : whether its bit is set
+	 */
+	protected boolean get(int x, int y)
+	{
+		return get(grid.index(x, y));
+	}
+
+	/**
+	 * @param index : the point(see Grid.index)
+	 */
+	protected void set(int index)
+	{
+		words[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * @param index : the point(see Grid.index)
+	 */
+	protected void clear(int index)
+	{
+		words[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Sets the bits of the points from one index to another
+	 *
+	 * @param from : the first point(see Grid.index)
+	 * @param to   : the point after the last one
+	 */
+	protected void set(int from, int to)
+	{
+		if (from >= to)
+		{
+			return;
+		}
+		int first = from >>> 6;
+		int last = (to - 1) >>> 6;
+		long firstMask = -1L << from;
+		long lastMask = -1L >>> -to;
+		if (first == last)
+		{
+			words[first] |= firstMask & lastMask;
+			return;
+		}
+		words[first] |= firstMask;
+		for (int i = first + 1; i < last; i++)
+		{
+			words[i] = -1L;
+		}
+		words[last] |= lastMask;
+	}
+
+	/**
+	 * @return : whether no bit is set
+	 */
+	protected boolean isEmpty()
+	{
+		for (long word : words)
+		{
+			if (word != 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the first clear bit between two points a word at a time
+	 *
+	 * @param from : the first point(see Grid.index)
+	 * @param to   : the point after the last one
+	 * @return : the first point whose bit is clear or -1 if every bit is set
+	 */
+	protected int nextClear(int from, int to)
+	{
+		if (from >= to)
+		{
+			return -1;
+		}
+		int word = from >>> 6;
+		// the bits before the first point count as set
+		long clear = ~words[word] & -1L << from;
+		while (clear == 0)
+		{
+			if (++word << 6 >= to)
+			{
+				return -1;
+			}
+			clear = ~words[word];
+		}
+		int index = (word << 6) + Long.numberOfTrailingZeros(clear);
+		return index < to ? index : -1;
+	}
+}
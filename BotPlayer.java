@@ -1,3 +1,4 @@
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -6,10 +7,28 @@ import java.util.Queue;
  */
 public class BotPlayer extends Player
 {
-	// the algorithm used for bot movement
-	private AStarAlgorithm aStar;
+	// the algorithms the bot can find its routes with
+	protected static final int INCREMENTAL_PATHFINDING = 0;
+	protected static final int A_STAR_PATHFINDING = 1;
+	protected static final int JUMP_POINT_PATHFINDING = 2;
+	protected static final int HIERARCHICAL_PATHFINDING = 3;
+	// NIGHTMARE bots only - every bot follows the same distances from the human
+	// player, the others use the incremental algorithm
+	protected static final int FLOW_FIELD_PATHFINDING = 4;
+
+	// the algorithm used for bot movement - it keeps its search between turns so
+	// replanning only costs as much as what changed
+	private Pathfinder pathfinder;
+	// which algorithm it is(one of the *_PATHFINDING constants)
+	private int pathfinding;
+	// the distances from the human player shared with the other NIGHTMARE bots(null
+	// if the bot finds its own routes)
+	private FlowField flowField;
 
 	private Queue<int[]> route = new LinkedList<int[]>();
+	// whether the route ends before the destination(the hierarchical pathfinder
+	// only returns the first part of it)
+	private boolean partialRoute;
 	// how the bot is represented on the map
 	private char mapRepresentation = 'B';
 	// x and y coordinates of the human player on the map
@@ -20,14 +39,24 @@ public class BotPlayer extends Player
 	private boolean isOnExit;
 	// the difficulty of the bot - it can be 1,2,3 or 4
 	private int difficulty;
-	// a 2d boolean array with the size of the bot map to indicate which points are
-	// known(or seen with the look function)
-	private boolean[][] knownPoints;
+	// the map the bot finds its routes on - the points it doesn't know are floor(a
+	// NIGHTMARE bot has a copy of the whole map it keeps up to date, see follow)
+	private Grid botMap;
+	// which points are known(or seen with the look function) and where the bot
+	// explores next(difficulties 1 to 3 only)
+	private FrontierExplorer explorer;
 	// the coordinates the bot will head towards
 	private int[] destination;
 	// contains the number of turns since the player hasn't used the look(works for
 	// NORMAL bot only)
 	private int lastLook;
+	// the random choices of the bot
+	private GameRandom random = new GameRandom();
+	// the version of the map journal the bot has seen(NIGHTMARE bots only, see
+	// follow)
+	private long journalVersion;
+	// the routes the bot has found(see GameMetrics)
+	private int replans;
 
 	/**
 	 * Constructor for bot player
@@ -39,7 +68,24 @@ public class BotPlayer extends Player
 	 * @param difficulty : the difficulty of the bot
 	 * @param map        : the original map which the bot map is build from
 	 */
-	public BotPlayer(int x, int y, boolean isOnExit, boolean isOnGold, int difficulty, char[][] map)
+	public BotPlayer(int x, int y, boolean isOnExit, boolean isOnGold, int difficulty, Map map)
+	{
+		this(x, y, isOnExit, isOnGold, difficulty, map, INCREMENTAL_PATHFINDING);
+	}
+
+	/**
+	 * Constructor for bot player with a specific pathfinding algorithm
+	 *
+	 * @param x           : the x coordinate of the player
+	 * @param y           : the y coordinate of the player
+	 * @param isOnExit    : whether player is on top of an exit or not
+	 * @param isOnGold    : whether player is on top of an exit or not
+	 * @param difficulty  : the difficulty of the bot
+	 * @param originalMap : the original map which the bot map is build from
+	 * @param pathfinding : the algorithm the bot finds its routes with(one of the
+	 *                    *_PATHFINDING constants)
+	 */
+	public BotPlayer(int x, int y, boolean isOnExit, boolean isOnGold, int difficulty, Map originalMap, int pathfinding)
 	{
 		// set the simple values
 		destination = new int[2];
@@ -48,45 +94,197 @@ public class BotPlayer extends Player
 		this.difficulty = difficulty;
 		this.isOnExit = isOnExit;
 		this.isOnGold = isOnGold;
+		this.pathfinding = pathfinding;
 		lastLook = 0;
 
-		char[][] botMap = new char[map.length][map[0].length];
-		knownPoints = new boolean[map.length][map[0].length];
+		Grid map = originalMap.getGrid();
+		int rows = map.getRows();
+		int columns = map.getColumns();
+		// a new grid is all wall
+		botMap = new Grid(rows, columns);
 
 		// loop through each of the elements in the original map
-		for (int i = 0; i < map.length; i++)
+		for (int i = 0; i < rows; i++)
 		{
-			for (int j = 0; j < map[0].length; j++)
+			for (int j = 0; j < columns; j++)
 			{
 				if (difficulty == 4)
 				{
 					// if the difficulty is 4 the bot knows the whole map and starts persuing the
 					// player at the start
-					if (map[i][j] == 'P')
+					if (map.get(i, j) == 'P')
 					{
 						destination[0] = i;
 						destination[1] = j;
-						aStar = new AStarAlgorithm(map);
-						getRouteFromAStar();
+						if (pathfinding == FLOW_FIELD_PATHFINDING)
+						{
+							// no routes are needed, the next step is read from the shared distances
+							flowField = originalMap.getFlowField();
+							flowField.setGoal(i, j);
+							return;
+						}
+						if (pathfinding == HIERARCHICAL_PATHFINDING)
+						{
+							// the hierarchical pathfinder of the whole map is shared with the map, which
+							// tells it about every change
+							pathfinder = originalMap.getHierarchicalPathfinder();
+						}
+						else
+						{
+							// the others are told about the changes through the journal(see follow), so
+							// they plan on a copy of the map - on the map itself a tile would already have
+							// changed when they are told and they wouldn't repair their routes
+							botMap = new Grid(map);
+							pathfinder = createPathfinder(pathfinding, botMap);
+						}
+						getRouteFromPathfinder();
 
 						return;
 					}
 				}
-				else if (i == 0 || j == 0 || i == map.length - 1 || j == map[0].length - 1)
+				else if (i != 0 && j != 0 && i != rows - 1 && j != columns - 1)
 				{
-					// if it's the edge of the map the point is wall and is known by the bot
-					botMap[i][j] = '#';
-					knownPoints[i][j] = true;
+					// if it's not the edge(which is wall) the bot assumes it's simple floor tile
+					botMap.set(i, j, '.');
 				}
-				else
+			}
+		}
+		// only the edges are known at first
+		explorer = new FrontierExplorer(botMap);
+		pathfinder = createPathfinder(pathfinding, botMap);
+	}
+
+	/**
+	 * Constructor for a bot from a snapshot of a game(see writeSnapshot) that
+	 * goes on making the same moves the bot would have made
+	 *
+	 * @param snapshot : the snapshot, where the bot was written
+	 * @param map      : the map of the game, restored from the snapshot
+	 */
+	public BotPlayer(GameSnapshot snapshot, Map map)
+	{
+		ByteBuffer buffer = snapshot.getBuffer();
+		positionX = buffer.getInt();
+		positionY = buffer.getInt();
+		isOnGold = buffer.get() != 0;
+		isOnExit = buffer.get() != 0;
+		difficulty = buffer.get();
+		pathfinding = buffer.get();
+		lastLook = buffer.getInt();
+		destination = new int[]
+		{ buffer.getInt(), buffer.getInt() };
+		random = new GameRandom(buffer.getLong());
+		journalVersion = buffer.getLong();
+		partialRoute = buffer.get() != 0;
+		for (int count = buffer.getInt(); count > 0; count--)
+		{
+			route.add(new int[]
+			{ buffer.getInt(), buffer.getInt() });
+		}
+		Grid grid = map.getGrid();
+		if (buffer.get() != 0)
+		{
+			// the bot explores a map of its own
+			botMap = snapshot.getGrid();
+			explorer = new FrontierExplorer(botMap, snapshot);
+			pathfinder = createPathfinder(pathfinding, botMap);
+			pathfinder.readSnapshot(snapshot);
+		}
+		else
+		{
+			// the bot knows the whole map(its own is never filled in)
+			botMap = new Grid(grid.getRows(), grid.getColumns());
+			if (pathfinding == FLOW_FIELD_PATHFINDING)
+			{
+				// the goal of the distances comes back with the map
+				flowField = map.getFlowField();
+			}
+			else if (pathfinding == HIERARCHICAL_PATHFINDING)
+			{
+				// it is shared with the map and only depends on the map
+				pathfinder = map.getHierarchicalPathfinder();
+			}
+			else
+			{
+				// it plans on the map as it was when it last followed the journal, so the
+				// changes since then are undone on its copy
+				botMap = new Grid(grid);
+				MapJournal journal = map.getJournal();
+				if (journal.isAvailable(journalVersion))
 				{
-					// if it's not the edge the bot assumes it's simple floor tile and it is unknown
-					knownPoints[i][j] = false;
-					botMap[i][j] = '.';
+					for (long change = journal.getVersion(); change > journalVersion; change--)
+					{
+						int cell = journal.getCell(change);
+						botMap.set(cell / grid.getColumns(), cell % grid.getColumns(), journal.getOldTile(change));
+					}
 				}
+				pathfinder = createPathfinder(pathfinding, botMap);
+				pathfinder.readSnapshot(snapshot);
 			}
 		}
-		aStar = new AStarAlgorithm(botMap);
+	}
+
+	/**
+	 * Writes the bot into a snapshot of a game - where it is, what it knows, where
+	 * it is going and what its pathfinder keeps between routes
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	protected void writeSnapshot(GameSnapshot snapshot)
+	{
+		ByteBuffer buffer = snapshot.reserve(45 + 8 * route.size());
+		buffer.putInt(positionX).putInt(positionY);
+		buffer.put((byte) (isOnGold ? 1 : 0)).put((byte) (isOnExit ? 1 : 0));
+		buffer.put((byte) difficulty).put((byte) pathfinding).putInt(lastLook);
+		buffer.putInt(destination[0]).putInt(destination[1]);
+		buffer.putLong(random.getSeed()).putLong(journalVersion);
+		buffer.put((byte) (partialRoute ? 1 : 0)).putInt(route.size());
+		for (int[] point : route)
+		{
+			buffer.putInt(point[0]).putInt(point[1]);
+		}
+		snapshot.reserve(1).put((byte) (explorer != null ? 1 : 0));
+		if (explorer != null)
+		{
+			snapshot.putGrid(botMap);
+			explorer.writeSnapshot(snapshot);
+			pathfinder.writeSnapshot(snapshot);
+		}
+		else if (pathfinder != null && pathfinding != HIERARCHICAL_PATHFINDING)
+		{
+			pathfinder.writeSnapshot(snapshot);
+		}
+	}
+
+	/**
+	 * Creates the algorithm the bot finds its routes with
+	 *
+	 * @param pathfinding : one of the *_PATHFINDING constants
+	 * @param map         : the map the algorithm will use
+	 * @return : the pathfinding algorithm
+	 */
+	private static Pathfinder createPathfinder(int pathfinding, Grid map)
+	{
+		switch (pathfinding)
+		{
+		case A_STAR_PATHFINDING:
+			return new AStarAlgorithm(map);
+		case JUMP_POINT_PATHFINDING:
+			return new JumpPointSearch(map);
+		case HIERARCHICAL_PATHFINDING:
+			return new HierarchicalPathfinder(map);
+		default:
+			return new IncrementalPathfinder(map);
+		}
+	}
+
+	/**
+	 * @param random : the random numbers the bot makes its random choices with(e.g.
+	 *               seeded by the game so it can be played again)
+	 */
+	protected void setRandom(GameRandom random)
+	{
+		this.random = random;
 	}
 
 	/**
@@ -170,23 +368,40 @@ public class BotPlayer extends Player
 	}
 
 	/**
-	 * Uses AStarAlgorithm to determine the route to the destination of the bot
+	 * Uses the pathfinder to determine the route to the destination of the bot
 	 */
-	private void getRouteFromAStar()
+	private void getRouteFromPathfinder()
 	{
 		// if there is a destination
 		if (destination[0] != 0)
 		{
 			// clear previous route
 			route.clear();
-			// go through all the coordinates from the A* algorithm and add them to the
+			partialRoute = false;
+			// go through all the coordinates from the pathfinder and add them to the
 			// route queue in this class
 			int[][] routeCoordinates;
-			routeCoordinates = aStar.pathfind(positionX, positionY, destination[0], destination[1]);
+			long start = GameMetrics.ENABLED ? System.nanoTime() : 0;
+			routeCoordinates = pathfinder.pathfind(positionX, positionY, destination[0], destination[1]);
+			if (GameMetrics.ENABLED)
+			{
+				GameMetrics.PATHFIND.record(System.nanoTime() - start);
+				GameMetrics.EXPANDED_POINTS.record(pathfinder.getExpandedPoints());
+				GameMetrics.ROUTE_LENGTH.record(routeCoordinates == null ? 0 : routeCoordinates.length);
+				replans++;
+			}
+			// if the destination can't be reached the route stays empty
+			if (routeCoordinates == null)
+			{
+				return;
+			}
 			for (int i = 0; i < routeCoordinates.length; i++)
 			{
 				route.add(routeCoordinates[i]);
 			}
+			// the rest of a route that stops short is found when the bot gets there
+			int[] last = routeCoordinates.length > 0 ? routeCoordinates[routeCoordinates.length - 1] : null;
+			partialRoute = last != null && (last[0] != destination[0] || last[1] != destination[1]);
 		}
 	}
 
@@ -200,15 +415,28 @@ public class BotPlayer extends Player
 	 */
 	protected void setBotMapPoint(int x, int y, char c)
 	{
-		// sets the point in A* algorithm and makes it known
-		aStar.setMapPoint(x, y, c);
-		knownPoints[x][y] = true;
+		if (flowField != null)
+		{
+			// the bot only has to know where the player is(every bot sets the same goal so
+			// the distances are still found once)
+			if (c == 'P')
+			{
+				flowField.setGoal(x, y);
+			}
+			return;
+		}
+		// sets the point in the pathfinder and makes it known
+		pathfinder.setMapPoint(x, y, c);
+		if (explorer != null)
+		{
+			explorer.setKnown(x, y);
+		}
 		if (c == 'P')
 		{
 			// if the player is seen get the route towards him
 			destination[0] = x;
 			destination[1] = y;
-			getRouteFromAStar();
+			getRouteFromPathfinder();
 		}
 		else if (c == 'B' && destination[0] == positionX && destination[1] == positionY)
 		{
@@ -218,6 +446,101 @@ public class BotPlayer extends Player
 		}
 	}
 
+	/**
+	 * Updates the bot map with what the bot sees - the points it already knows
+	 * as they are are skipped, but the human player is always seen again so the
+	 * bot heads for him
+	 *
+	 * @param visible : the points the bot sees(see Grid.index)
+	 * @param map     : the map they are seen on
+	 */
+	protected void see(int[] visible, Grid map)
+	{
+		for (int index : visible)
+		{
+			int x = map.getX(index);
+			int y = map.getY(index);
+			char c = map.getAt(index);
+			if (c != 'P' && explorer != null && explorer.isKnown(x, y) && botMap.get(x, y) == c)
+			{
+				continue;
+			}
+			setBotMapPoint(x, y, c);
+		}
+	}
+
+	/**
+	 * Updates the bot map with the changes of the map since the bot last looked at
+	 * the journal - a NIGHTMARE bot knows every change. If the journal doesn't
+	 * keep all of them any more the whole map is looked at again.
+	 *
+	 * @param journal : the journal of the map
+	 * @param map     : the map
+	 */
+	protected void follow(MapJournal journal, Grid map)
+	{
+		long version = journal.getVersion();
+		// a wall that opened may let the bot get to the player a shorter way or at all
+		boolean opened = false;
+		if (journal.isAvailable(journalVersion))
+		{
+			int columns = map.getColumns();
+			for (long change = journalVersion + 1; change <= version; change++)
+			{
+				int cell = journal.getCell(change);
+				char c = journal.getNewTile(change);
+				opened |= journal.getOldTile(change) == '#' && c != '#';
+				setBotMapPoint(cell / columns, cell % columns, c);
+			}
+		}
+		else
+		{
+			for (int i = 0; i < map.getRows(); i++)
+			{
+				for (int j = 0; j < map.getColumns(); j++)
+				{
+					// a bot that only follows the player only needs to know where he is
+					char c = map.get(i, j);
+					if (c == 'P' || flowField == null && botMap.get(i, j) != c)
+					{
+						opened |= botMap.get(i, j) == '#' && c != '#';
+						setBotMapPoint(i, j, c);
+					}
+				}
+			}
+		}
+		journalVersion = version;
+		if (opened && flowField == null)
+		{
+			getRouteFromPathfinder();
+		}
+	}
+
+	/**
+	 * @param version : the version of the map journal the bot knows the map at
+	 */
+	protected void setJournalVersion(long version)
+	{
+		journalVersion = version;
+	}
+
+	/**
+	 * @return : the version of the map journal the bot has seen
+	 */
+	protected long getJournalVersion()
+	{
+		return journalVersion;
+	}
+
+	/**
+	 * @return : the routes the bot has found so far(only counted when the metrics
+	 *         are, see GameMetrics)
+	 */
+	protected int getReplans()
+	{
+		return replans;
+	}
+
 	/**
 	 * Returns the next location or determines it if there is none
 	 * 
@@ -225,6 +548,36 @@ public class BotPlayer extends Player
 	 */
 	protected int[] getNextPoint()
 	{
+		if (!GameMetrics.ENABLED)
+		{
+			return findNextPoint();
+		}
+		long start = System.nanoTime();
+		try
+		{
+			return findNextPoint();
+		} finally
+		{
+			GameMetrics.NEXT_POINT.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns the next location without timing it(see getNextPoint)
+	 *
+	 * @return : the coordinates of the next location the bot moves to
+	 */
+	private int[] findNextPoint()
+	{
+		if (flowField != null)
+		{
+			return flowField.getNextStep(positionX, positionY);
+		}
+		if (route.isEmpty() && partialRoute)
+		{
+			// continue the route from where its first part ended
+			getRouteFromPathfinder();
+		}
 		if (route.isEmpty())
 		{
 			if (difficulty == 1)
@@ -233,8 +586,8 @@ public class BotPlayer extends Player
 				// him and returns that
 				while (true)
 				{
-					int randX = (int) (Math.random() * 3) - 1;
-					int randY = (int) (Math.random() * 3) - 1;
+					int randX = random.nextInt(3) - 1;
+					int randY = random.nextInt(3) - 1;
 					// the new coordinates have to near the bot(so the increase of either has to be
 					// 0 but not both)
 					if (randX == 0 ^ randY == 0)
@@ -246,38 +599,14 @@ public class BotPlayer extends Player
 			}
 			if (difficulty == 3 || difficulty == 2)
 			{
-				// difficulties 2 and 3 explore the map the same way
-
-				/*
-				 * the loop is named so that it can be exited with break it goes through each
-				 * point in a segment(maximum 8x8) around the bot and checks if the point is
-				 * unknown - if it is head towards it
-				 */
-				beginningLoop: for (int i = Math.max(positionX - 4, 1); i < Math.min(positionX + 4, knownPoints.length - 1); i++)
-				{
-					for (int j = Math.max(positionY - 4, 1); j < Math.min(positionY + 4, knownPoints[0].length - 1); j++)
-					{
-						if (!knownPoints[i][j])
-						{
-							destination[0] = i;
-							destination[1] = j;
-							getRouteFromAStar();
-							break beginningLoop;
-						}
-					}
-				}
-				// if the route is still empty after the loop above the bot heads toward a
-				// random point on the map
-				if (route.isEmpty())
+				// difficulties 2 and 3 explore the map the same way - they head for the
+				// nearest point where the known part of the map ends
+				int[] target = explorer.findTarget(positionX, positionY, random);
+				if (target != null)
 				{
-					destination[0] = (int) (Math.random() * (knownPoints.length - 2)) + 1;
-					destination[1] = (int) (Math.random() * (knownPoints[0].length - 2)) + 1;
-					// set that point to unknown in case it is a wall(in which case the program
-					// would crash)
-					knownPoints[destination[0]][destination[1]] = false;
-					aStar.setMapPoint(destination[0], destination[1], '.');
-
-					getRouteFromAStar();
+					destination[0] = target[0];
+					destination[1] = target[1];
+					getRouteFromPathfinder();
 				}
 			}
 		}
@@ -286,7 +615,7 @@ public class BotPlayer extends Player
 		if (difficulty == 2)
 		{
 			// if the next point is unknown or the bot hasn't looked in a while
-			if (!knownPoints[route.peek()[0]][route.peek()[1]] || lastLook > 3)
+			if (route.isEmpty() || !explorer.isKnown(route.peek()[0], route.peek()[1]) || lastLook > 3)
 			{
 				lastLook = 0;
 				return null;// returns null which indicates the bot has to use LOOK
@@ -303,9 +632,9 @@ public class BotPlayer extends Player
 			// not to end up in a wall
 			if (difficulty == 3 && lastLook > 1)
 			{
-				System.out.println("route cleared");
 				lastLook = 0;
 				route.clear();
+				partialRoute = false;
 				destination[0] = 0;
 				destination[1] = 0;
 			}
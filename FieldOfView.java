@@ -0,0 +1,383 @@
+import java.util.Arrays;
+
+/**
+ * Finds what can be seen from a point of a map - the points within a radius
+ * that no wall hides(walls are seen but hide what is behind them). It uses
+ * recursive shadowcasting, which looks at each of the 8 octants around the
+ * point row by row and skips the parts of a row in the shadow of a wall, so
+ * the hidden points are never looked at.
+ * <p>
+ * What is seen from a point is kept for the next time it is asked for. Only
+ * the points near a wall that changes have to be worked out again - a wall
+ * can only change what is seen from the points it is within the radius of, so
+ * only the points around it are looked up, not every field of view that is
+ * kept.
+ */
+public class FieldOfView
+{
+	// the number of points whose field of view is kept if no other number is given
+	protected static final int DEFAULT_CAPACITY = 1024;
+
+	// the largest radius
+	protected static final int MAX_RADIUS = 255;
+
+	// how the coordinates of each octant are turned into the ones of the map(a
+	// column for each octant)
+	private static final int[][] OCTANTS =
+	{
+			{ 1, 0, 0, -1, -1, 0, 0, 1 },
+			{ 0, 1, -1, 0, 0, -1, 1, 0 },
+			{ 0, 1, 1, 0, 0, -1, -1, 0 },
+			{ 1, 0, 0, 1, -1, 0, 0, -1 } };
+
+	// the map
+	private Grid map;
+
+	// the fields of view that are kept, each in a slot: the point it is seen
+	// from(see Grid.index), its radius and the points seen
+	private int[] slotPoints;
+	private int[] slotRadii;
+	private int[][] slotVisible;
+	// the next slot of the same point(-1 after the last) and the first slot of
+	// each point that has one
+	private int[] nextOfPoint;
+	private IntHashMap firstOfPoint = new IntHashMap();
+	// the slots from the one used last to the one used the longest time ago(-1
+	// at either end) - the free slots are linked by newer only
+	private int[] newer;
+	private int[] older;
+	private int newest = -1;
+	private int oldest = -1;
+	private int free;
+	private int used;
+	// the largest radius a field of view was kept for
+	private int largestRadius;
+
+	// the points seen so far by the field of view being worked out - they are
+	// marked so a point on the edge of two octants is only added once
+	private int[] seen = new int[64];
+	private int seenCount;
+	private BitGrid marked;
+
+	/**
+	 * Constructor for the field of view of a map
+	 *
+	 * @param map : the map
+	 */
+	public FieldOfView(Grid map)
+	{
+		this(map, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor for the field of view of a map
+	 *
+	 * @param map      : the map
+	 * @param capacity : the most fields of view that are kept at once
+	 */
+	public FieldOfView(Grid map, int capacity)
+	{
+		this.map = map;
+		marked = new BitGrid(map);
+		slotPoints = new int[capacity];
+		slotRadii = new int[capacity];
+		slotVisible = new int[capacity][];
+		nextOfPoint = new int[capacity];
+		newer = new int[capacity];
+		older = new int[capacity];
+		for (int slot = 0; slot < capacity; slot++)
+		{
+			newer[slot] = slot + 1 < capacity ? slot + 1 : -1;
+		}
+	}
+
+	/**
+	 * Gives what can be seen from a point, from the cache if it is there
+	 *
+	 * @param x      : x coordinate of the point
+	 * @param y      : y coordinate of the point
+	 * @param radius : how far can be seen(1 to MAX_RADIUS)
+	 * @return : the points that can be seen(see Grid.index), the point itself
+	 *         included - the array is shared so it can only be read
+	 */
+	protected int[] getVisible(int x, int y, int radius)
+	{
+		int point = map.index(x, y);
+		int slot = firstOfPoint.get(point, -1);
+		while (slot >= 0 && slotRadii[slot] != radius)
+		{
+			slot = nextOfPoint[slot];
+		}
+		if (GameMetrics.ENABLED)
+		{
+			GameMetrics.FIELD_OF_VIEW_HITS.record(slot >= 0 ? 100 : 0);
+		}
+		if (slot >= 0)
+		{
+			unlink(slot);
+		}
+		else
+		{
+			int[] visible = compute(x, y, radius);
+			if (free < 0)
+			{
+				// the field of view used the longest time ago makes room
+				remove(oldest);
+			}
+			slot = free;
+			free = newer[slot];
+			slotPoints[slot] = point;
+			slotRadii[slot] = radius;
+			slotVisible[slot] = visible;
+			nextOfPoint[slot] = firstOfPoint.get(point, -1);
+			firstOfPoint.put(point, slot);
+			used++;
+			largestRadius = Math.max(largestRadius, radius);
+		}
+		// it is the one used last now
+		older[slot] = newest;
+		newer[slot] = -1;
+		if (newest >= 0)
+		{
+			newer[newest] = slot;
+		}
+		else
+		{
+			oldest = slot;
+		}
+		newest = slot;
+		return slotVisible[slot];
+	}
+
+	/**
+	 * Works out what can be seen from a point without the cache
+	 *
+	 * @param x      : x coordinate of the point
+	 * @param y      : y coordinate of the point
+	 * @param radius : how far can be seen(1 to MAX_RADIUS)
+	 * @return : the points that can be seen(see Grid.index), the point itself
+	 *         included
+	 */
+	protected int[] compute(int x, int y, int radius)
+	{
+		if (radius < 1 || radius > MAX_RADIUS)
+		{
+			throw new IllegalArgumentException("The radius has to be 1 to " + MAX_RADIUS);
+		}
+		seenCount = 0;
+		see(x, y, 0, 0, radius);
+		for (int octant = 0; octant < 8; octant++)
+		{
+			castLight(x, y, radius, 1, 1.0, 0.0, OCTANTS[0][octant], OCTANTS[1][octant], OCTANTS[2][octant],
+					OCTANTS[3][octant]);
+		}
+		int[] visible = Arrays.copyOf(seen, seenCount);
+		for (int index : visible)
+		{
+			marked.clear(index);
+		}
+		return visible;
+	}
+
+	/**
+	 * Lights the rows of an octant from one row on between two slopes, starting
+	 * again after each wall for the part of the octant it doesn't hide
+	 *
+	 * @param x      : x coordinate of the point that sees
+	 * @param y      : y coordinate of the point that sees
+	 * @param radius : how far can be seen
+	 * @param row    : the first row(distance from the point) that is lit
+	 * @param start  : the slope where the light starts
+	 * @param end    : the slope where the light ends
+	 * @param xx     : how the column in the octant moves x
+	 * @param xy     : how the row in the octant moves x
+	 * @param yx     : how the column in the octant moves y
+	 * @param yy     : how the row in the octant moves y
+	 */
+	private void castLight(int x, int y, int radius, int row, double start, double end, int xx, int xy, int yx,
+			int yy)
+	{
+		if (start < end)
+		{
+			return;
+		}
+		double newStart = 0;
+		for (int i = row; i <= radius; i++)
+		{
+			boolean blocked = false;
+			for (int dx = -i, dy = -i; dx <= 0; dx++)
+			{
+				double leftSlope = (dx - 0.5) / (dy + 0.5);
+				double rightSlope = (dx + 0.5) / (dy - 0.5);
+				if (start < rightSlope)
+				{
+					continue;
+				}
+				else if (end > leftSlope)
+				{
+					break;
+				}
+				int pointX = x + dx * xx + dy * xy;
+				int pointY = y + dx * yx + dy * yy;
+				// anything outside the map(past its border) is wall and can't be seen
+				boolean wall = pointX < 0 || pointY < 0 || pointX >= map.getRows() || pointY >= map.getColumns()
+						|| map.isWall(pointX, pointY);
+				see(pointX, pointY, dx, dy, radius);
+				if (blocked)
+				{
+					if (wall)
+					{
+						newStart = rightSlope;
+						continue;
+					}
+					blocked = false;
+					start = newStart;
+				}
+				else if (wall && i < radius)
+				{
+					// the wall starts a shadow - the light to the side of it goes on past it
+					blocked = true;
+					castLight(x, y, radius, i + 1, start, leftSlope, xx, xy, yx, yy);
+					newStart = rightSlope;
+				}
+			}
+			if (blocked)
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Adds a point to what is seen if it is in the map and in the circle of the
+	 * radius
+	 *
+	 * @param x      : x coordinate of the point
+	 * @param y      : y coordinate of the point
+	 * @param dx     : how far it is from the point that sees in one direction
+	 * @param dy     : how far it is from the point that sees in the other direction
+	 * @param radius : how far can be seen
+	 */
+	private void see(int x, int y, int dx, int dy, int radius)
+	{
+		// a little more than the radius so the circle has no single points on its edge
+		if (x < 0 || y < 0 || x >= map.getRows() || y >= map.getColumns()
+				|| dx * dx + dy * dy > radius * (radius + 1))
+		{
+			return;
+		}
+		int index = map.index(x, y);
+		if (marked.get(index))
+		{
+			return;
+		}
+		marked.set(index);
+		if (seenCount == seen.length)
+		{
+			seen = Arrays.copyOf(seen, seenCount * 2);
+		}
+		seen[seenCount++] = index;
+	}
+
+	/**
+	 * Forgets what is seen from the points a wall that appeared or disappeared is
+	 * within the radius of - the points around it are looked up unless fewer
+	 * fields of view are kept than there are points around it
+	 *
+	 * @param x : x coordinate of the wall
+	 * @param y : y coordinate of the wall
+	 */
+	protected void wallChanged(int x, int y)
+	{
+		if ((2L * largestRadius + 1) * (2L * largestRadius + 1) > used)
+		{
+			for (int slot = newest; slot >= 0;)
+			{
+				int next = older[slot];
+				int point = slotPoints[slot];
+				if (Math.max(Math.abs(map.getX(point) - x), Math.abs(map.getY(point) - y)) <= slotRadii[slot])
+				{
+					remove(slot);
+				}
+				slot = next;
+			}
+			return;
+		}
+		for (int i = Math.max(x - largestRadius, 0); i <= Math.min(x + largestRadius, map.getRows() - 1); i++)
+		{
+			for (int j = Math.max(y - largestRadius, 0); j <= Math.min(y + largestRadius, map.getColumns() - 1); j++)
+			{
+				int distance = Math.max(Math.abs(i - x), Math.abs(j - y));
+				for (int slot = firstOfPoint.get(map.index(i, j), -1); slot >= 0;)
+				{
+					int next = nextOfPoint[slot];
+					if (distance <= slotRadii[slot])
+					{
+						remove(slot);
+					}
+					slot = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes a slot out of the order the slots were used in
+	 *
+	 * @param slot : the slot
+	 */
+	private void unlink(int slot)
+	{
+		if (newer[slot] >= 0)
+		{
+			older[newer[slot]] = older[slot];
+		}
+		else
+		{
+			newest = older[slot];
+		}
+		if (older[slot] >= 0)
+		{
+			newer[older[slot]] = newer[slot];
+		}
+		else
+		{
+			oldest = newer[slot];
+		}
+	}
+
+	/**
+	 * Forgets the field of view in a slot and frees the slot
+	 *
+	 * @param slot : the slot
+	 */
+	private void remove(int slot)
+	{
+		unlink(slot);
+		int point = slotPoints[slot];
+		int first = firstOfPoint.get(point, -1);
+		if (first == slot)
+		{
+			if (nextOfPoint[slot] >= 0)
+			{
+				firstOfPoint.put(point, nextOfPoint[slot]);
+			}
+			else
+			{
+				firstOfPoint.remove(point);
+			}
+		}
+		else
+		{
+			while (nextOfPoint[first] != slot)
+			{
+				first = nextOfPoint[first];
+			}
+			nextOfPoint[first] = nextOfPoint[slot];
+		}
+		slotVisible[slot] = null;
+		newer[slot] = free;
+		free = slot;
+		used--;
+	}
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+
+/**
+ * The distance of every point of the map from one goal(the human player),
+ * shared by every bot that chases it. The distances are found with one breadth
+ * first search from the goal the first time someone asks after the goal moved
+ * or a wall changed, after that each bot finds its next step by looking at its
+ * neighbours.
+ */
+public class FlowField
+{
+	// the map used for the search
+	private Grid map;
+
+	// the indices of the neighbours of a point are at these offsets from it
+	private int[] neighbourOffsets;
+
+	// the distance of each point from the goal - only valid if the point has the
+	// current search stamp
+	private int[] distance;
+	private int[] visited;
+	private int currentSearch;
+	private int[] queue;
+
+	// index of the goal point(-1 if there is none)
+	private int goal = -1;
+
+	// whether the distances have to be found again before they are used
+	private boolean changed;
+
+	// the number of points reached by the last search
+	private int expandedPoints;
+
+	/**
+	 * Constructor for the class
+	 *
+	 * @param map : the map the distances are found on
+	 */
+	public FlowField(Grid map)
+	{
+		this.map = map;
+		int stride = map.getStride();
+		neighbourOffsets = new int[]
+		{ stride, -stride, 1, -1 };
+		int size = map.getSize();
+		distance = new int[size];
+		visited = new int[size];
+		queue = new int[size];
+	}
+
+	/**
+	 * Moves the goal - the distances are found again the next time they are used
+	 *
+	 * @param x : x coordinate of the goal
+	 * @param y : y coordinate of the goal
+	 */
+	protected void setGoal(int x, int y)
+	{
+		int newGoal = map.index(x, y);
+		if (newGoal != goal)
+		{
+			goal = newGoal;
+			changed = true;
+		}
+	}
+
+	/**
+	 * @return : the goal(see Grid.index) or -1 if it hasn't been set
+	 */
+	protected int getGoal()
+	{
+		return goal;
+	}
+
+	/**
+	 * Marks the distances to be found again because a point turned into a wall or
+	 * stopped being one
+	 */
+	protected void wallChanged()
+	{
+		changed = true;
+	}
+
+	/**
+	 * @param x : x coordinate of the point
+	 * @param y : y coordinate of the point
+	 * @return : the distance of the point from the goal or -1 if the goal can't be
+	 *         reached from it
+	 */
+	protected int getDistance(int x, int y)
+	{
+		update();
+		return getDistanceAt(map.index(x, y));
+	}
+
+	/**
+	 * Finds the next step from a point towards the goal
+	 *
+	 * @param x : x coordinate of the point
+	 * @param y : y coordinate of the point
+	 * @return : the coordinates of the neighbour closer to the goal or null if the
+	 *         point is the goal or can't reach it
+	 */
+	protected int[] getNextStep(int x, int y)
+	{
+		int point = map.index(x, y);
+		int pointDistance = getDistance(x, y);
+		if (pointDistance <= 0)
+		{
+			return null;
+		}
+		// the border around the map is never reached so it needs no checks
+		for (int offset : neighbourOffsets)
+		{
+			if (getDistanceAt(point + offset) == pointDistance - 1)
+			{
+				return new int[]
+				{ map.getX(point + offset), map.getY(point + offset) };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return : the number of points reached by the last search
+	 */
+	protected int getExpandedPoints()
+	{
+		return expandedPoints;
+	}
+
+	/**
+	 * @param point : index of the point
+	 * @return : the distance of the point from the goal or -1
+	 */
+	private int getDistanceAt(int point)
+	{
+		return goal >= 0 && visited[point] == currentSearch ? distance[point] : -1;
+	}
+
+	/**
+	 * Finds the distances from the goal again if anything changed
+	 */
+	private void update()
+	{
+		if (!changed || goal < 0)
+		{
+			return;
+		}
+		changed = false;
+		currentSearch++;
+		if (currentSearch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(visited, 0);
+			currentSearch = 1;
+		}
+
+		int head = 0;
+		int tail = 0;
+		visited[goal] = currentSearch;
+		distance[goal] = 0;
+		queue[tail++] = goal;
+		while (head < tail)
+		{
+			int point = queue[head++];
+			int nextDistance = distance[point] + 1;
+			for (int offset : neighbourOffsets)
+			{
+				int next = point + offset;
+				if (visited[next] != currentSearch && !map.isWallAt(next))
+				{
+					visited[next] = currentSearch;
+					distance[next] = nextDistance;
+					queue[tail++] = next;
+				}
+			}
+		}
+		expandedPoints = tail;
+	}
+}
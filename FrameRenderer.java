@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Draws frames(the LOOK window or the whole map) on a terminal or any other
+ * stream. A frame is put together as ASCII in a buffer that is kept between
+ * frames and written with one call, so a frame costs no locking or encoding
+ * per tile and no garbage.
+ * <p>
+ * As text a frame is written like the answer to LOOK - the tiles of each row
+ * followed by a new line. In ANSI mode the first frame clears the screen and
+ * every frame after it only moves the cursor to the tiles that changed since
+ * the one before and writes them, which is a small part of the map in most
+ * turns. When it draws a Map it doesn't even compare the tiles - it reads which
+ * ones changed from the journal of the map.
+ */
+public class FrameRenderer
+{
+	private static final byte ESCAPE = 27;
+
+	// the stream the frames are written to
+	private OutputStream out;
+
+	// whether only the changes are drawn with ANSI escape codes
+	private boolean ansi;
+
+	// where a frame is put together
+	private byte[] buffer = new byte[256];
+	private int length;
+
+	// the tiles of the frame being drawn and of the one drawn before it in ANSI
+	// mode(0 where there is nothing to draw)
+	private byte[] frame = new byte[0];
+	private byte[] previous;
+	private int previousRows;
+	private int previousColumns;
+
+	// the journal of the map drawn last and the version of it that was drawn
+	private MapJournal journal;
+	private long journalVersion;
+
+	/**
+	 * Constructor for the renderer
+	 *
+	 * @param out  : the stream the frames are written to
+	 * @param ansi : whether only the tiles that change are drawn(the stream has to
+	 *             be an ANSI terminal)
+	 */
+	public FrameRenderer(OutputStream out, boolean ansi)
+	{
+		this.out = out;
+		this.ansi = ansi;
+	}
+
+	/**
+	 * Draws the tiles the human player saw with the last LOOK
+	 *
+	 * @param window : the tiles(see GameLogic.getLookWindow)
+	 * @throws IOException if the stream can't be written
+	 */
+	protected void renderLook(byte[] window) throws IOException
+	{
+		ensureFrame(window.length);
+		System.arraycopy(window, 0, frame, 0, window.length);
+		renderFrame(GameLogic.LOOK_SIZE, GameLogic.LOOK_SIZE);
+	}
+
+	/**
+	 * Draws a whole map
+	 *
+	 * @param grid : the tiles of the map
+	 * @throws IOException if the stream can't be written
+	 */
+	protected void renderMap(Grid grid) throws IOException
+	{
+		int rows = grid.getRows();
+		int columns = grid.getColumns();
+		ensureFrame(rows * columns);
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				frame[i * columns + j] = (byte) grid.get(i, j);
+			}
+		}
+		renderFrame(rows, columns);
+	}
+
+	/**
+	 * Draws a whole map - in ANSI mode only the tiles the journal of the map says
+	 * were changed since the last frame are looked at
+	 *
+	 * @param map : the map
+	 * @throws IOException if the stream can't be written
+	 */
+	protected void renderMap(Map map) throws IOException
+	{
+		MapJournal mapJournal = map.getJournal();
+		Grid grid = map.getGrid();
+		int columns = grid.getColumns();
+		if (!ansi || previous == null || mapJournal != journal || grid.getRows() != previousRows
+				|| columns != previousColumns || !mapJournal.isAvailable(journalVersion))
+		{
+			renderMap(grid);
+		}
+		else
+		{
+			length = 0;
+			long version = mapJournal.getVersion();
+			for (long change = journalVersion + 1; change <= version; change++)
+			{
+				int cell = mapJournal.getCell(change);
+				byte tile = (byte) grid.get(cell / columns, cell % columns);
+				// a tile that changed more than once is only drawn once
+				if (previous[cell] != tile)
+				{
+					previous[cell] = tile;
+					moveCursor(cell / columns, cell % columns);
+					append(tile);
+				}
+			}
+			// leave the cursor under the frame
+			moveCursor(previousRows, 0);
+			flush();
+		}
+		journal = mapJournal;
+		journalVersion = mapJournal.getVersion();
+	}
+
+	/**
+	 * Writes a line of text(e.g. an answer) - in ANSI mode it goes under the last
+	 * frame, replacing what was written there before
+	 *
+	 * @param line : the text(ASCII)
+	 * @throws IOException if the stream can't be written
+	 */
+	protected void renderLine(String line) throws IOException
+	{
+		length = 0;
+		if (ansi && previous != null)
+		{
+			moveCursor(previousRows, 0);
+			// clear everything under the frame
+			append(ESCAPE);
+			append('[');
+			append('J');
+		}
+		ensureBuffer(line.length() + 1);
+		for (int i = 0; i < line.length(); i++)
+		{
+			buffer[length++] = (byte) line.charAt(i);
+		}
+		append('\n');
+		flush();
+	}
+
+	/**
+	 * Makes the next ANSI frame clear the screen and draw every tile again(e.g.
+	 * after something else was written on the terminal)
+	 */
+	protected void invalidate()
+	{
+		previous = null;
+	}
+
+	/**
+	 * Puts the tiles in the frame array into the buffer and writes it
+	 *
+	 * @param rows    : the number of rows of the frame
+	 * @param columns : the number of columns of the frame
+	 * @throws IOException if the stream can't be written
+	 */
+	private void renderFrame(int rows, int columns) throws IOException
+	{
+		length = 0;
+		if (!ansi)
+		{
+			ensureBuffer(rows * (columns + 1));
+			for (int i = 0; i < rows; i++)
+			{
+				int rowStart = length;
+				for (int j = 0; j < columns; j++)
+				{
+					if (frame[i * columns + j] != 0)
+					{
+						buffer[length++] = frame[i * columns + j];
+					}
+				}
+				// a row with nothing in it(outside the map) isn't written at all
+				if (length > rowStart)
+				{
+					buffer[length++] = '\n';
+				}
+			}
+		}
+		else if (previous == null || rows != previousRows || columns != previousColumns)
+		{
+			// clear the screen and draw every tile
+			ensureBuffer(8 + rows * (columns + 2));
+			append(ESCAPE);
+			append('[');
+			append('H');
+			append(ESCAPE);
+			append('[');
+			append('2');
+			append('J');
+			for (int i = 0; i < rows; i++)
+			{
+				for (int j = 0; j < columns; j++)
+				{
+					buffer[length++] = frame[i * columns + j] == 0 ? (byte) ' ' : frame[i * columns + j];
+				}
+				buffer[length++] = '\r';
+				buffer[length++] = '\n';
+			}
+			previous = new byte[rows * columns];
+			previousRows = rows;
+			previousColumns = columns;
+		}
+		else
+		{
+			for (int i = 0; i < rows; i++)
+			{
+				int j = 0;
+				while (j < columns)
+				{
+					int start = i * columns + j;
+					if (frame[start] == previous[start])
+					{
+						j++;
+						continue;
+					}
+					// a run of changed tiles is written after a single cursor move
+					int end = start + 1;
+					while (end < (i + 1) * columns && frame[end] != previous[end])
+					{
+						end++;
+					}
+					moveCursor(i, j);
+					ensureBuffer(end - start);
+					for (int k = start; k < end; k++)
+					{
+						buffer[length++] = frame[k] == 0 ? (byte) ' ' : frame[k];
+					}
+					j += end - start;
+				}
+			}
+			// leave the cursor under the frame
+			moveCursor(rows, 0);
+		}
+		if (ansi)
+		{
+			System.arraycopy(frame, 0, previous, 0, rows * columns);
+		}
+		flush();
+	}
+
+	/**
+	 * Puts the ANSI code that moves the cursor into the buffer
+	 *
+	 * @param row    : the row of the frame(starting from 0)
+	 * @param column : the column of the frame(starting from 0)
+	 */
+	private void moveCursor(int row, int column)
+	{
+		append(ESCAPE);
+		append('[');
+		appendNumber(row + 1);
+		append(';');
+		appendNumber(column + 1);
+		append('H');
+	}
+
+	/**
+	 * Puts a positive number into the buffer as decimal digits
+	 *
+	 * @param number : the number
+	 */
+	private void appendNumber(int number)
+	{
+		int digits = 1;
+		for (int n = number; n >= 10; n /= 10)
+		{
+			digits++;
+		}
+		ensureBuffer(digits);
+		for (int i = length + digits - 1; i >= length; i--)
+		{
+			buffer[i] = (byte) ('0' + number % 10);
+			number /= 10;
+		}
+		length += digits;
+	}
+
+	/**
+	 * Puts a byte into the buffer
+	 *
+	 * @param b : the byte
+	 */
+	private void append(int b)
+	{
+		ensureBuffer(1);
+		buffer[length++] = (byte) b;
+	}
+
+	/**
+	 * Makes sure the buffer has room for more bytes
+	 *
+	 * @param more : the number of bytes that will be put
+	 */
+	private void ensureBuffer(int more)
+	{
+		if (length + more > buffer.length)
+		{
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + more));
+		}
+	}
+
+	/**
+	 * Makes sure the frame array is big enough
+	 *
+	 * @param size : the number of tiles of the frame
+	 */
+	private void ensureFrame(int size)
+	{
+		if (frame.length < size)
+		{
+			frame = new byte[size];
+		}
+	}
+
+	/**
+	 * Writes the buffer with one call
+	 *
+	 * @throws IOException if the stream can't be written
+	 */
+	private void flush() throws IOException
+	{
+		out.write(buffer, 0, length);
+		out.flush();
+	}
+}
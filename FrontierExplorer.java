@@ -0,0 +1,221 @@
+import java.util.Arrays;
+
+/**
+ * Decides where an exploring bot goes next. It knows which points of the map
+ * the bot has seen and keeps the frontier - the seen points that can be walked
+ * on and are next to a point that hasn't been seen - up to date as points are
+ * seen, which only changes the point and its neighbours. The nearest frontier
+ * point is found with one breadth first search from the bot through the seen
+ * part of the map that stops at the first frontier point it reaches.
+ * <p>
+ * What it knows about each point is a few bits(see BitGrid), so a bot on a
+ * large map costs little more than its map and its pathfinder.
+ */
+public class FrontierExplorer
+{
+	// the map of the bot - the points that haven't been seen are floor in it
+	private Grid map;
+
+	// whether each point has been seen and whether it is on the frontier
+	private BitGrid known;
+	private BitGrid frontier;
+
+	// the breadth first search - the queue only grows as big as the searches get
+	// and the visited points are cleared again after each search
+	private BitGrid visited;
+	private int[] queue = new int[64];
+
+	// the offsets of the neighbours of a point
+	private int[] offsets;
+
+	/**
+	 * Constructor for the explorer of a map nothing is known about but its edges
+	 *
+	 * @param map : the map of the bot(it is changed by the bot, not by this)
+	 */
+	public FrontierExplorer(Grid map)
+	{
+		this(map, new BitGrid(map), new BitGrid(map));
+		// the edges of the map are wall and known(the border around it too)
+		int rows = map.getRows();
+		int columns = map.getColumns();
+		int stride = map.getStride();
+		for (int x = -1; x <= rows; x++)
+		{
+			int rowStart = map.index(x, -1);
+			if (x <= 0 || x >= rows - 1)
+			{
+				known.set(rowStart, rowStart + stride);
+			}
+			else
+			{
+				known.set(rowStart, map.index(x, 1));
+				known.set(map.index(x, columns - 1), rowStart + stride);
+			}
+		}
+	}
+
+	/**
+	 * Constructor for the explorer of a map from a snapshot of a game(see
+	 * writeSnapshot)
+	 *
+	 * @param map      : the map of the bot
+	 * @param snapshot : the snapshot, where the explorer was written
+	 */
+	public FrontierExplorer(Grid map, GameSnapshot snapshot)
+	{
+		this(map, new BitGrid(map, snapshot.getLongs()), new BitGrid(map, snapshot.getLongs()));
+	}
+
+	/**
+	 * Constructor for the explorer of a map that knows some points
+	 *
+	 * @param map      : the map of the bot
+	 * @param known    : the points that have been seen
+	 * @param frontier : the points on the frontier
+	 */
+	private FrontierExplorer(Grid map, BitGrid known, BitGrid frontier)
+	{
+		this.map = map;
+		this.known = known;
+		this.frontier = frontier;
+		visited = new BitGrid(map);
+		int stride = map.getStride();
+		offsets = new int[]
+		{ -stride, stride, 1, -1 };
+	}
+
+	/**
+	 * Writes what is known about the points into a snapshot of a game
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	protected void writeSnapshot(GameSnapshot snapshot)
+	{
+		snapshot.putLongs(known.getWords());
+		snapshot.putLongs(frontier.getWords());
+	}
+
+	/**
+	 * @param x : the x coordinate of the point
+	 * @param y : the y coordinate of the point
+	 * @return : whether the bot has seen the point
+	 */
+	protected boolean isKnown(int x, int y)
+	{
+		return known.get(x, y);
+	}
+
+	/**
+	 * Marks a point as seen after it was set in the map of the bot
+	 *
+	 * @param x : the x coordinate of the point
+	 * @param y : the y coordinate of the point
+	 */
+	protected void setKnown(int x, int y)
+	{
+		int index = map.index(x, y);
+		known.set(index);
+		// only the point and its neighbours can join or leave the frontier
+		updateFrontier(index);
+		for (int offset : offsets)
+		{
+			updateFrontier(index + offset);
+		}
+	}
+
+	/**
+	 * Works out whether a point is on the frontier
+	 *
+	 * @param index : the point(see Grid.index)
+	 */
+	private void updateFrontier(int index)
+	{
+		// the neighbours along y are next to the point in the bits, so they are
+		// scanned with it in one go
+		boolean onFrontier = known.get(index) && !map.isWallAt(index) && (known.nextClear(index - 1, index + 2) >= 0
+				|| !known.get(index - map.getStride()) || !known.get(index + map.getStride()));
+		if (onFrontier)
+		{
+			frontier.set(index);
+		}
+		else
+		{
+			frontier.clear(index);
+		}
+	}
+
+	/**
+	 * Finds where the bot should head to see more of the map - the nearest
+	 * frontier point it can reach through the seen part of the map(or a point
+	 * next to it that hasn't been seen if the bot is on it). If the whole part of
+	 * the map it can reach has been seen it wanders to a random point of it.
+	 *
+	 * @param x      : x coordinate of the bot
+	 * @param y      : y coordinate of the bot
+	 * @param random : where the random choices come from
+	 * @return : the coordinates of the point or null if the bot can't go anywhere
+	 */
+	protected int[] findTarget(int x, int y, GameRandom random)
+	{
+		int start = map.index(x, y);
+		int head = 0;
+		int tail = 0;
+		visited.set(start);
+		queue[tail++] = start;
+		int target = -1;
+		// with nothing on the frontier(checked a word at a time) the bot only wanders
+		boolean explored = frontier.isEmpty() && known.get(start);
+		while (head < tail && target < 0)
+		{
+			int point = queue[head++];
+			if (!explored && (frontier.get(point) || point == start && !known.get(start)))
+			{
+				if (point != start)
+				{
+					target = point;
+					break;
+				}
+				// the bot is on the frontier so it steps into what it hasn't seen
+				for (int offset : offsets)
+				{
+					if (!known.get(point + offset))
+					{
+						target = point + offset;
+						break;
+					}
+				}
+				if (target >= 0)
+				{
+					break;
+				}
+			}
+			// only the points that have been seen are walked through
+			for (int offset : offsets)
+			{
+				int next = point + offset;
+				if (!visited.get(next) && known.get(next) && !map.isWallAt(next))
+				{
+					visited.set(next);
+					if (tail == queue.length)
+					{
+						queue = Arrays.copyOf(queue, tail * 2);
+					}
+					queue[tail++] = next;
+				}
+			}
+		}
+		// only the visited points are cleared so a search costs as much as it visits
+		for (int i = 0; i < tail; i++)
+		{
+			visited.clear(queue[i]);
+		}
+		if (target < 0 && tail > 1)
+		{
+			// everything that can be reached has been seen
+			target = queue[1 + random.nextInt(tail - 1)];
+		}
+		return target < 0 ? null : new int[]
+		{ map.getX(target), map.getY(target) };
+	}
+}
@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records a game as it is played so it can be played again(see GameReplayer).
+ * Every random choice of a game is made when a player spawns, so the log keeps
+ * where each player spawned and the seed of each bot, then the command of the
+ * human player in every turn and the step each bot took after it. Playing the
+ * commands again gives the same game, and the steps of the bots show where a
+ * game played again stops being the same(e.g. after a bot was changed).
+ * <p>
+ * The log is a header(MAGIC, VERSION and the name of the map file) followed by
+ * events:
+ *
+ * <pre>
+ * SPAWN_HUMAN x:int y:int
+ * SPAWN_BOT difficulty:byte pathfinding:byte x:int y:int seed:long
+ * BOT_VISION radius:short
+ * turn:byte(command | status &lt;&lt; 4) step:byte for every bot that played
+ * </pre>
+ *
+ * The bots play in the order they spawned until one catches the human player,
+ * so the number of steps after a turn is known to whoever plays it again. A
+ * step is the MOVE_* command of the way the bot went or 0 if it stayed. The
+ * events are gathered in a buffer and written to the file when it is full, so
+ * a turn costs a few bytes of memory and no system call.
+ */
+public class GameLog implements Closeable
+{
+	// the first bytes of every log("DLOG") and the version of the format
+	protected static final int MAGIC = 0x444C4F47;
+	protected static final int VERSION = 1;
+
+	// the events that aren't turns(a turn byte is below 0x30)
+	protected static final int SPAWN_HUMAN = 0x40;
+	protected static final int SPAWN_BOT = 0x41;
+	protected static final int BOT_VISION = 0x42;
+
+	// the extension of log files
+	protected static final String EXTENSION = ".dlog";
+
+	// the size of the buffer the events are gathered in
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Constructor for the log of a game, which replaces the file if it exists
+	 *
+	 * @param file    : the file the log is written to
+	 * @param mapName : the name of the map file the game is played on
+	 * @throws IOException if the file can't be written
+	 */
+	public GameLog(Path file, String mapName) throws IOException
+	{
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		byte[] name = mapName.getBytes(StandardCharsets.UTF_8);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putShort((short) name.length);
+		buffer.put(name);
+	}
+
+	/**
+	 * Records where the human player spawned
+	 *
+	 * @param x : the x coordinate of the player
+	 * @param y : the y coordinate of the player
+	 */
+	protected void spawnHuman(int x, int y)
+	{
+		ensureRemaining(9);
+		buffer.put((byte) SPAWN_HUMAN);
+		buffer.putInt(x);
+		buffer.putInt(y);
+	}
+
+	/**
+	 * Records where a bot spawned and what it makes its random choices from
+	 *
+	 * @param difficulty  : the difficulty of the bot
+	 * @param pathfinding : the algorithm the bot finds its routes with
+	 * @param x           : the x coordinate of the bot
+	 * @param y           : the y coordinate of the bot
+	 * @param seed        : the seed of the random choices of the bot
+	 */
+	protected void spawnBot(int difficulty, int pathfinding, int x, int y, long seed)
+	{
+		ensureRemaining(19);
+		buffer.put((byte) SPAWN_BOT);
+		buffer.put((byte) difficulty);
+		buffer.put((byte) pathfinding);
+		buffer.putInt(x);
+		buffer.putInt(y);
+		buffer.putLong(seed);
+	}
+
+	/**
+	 * Records how far the bots see from now on
+	 *
+	 * @param radius : the radius of their field of view(0 for the square LOOK
+	 *               shows)
+	 */
+	protected void botVision(int radius)
+	{
+		ensureRemaining(3);
+		buffer.put((byte) BOT_VISION);
+		buffer.putShort((short) radius);
+	}
+
+	/**
+	 * Records the command of the human player in a turn
+	 *
+	 * @param command : the number of the command(see GameLogic)
+	 * @param status  : what the command did(see GameLogic.executeCommand)
+	 */
+	protected void turn(int command, int status)
+	{
+		ensureRemaining(1);
+		buffer.put((byte) (command | status << 4));
+	}
+
+	/**
+	 * Records the step of a bot after the command of the human player
+	 *
+	 * @param step : the MOVE_* command of the way the bot went or 0 if it stayed
+	 */
+	protected void botStep(int step)
+	{
+		ensureRemaining(1);
+		buffer.put((byte) step);
+	}
+
+	/**
+	 * Works out the step of a player from where it was and where it is
+	 *
+	 * @param oldX : the x coordinate before the step
+	 * @param oldY : the y coordinate before the step
+	 * @param newX : the x coordinate after the step
+	 * @param newY : the y coordinate after the step
+	 * @return : the MOVE_* command of the way it went or 0 if it stayed
+	 */
+	protected static int step(int oldX, int oldY, int newX, int newY)
+	{
+		if (newX < oldX)
+		{
+			return GameLogic.MOVE_NORTH;
+		}
+		else if (newX > oldX)
+		{
+			return GameLogic.MOVE_SOUTH;
+		}
+		else if (newY > oldY)
+		{
+			return GameLogic.MOVE_EAST;
+		}
+		else if (newY < oldY)
+		{
+			return GameLogic.MOVE_WEST;
+		}
+		return 0;
+	}
+
+	/**
+	 * Writes the buffer to the file if it hasn't room for an event
+	 *
+	 * @param bytes : the size of the event
+	 */
+	private void ensureRemaining(int bytes)
+	{
+		if (buffer.remaining() < bytes)
+		{
+			try
+			{
+				flush();
+			} catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Writes the events recorded so far to the file
+	 *
+	 * @throws IOException if the file can't be written
+	 */
+	protected void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the rest of the log and closes the file
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		} finally
+		{
+			channel.close();
+		}
+	}
+}
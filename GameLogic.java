@@ -1,4 +1,10 @@
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Contains the main logic part of the game, as it processes.
@@ -12,9 +18,59 @@ public class GameLogic
 	 */
 	private Map map;
 	private HumanPlayer humanPlayer;
+	// the bots in the order they play and the one whose turn it is
+	private ArrayList<BotPlayer> bots = new ArrayList<>();
 	private BotPlayer botPlayer;
 	// bool to indicate whose turn it is(true for player, false for bot)
 	private boolean playerTurn = true;
+	// the algorithm the bot finds its routes with
+	private int botPathfinding = BotPlayer.INCREMENTAL_PATHFINDING;
+	// how far the bots see when they look(0 for the square LOOK shows, which
+	// walls don't hide)
+	private int botVision;
+	// where the game is recorded(null if it isn't)
+	private GameLog log;
+
+	// the states of a game
+	protected static final int PLAYING = 0;
+	protected static final int WON = 1;
+	protected static final int LOST = 2;
+	protected static final int CAUGHT = 3;
+
+	// the commands of the protocol - the numbers are also the opcodes of the
+	// binary protocol(see BinaryProtocol)
+	protected static final int INVALID_COMMAND = 0;
+	protected static final int MOVE_NORTH = 1;
+	protected static final int MOVE_SOUTH = 2;
+	protected static final int MOVE_EAST = 3;
+	protected static final int MOVE_WEST = 4;
+	protected static final int HELLO = 5;
+	protected static final int GOLD = 6;
+	protected static final int PICKUP = 7;
+	protected static final int LOOK = 8;
+	protected static final int QUIT = 9;
+
+	// what a command did
+	protected static final int SUCCESS = 0;
+	protected static final int FAIL = 1;
+	protected static final int INVALID = 2;
+
+	// the width and height of what LOOK shows
+	protected static final int LOOK_SIZE = 5;
+
+	// the tiles the human player saw with the last LOOK, row by row with 0 for
+	// the points outside the map
+	private byte[] lookWindow = new byte[LOOK_SIZE * LOOK_SIZE];
+
+	// the state of the game, what the human player is told when it ends and
+	// whether it ended in the turn of a bot
+	private int state = PLAYING;
+	private String result;
+	private boolean endedInBotTurn;
+
+	// every random choice of the game(and of its bot) comes from here so a game
+	// can be played again from its seed
+	private GameRandom random;
 
 	/**
 	 * Default constructor
@@ -23,86 +79,340 @@ public class GameLogic
 	{
 		// create a default human player to use for input
 		humanPlayer = new HumanPlayer();
+		random = new GameRandom();
 	}
 
 	/**
-	 * Spawns the human player on a random tile(that isn't wall or gold) and updates
-	 * the map.
+	 * Constructor for a game on an already loaded map
+	 *
+	 * @param map : the map the game is played on
 	 */
-	protected void spawnHumanPlayer()
+	protected GameLogic(Map map)
 	{
-		// random coordinates of the player
-		int randomX = (int) (Math.random() * (map.getMap().length - 1)) + 1;
-		int randomY = (int) (Math.random() * (map.getMap()[0].length - 1)) + 1;
-		/*
-		 * loops until the coordinates are valid the random function is good enough so
-		 * that it will cover all possibilities before long
-		 */
-		while (true)
+		this();
+		this.map = map;
+	}
+
+	/**
+	 * Constructor for a game on an already loaded map that makes the same random
+	 * choices every time it is played with the same seed
+	 *
+	 * @param map  : the map the game is played on
+	 * @param seed : the seed of the random choices
+	 */
+	protected GameLogic(Map map, long seed)
+	{
+		this(map);
+		random = new GameRandom(seed);
+	}
+
+	/**
+	 * Saves the game between two turns into a compact array of bytes(see
+	 * GameSnapshot), e.g. to keep a session over a restart of the server. The
+	 * log of the game isn't saved with it.
+	 *
+	 * @return : the snapshot
+	 */
+	protected byte[] snapshot()
+	{
+		GameSnapshot snapshot = new GameSnapshot();
+		// the journal keeps the changes the bots that follow it haven't seen yet
+		long journalSince = Long.MAX_VALUE;
+		for (BotPlayer bot : bots)
 		{
-			// if the tile is a wall or gold keep looping
-			if (map.getMap()[randomX][randomY] == '#' || map.getMap()[randomX][randomY] == 'G')
+			if (bot.getDifficulty() == 4)
 			{
-				randomX = (int) (Math.random() * (map.getMap().length - 1)) + 1;
-				randomY = (int) (Math.random() * (map.getMap()[0].length - 1)) + 1;
+				journalSince = Math.min(journalSince, bot.getJournalVersion());
 			}
-			else
+		}
+		map.writeSnapshot(snapshot, journalSince);
+		ByteBuffer buffer = snapshot.reserve(16);
+		buffer.putInt(state).putInt(botPathfinding).putInt(botVision).putInt(bots.size());
+		snapshot.putString(result);
+		snapshot.reserve(8).putLong(random.getSeed());
+		buffer = snapshot.reserve(20);
+		buffer.put((byte) (humanPlayer == null ? 0 : 1));
+		if (humanPlayer != null)
+		{
+			buffer.putInt(humanPlayer.getPositionX()).putInt(humanPlayer.getPositionY());
+			buffer.put((byte) (humanPlayer.isOnGold() ? 1 : 0)).put((byte) (humanPlayer.isOnExit() ? 1 : 0));
+			buffer.putInt(humanPlayer.getGold());
+		}
+		for (BotPlayer bot : bots)
+		{
+			bot.writeSnapshot(snapshot);
+		}
+		return snapshot.toByteArray();
+	}
+
+	/**
+	 * Makes the game a snapshot was taken of. It goes on making the same random
+	 * choices as the game would have.
+	 *
+	 * @param bytes : the snapshot(see snapshot)
+	 * @return : the game
+	 * @throws IllegalArgumentException if the bytes aren't a snapshot
+	 */
+	protected static GameLogic restore(byte[] bytes)
+	{
+		try
+		{
+			GameSnapshot snapshot = new GameSnapshot(bytes);
+			GameLogic game = new GameLogic(Map.readSnapshot(snapshot), 0);
+			ByteBuffer buffer = snapshot.getBuffer();
+			game.state = buffer.getInt();
+			game.botPathfinding = buffer.getInt();
+			game.botVision = buffer.getInt();
+			int botCount = buffer.getInt();
+			game.result = snapshot.getString();
+			game.random = new GameRandom(buffer.getLong());
+			if (buffer.get() != 0)
 			{
-				// if the coordinates are valid
-				// check whether player is on exit tile
-				boolean isOnExit = false;
-				if (map.getMap()[randomX][randomY] == 'E')
-				{
-					isOnExit = true;
-				}
-				// create a player object with the new coordinates
-				humanPlayer = new HumanPlayer(randomX, randomY, isOnExit);
-				map.setMapPoint(randomX, randomY, 'P');
-				return;
+				int x = buffer.getInt();
+				int y = buffer.getInt();
+				boolean isOnGold = buffer.get() != 0;
+				game.humanPlayer = new HumanPlayer(x, y, buffer.get() != 0);
+				game.humanPlayer.setIsOnGold(isOnGold);
+				game.humanPlayer.setGold(buffer.getInt());
+			}
+			for (int i = 0; i < botCount; i++)
+			{
+				game.botPlayer = new BotPlayer(snapshot, game.map);
+				game.bots.add(game.botPlayer);
 			}
+			return game;
+		} catch (BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("the snapshot ends too soon", e);
+		}
+	}
+
+	/**
+	 * @return : a game that goes on from where this one is on its own(e.g. to try
+	 *         out moves before they are played)
+	 */
+	protected GameLogic copy()
+	{
+		return restore(snapshot());
+	}
+
+	/**
+	 * @return : the map the game is played on
+	 */
+	protected Map getMap()
+	{
+		return map;
+	}
+
+	/**
+	 * @return : the human player
+	 */
+	protected HumanPlayer getHumanPlayer()
+	{
+		return humanPlayer;
+	}
+
+	/**
+	 * @return : PLAYING or how the game ended(WON, LOST or CAUGHT)
+	 */
+	protected int getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return : what the human player is told about how the game ended(null while
+	 *         it is played)
+	 */
+	protected String getResult()
+	{
+		return result;
+	}
+
+	/**
+	 * @return : whether the game has ended
+	 */
+	protected boolean isGameOver()
+	{
+		return state != PLAYING;
+	}
+
+	/**
+	 * Spawns the human player on a random tile(that isn't wall, gold or a bot) and
+	 * updates the map.
+	 *
+	 * @throws IllegalStateException if there is no such tile
+	 */
+	protected void spawnHumanPlayer()
+	{
+		// the tile is picked from the ones that fit so nothing is tried twice
+		int cell = map.getSpawnIndex().sample(SpawnIndex.HUMAN_TILES, random);
+		if (cell < 0)
+		{
+			throw new IllegalStateException("There is no tile to spawn the human player on");
+		}
+		int columns = map.getGrid().getColumns();
+		spawnHumanPlayer(cell / columns, cell % columns);
+	}
+
+	/**
+	 * Spawns the human player on a specific tile and updates the map.
+	 *
+	 * @param x : the x coordinate of the player
+	 * @param y : the y coordinate of the player
+	 */
+	protected void spawnHumanPlayer(int x, int y)
+	{
+		// check whether player is on exit tile
+		boolean isOnExit = false;
+		if (map.getMapPoint(x, y) == 'E')
+		{
+			isOnExit = true;
+		}
+		// create a player object with the new coordinates
+		humanPlayer = new HumanPlayer(x, y, isOnExit);
+		map.setMapPoint(x, y, 'P');
+		if (log != null)
+		{
+			log.spawnHuman(x, y);
 		}
 	}
 
 	/**
-	 * Spawns the player on a random tile(that isn't wall or gold) and updates the
+	 * Spawns a bot on a random tile(that isn't wall or a player) and updates the
 	 * map.
 	 *
 	 * @param : the difficulty of the bot
-	 * 
+	 * @throws IllegalStateException if there is no such tile
 	 */
 	protected void spawnBot(int difficulty)
 	{
-		// random coordinates of the bot
-		int randomX = (int) (Math.random() * (map.getMap().length - 1)) + 1;
-		int randomY = (int) (Math.random() * (map.getMap()[0].length - 1)) + 1;
-		// loops until the coordinates are valid
-		while (true)
+		int cell = map.getSpawnIndex().sample(SpawnIndex.BOT_TILES, random);
+		if (cell < 0)
 		{
-			// if the tile is a wall or human player keep looping
-			if (map.getMapPoint(randomX, randomY) == '#' || map.getMapPoint(randomX, randomY) == 'P')
-			{
-				randomX = (int) (Math.random() * (map.getMap().length - 1)) + 1;
-				randomY = (int) (Math.random() * (map.getMap()[0].length - 1)) + 1;
-			}
-			else
-			{
-				// check whether bot in os gold or exit
-				boolean isOnExit = false;
-				boolean isOnGold = false;
-				if (map.getMapPoint(randomX, randomY) == 'E')
-				{
-					isOnExit = true;
-				}
-				else if (map.getMapPoint(randomX, randomY) == 'G')
-				{
-					isOnGold = true;
-				}
-				// spawn bot with the new attributes
-				botPlayer = new BotPlayer(randomX, randomY, isOnExit, isOnGold, difficulty, map.getMap());
-				map.setMapPoint(randomX, randomY, 'B');
-				return;
-			}
+			throw new IllegalStateException("There is no tile to spawn a bot on");
 		}
+		int columns = map.getGrid().getColumns();
+		spawnBot(difficulty, cell / columns, cell % columns);
+	}
+
+	/**
+	 * Spawns bots on different random tiles(that aren't wall or a player) and
+	 * updates the map. They play one after the other in the bot turn.
+	 *
+	 * @param difficulty : the difficulty of the bots
+	 * @param count      : how many bots are spawned
+	 * @return : how many bots were spawned - fewer than count if there aren't
+	 *         enough tiles
+	 */
+	protected int spawnBots(int difficulty, int count)
+	{
+		int[] cells = map.getSpawnIndex().sample(SpawnIndex.BOT_TILES, count, random);
+		int columns = map.getGrid().getColumns();
+		for (int cell : cells)
+		{
+			spawnBot(difficulty, cell / columns, cell % columns);
+		}
+		return cells.length;
+	}
+
+	/**
+	 * Spawns the bot on a specific tile and updates the map.
+	 *
+	 * @param difficulty : the difficulty of the bot
+	 * @param x          : the x coordinate of the bot
+	 * @param y          : the y coordinate of the bot
+	 */
+	protected void spawnBot(int difficulty, int x, int y)
+	{
+		spawnBot(difficulty, x, y, random.nextLong());
+	}
+
+	/**
+	 * Spawns the bot on a specific tile with its own random choices and updates
+	 * the map.
+	 *
+	 * @param difficulty : the difficulty of the bot
+	 * @param x          : the x coordinate of the bot
+	 * @param y          : the y coordinate of the bot
+	 * @param seed       : the seed of the random choices of the bot
+	 */
+	protected void spawnBot(int difficulty, int x, int y, long seed)
+	{
+		// check whether bot in os gold or exit
+		boolean isOnExit = false;
+		boolean isOnGold = false;
+		if (map.getMapPoint(x, y) == 'E')
+		{
+			isOnExit = true;
+		}
+		else if (map.getMapPoint(x, y) == 'G')
+		{
+			isOnGold = true;
+		}
+		// spawn bot with the new attributes
+		botPlayer = new BotPlayer(x, y, isOnExit, isOnGold, difficulty, map, botPathfinding);
+		// the bot has a seed of its own so a log of the game can give it the same
+		// random choices however the game spawned it
+		botPlayer.setRandom(new GameRandom(seed));
+		if (difficulty == 4)
+		{
+			// the bot knows the map as it is now and follows the changes from here
+			botPlayer.setJournalVersion(map.getJournal().getVersion());
+		}
+		bots.add(botPlayer);
+		map.setMapPoint(x, y, 'B');
+		if (log != null)
+		{
+			log.spawnBot(difficulty, botPathfinding, x, y, seed);
+		}
+	}
+
+	/**
+	 * Sets the algorithm bots spawned from now on find their routes with. Jump
+	 * point search is the fastest on open maps, the incremental one when the bot
+	 * keeps replanning.
+	 *
+	 * @param pathfinding : one of the BotPlayer *_PATHFINDING constants
+	 */
+	protected void setBotPathfinding(int pathfinding)
+	{
+		botPathfinding = pathfinding;
+	}
+
+	/**
+	 * Sets how the bots see when they look - with a field of view of some radius
+	 * walls hide what is behind them
+	 *
+	 * @param radius : how far the bots see(1 to FieldOfView.MAX_RADIUS) or 0 for
+	 *               the square LOOK shows
+	 */
+	protected void setBotVision(int radius)
+	{
+		botVision = radius;
+		if (log != null)
+		{
+			log.botVision(radius);
+		}
+	}
+
+	/**
+	 * Records the game from now on - it has to be set before the players spawn
+	 * for the game to be played again from the log
+	 *
+	 * @param log : where the game is recorded(null to stop recording it)
+	 */
+	protected void setLog(GameLog log)
+	{
+		this.log = log;
+	}
+
+	/**
+	 * @return : the bots in the order they play
+	 */
+	protected List<BotPlayer> getBots()
+	{
+		return Collections.unmodifiableList(bots);
 	}
 
 	/**
@@ -113,32 +423,133 @@ public class GameLogic
 	 */
 	protected String processCommand(String command)
 	{
-		/*
-		 * Processes the command if it follows the protocol strictly - execute the
-		 * corresponding method if it doesn't the answer is invalid and player loses a
-		 * turn
-		 */
+		int code = parseCommand(command);
+		return getAnswer(code, executeCommand(code));
+	}
+
+	/**
+	 * @param command : the input of the human player
+	 * @return : the number of the command(INVALID_COMMAND if it isn't one)
+	 */
+	protected static int parseCommand(String command)
+	{
+		// the command has to follow the protocol strictly
 		switch (command)
 		{
 		case "MOVE N":
-			return move(humanPlayer.getPositionX() - 1, humanPlayer.getPositionY());
+			return MOVE_NORTH;
 		case "MOVE S":
-			return move(humanPlayer.getPositionX() + 1, humanPlayer.getPositionY());
+			return MOVE_SOUTH;
 		case "MOVE E":
-			return move(humanPlayer.getPositionX(), humanPlayer.getPositionY() + 1);
+			return MOVE_EAST;
 		case "MOVE W":
-			return move(humanPlayer.getPositionX(), humanPlayer.getPositionY() - 1);
+			return MOVE_WEST;
 		case "HELLO":
-			return hello();
+			return HELLO;
 		case "GOLD":
-			return gold();
+			return GOLD;
 		case "PICKUP":
-			return pickup();
+			return PICKUP;
 		case "LOOK":
-			look(humanPlayer.getPositionX(), humanPlayer.getPositionY());
-			return "";
+			return LOOK;
 		case "QUIT":
+			return QUIT;
+		default:
+			return INVALID_COMMAND;
+		}
+	}
+
+	/**
+	 * Executes a command of the human player
+	 *
+	 * @param command : the number of the command
+	 * @return : SUCCESS, FAIL(e.g. a move into a wall) or INVALID if it isn't a
+	 *         command - the player loses the turn then
+	 */
+	protected int executeCommand(int command)
+	{
+		if (!GameMetrics.ENABLED)
+		{
+			return runCommand(command);
+		}
+		long start = System.nanoTime();
+		try
+		{
+			return runCommand(command);
+		} finally
+		{
+			GameMetrics.COMMAND.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Executes a command of the human player without timing it(see executeCommand)
+	 *
+	 * @param command : the number of the command
+	 * @return : what the command did
+	 */
+	private int runCommand(int command)
+	{
+		switch (command)
+		{
+		case MOVE_NORTH:
+			return move(humanPlayer.getPositionX() - 1, humanPlayer.getPositionY());
+		case MOVE_SOUTH:
+			return move(humanPlayer.getPositionX() + 1, humanPlayer.getPositionY());
+		case MOVE_EAST:
+			return move(humanPlayer.getPositionX(), humanPlayer.getPositionY() + 1);
+		case MOVE_WEST:
+			return move(humanPlayer.getPositionX(), humanPlayer.getPositionY() - 1);
+		case HELLO:
+		case GOLD:
+			// they only ask for something
+			return SUCCESS;
+		case PICKUP:
+			return pickup();
+		case LOOK:
+			look(humanPlayer.getPositionX(), humanPlayer.getPositionY());
+			return SUCCESS;
+		case QUIT:
 			quitGame();
+			return SUCCESS;
+		default:
+			return INVALID;
+		}
+	}
+
+	/**
+	 * @param command : the number of the command that was executed
+	 * @param status  : what it did
+	 * @return : the answer of the text protocol to it - how the game ended if it
+	 *         has ended
+	 */
+	private String getAnswer(int command, int status)
+	{
+		return state != PLAYING ? result : getCommandAnswer(command, status);
+	}
+
+	/**
+	 * @param command : the number of the command that was executed
+	 * @param status  : what it did
+	 * @return : the answer of the text protocol to it, even if the game has ended
+	 */
+	private String getCommandAnswer(int command, int status)
+	{
+		switch (command)
+		{
+		case MOVE_NORTH:
+		case MOVE_SOUTH:
+		case MOVE_EAST:
+		case MOVE_WEST:
+			return status == SUCCESS ? "SUCCESS" : "FAIL";
+		case HELLO:
+			return hello();
+		case GOLD:
+			return gold();
+		case PICKUP:
+			return (status == SUCCESS ? "SUCCESS" : "FAIL") + ". Gold owned: " + humanPlayer.getGold();
+		case LOOK:
+			return getLookText();
 		default:
 			return "Invalid";
 		}
@@ -168,56 +579,106 @@ public class GameLogic
 	 * Processes the player's pickup command, updating the map and the player's gold
 	 * amount.
 	 *
-	 * @return If the player successfully picked-up gold or failed.
+	 * @return SUCCESS if the player picked-up gold or FAIL.
 	 */
-	protected String pickup()
+	protected int pickup()
 	{
 		if (humanPlayer.isOnGold())
 		{
 			humanPlayer.increaseGold();
 			humanPlayer.setIsOnGold(false);
-			return "SUCCESS. Gold owned: " + humanPlayer.getGold();
+			map.removeGold(humanPlayer.getPositionX(), humanPlayer.getPositionY());
+			return SUCCESS;
 		}
 		else
 		{
-			return "FAIL. Gold owned: " + humanPlayer.getGold();
+			return FAIL;
 		}
 	}
 
 	/**
-	 * Displays whether the human player wins or not and quits the game, shutting
-	 * down the application.
+	 * Ends the game with whether the human player wins or not.
+	 *
+	 * @return : WIN or LOSE
 	 */
-	protected void quitGame()
+	protected String quitGame()
 	{
 		// if the 2 conditions are met(human player is on exit and has enough gold) he
 		// wins
 		if (humanPlayer.isOnExit() && humanPlayer.getGold() >= map.getGoldRequired())
 		{
-			System.out.println("WIN. CONGRATULATION YOU ARE THE BEST!");
-			System.exit(0);
+			return endGame(WON, "WIN. CONGRATULATION YOU ARE THE BEST!");
 		}
 		else
 		{
-			System.out.println("LOSE");
-			System.exit(0);
+			return endGame(LOST, "LOSE");
 		}
 	}
 
 	/**
-	 * Prints the 5x5 segment of the map around the player or updates the bot map
+	 * Ends the game - no more turns are played after it
+	 *
+	 * @param newState : how the game ended
+	 * @param message  : what the human player is told
+	 * @return : the message
+	 */
+	private String endGame(int newState, String message)
+	{
+		state = newState;
+		result = message;
+		endedInBotTurn = !playerTurn;
+		return message;
+	}
+
+	/**
+	 * Stores the 5x5 segment of the map around the player or updates the bot map
 	 * 
 	 * @param x : the x coordinate of player(bot or human)
 	 * @param y : the y coordinate of player(bot or human)
 	 */
 	protected void look(int x, int y)
 	{
+		if (!GameMetrics.ENABLED)
+		{
+			lookFrom(x, y);
+			return;
+		}
+		long start = System.nanoTime();
+		try
+		{
+			lookFrom(x, y);
+		} finally
+		{
+			GameMetrics.LOOK.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Looks without timing it(see look)
+	 *
+	 * @param x : the x coordinate of player(bot or human)
+	 * @param y : the y coordinate of player(bot or human)
+	 */
+	private void lookFrom(int x, int y)
+	{
+		if (!playerTurn && botVision > 0)
+		{
+			// what the bot sees is worked out once for each point it looks from
+			botPlayer.see(map.getFieldOfView().getVisible(x, y, botVision), map.getGrid());
+			return;
+		}
 		// determine the boundaries(if player is on the edge the boundaries will be 4x4
 		// and not 5x5)
+		Grid grid = map.getGrid();
 		int beginX = Math.max(x - 2, 0);
-		int endX = Math.min(x + 2, map.getMap().length - 1);
+		int endX = Math.min(x + 2, grid.getRows() - 1);
 		int beginY = Math.max(y - 2, 0);
-		int endY = Math.min(y + 2, map.getMap()[0].length - 1);
+		int endY = Math.min(y + 2, grid.getColumns() - 1);
+		if (playerTurn)
+		{
+			// the points outside the map stay 0
+			Arrays.fill(lookWindow, (byte) 0);
+		}
 
 		// loop through each of the elements in the segment around the player
 		for (int i = beginX; i <= endX; i++)
@@ -225,23 +686,54 @@ public class GameLogic
 			for (int j = beginY; j <= endY; j++)
 			{
 				/*
-				 * If it's the player's turn print it if it's the bot's turn update the bot
-				 * map(in the algorithm)
+				 * If it's the player's turn store it for the answer if it's the bot's turn
+				 * update the bot map(in the algorithm)
 				 */
 				if (playerTurn)
 				{
-					System.out.print(map.getMapPoint(i, j));
+					lookWindow[(i - x + 2) * LOOK_SIZE + j - y + 2] = (byte) grid.get(i, j);
 				}
 				else
 				{
-					botPlayer.setBotMapPoint(i, j, map.getMapPoint(i, j));
+					botPlayer.setBotMapPoint(i, j, grid.get(i, j));
 				}
 			}
-			if (playerTurn)
+		}
+	}
+
+	/**
+	 * @return : the tiles the human player saw with the last LOOK, row by row with
+	 *         0 for the points outside the map(LOOK_SIZE x LOOK_SIZE, it can only be
+	 *         read)
+	 */
+	protected byte[] getLookWindow()
+	{
+		return lookWindow;
+	}
+
+	/**
+	 * @return : the rows of the segment seen with the last LOOK(only the points in
+	 *         the map, each row ending with a new line)
+	 */
+	private String getLookText()
+	{
+		StringBuilder segment = new StringBuilder(LOOK_SIZE * (LOOK_SIZE + 1));
+		for (int i = 0; i < LOOK_SIZE; i++)
+		{
+			int rowStart = segment.length();
+			for (int j = 0; j < LOOK_SIZE; j++)
 			{
-				System.out.println();
+				if (lookWindow[i * LOOK_SIZE + j] != 0)
+				{
+					segment.append((char) lookWindow[i * LOOK_SIZE + j]);
+				}
+			}
+			if (segment.length() > rowStart)
+			{
+				segment.append('\n');
 			}
 		}
+		return segment.toString();
 	}
 
 	/**
@@ -249,20 +741,44 @@ public class GameLogic
 	 * 
 	 * @param newX : the new x coordinate of the player
 	 * @param newY : the new y coordinate of the player
-	 * @return : Protocol if success or fail.
+	 * @return : SUCCESS or FAIL(the game ends if the human player is caught)
+	 */
+	protected int move(int newX, int newY)
+	{
+		if (!GameMetrics.ENABLED)
+		{
+			return moveTo(newX, newY);
+		}
+		long start = System.nanoTime();
+		try
+		{
+			return moveTo(newX, newY);
+		} finally
+		{
+			GameMetrics.MOVE.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Moves without timing it(see move)
+	 *
+	 * @param newX : the new x coordinate of the player
+	 * @param newY : the new y coordinate of the player
+	 * @return : SUCCESS or FAIL
 	 */
-	protected String move(int newX, int newY)
+	private int moveTo(int newX, int newY)
 	{
-		// if the human player has been caught he loses and game quits
-		if (map.getMapPoint(newX, newY) == 'B' || map.getMapPoint(newX, newY) == 'P')
+		char tile = map.getMapPoint(newX, newY);
+		// if the human player has been caught he loses and game ends
+		if (tile == 'P' || tile == 'B' && playerTurn)
 		{
-			System.out.println("LOSE. YOU HAVE BEEN CAUGHT.");
-			System.exit(0);
+			endGame(CAUGHT, "LOSE. YOU HAVE BEEN CAUGHT.");
+			return FAIL;
 		}
-		// if the new location is a wall the move fails
-		if (map.getMapPoint(newX, newY) == '#')
+		// if the new location is a wall(or another bot in the bot turn) the move fails
+		if (tile == '#' || tile == 'B')
 		{
-			return "FAIL";
+			return FAIL;
 		}
 		else
 		{
@@ -275,7 +791,7 @@ public class GameLogic
 			{
 				movePlayer(newX, newY, botPlayer);
 			}
-			return "SUCCESS";
+			return SUCCESS;
 		}
 	}
 
@@ -306,22 +822,17 @@ public class GameLogic
 
 		// determine whether the the new location is gold or exit and update the player
 		// attributes
-		if (map.getMapPoint(newX, newY) == 'G')
+		char tile = map.getMapPoint(newX, newY);
+		if (tile == 'G')
 		{
 			player.setIsOnGold(true);
 		}
-		if (map.getMapPoint(newX, newY) == 'E')
+		if (tile == 'E')
 		{
 			player.setIsOnExit(true);
 		}
 		// set the new location to the player representation
 		map.setMapPoint(newX, newY, player.getMapRepresentation());
-		// if the difficulty is 4 the bot sees every human player move and is updated
-		// for it
-		if (botPlayer.getDifficulty() == 4 && playerTurn)
-		{
-			botPlayer.setBotMapPoint(newX, newY, 'P');
-		}
 		if (!playerTurn)
 		{
 			botPlayer.setBotMapPoint(newX, newY, 'B');
@@ -332,9 +843,135 @@ public class GameLogic
 	}
 
 	/**
-	 * Executes the bot turn
+	 * Plays a whole turn - the human player command followed by the bot turn
+	 *
+	 * @param command : the input of the human player
+	 * @return : the answer to the human player command or how the game ended if it
+	 *         ended in this turn(or before it)
+	 */
+	protected String playTurn(String command)
+	{
+		if (state != PLAYING)
+		{
+			return result;
+		}
+		int code = parseCommand(command);
+		return getAnswer(code, playTurn(code));
+	}
+
+	/**
+	 * Plays a whole turn without making the answer - the human player command
+	 * followed by the bot turn
+	 *
+	 * @param command : the number of the human player command
+	 * @return : what the command did(see executeCommand) or INVALID if the game
+	 *         has ended before the turn
+	 */
+	protected int playTurn(int command)
+	{
+		if (!GameMetrics.ENABLED)
+		{
+			return playWholeTurn(command);
+		}
+		long start = System.nanoTime();
+		long allocated = GameMetrics.allocatedBytes();
+		int replans = getReplans();
+		try
+		{
+			return playWholeTurn(command);
+		} finally
+		{
+			GameMetrics.TURN.record(System.nanoTime() - start);
+			GameMetrics.REPLANS.record(getReplans() - replans);
+			if (allocated >= 0)
+			{
+				GameMetrics.ALLOCATED.record(GameMetrics.allocatedBytes() - allocated);
+			}
+		}
+	}
+
+	/**
+	 * @return : the routes the bots have found so far
+	 */
+	private int getReplans()
+	{
+		int replans = 0;
+		for (BotPlayer bot : bots)
+		{
+			replans += bot.getReplans();
+		}
+		return replans;
+	}
+
+	/**
+	 * Plays a whole turn without timing it(see playTurn)
+	 *
+	 * @param command : the number of the human player command
+	 * @return : what the command did
+	 */
+	private int playWholeTurn(int command)
+	{
+		if (state != PLAYING)
+		{
+			return INVALID;
+		}
+		// execute the human player turn
+		int status = executeCommand(command);
+		if (log != null)
+		{
+			// anything that isn't a command is recorded as the invalid one, which it
+			// plays like
+			log.turn(command >= 0 && command <= QUIT ? command : INVALID_COMMAND, status);
+		}
+		if (state == PLAYING)
+		{
+			playerTurn = false;
+			// execute the turn of each bot until one catches the human player
+			for (int i = 0; i < bots.size() && state == PLAYING; i++)
+			{
+				botPlayer = bots.get(i);
+				if (botPlayer.getDifficulty() == 4)
+				{
+					// it sees every change of the map since its last turn
+					botPlayer.follow(map.getJournal(), map.getGrid());
+				}
+				int x = botPlayer.getPositionX();
+				int y = botPlayer.getPositionY();
+				botTurn();
+				if (log != null)
+				{
+					log.botStep(GameLog.step(x, y, botPlayer.getPositionX(), botPlayer.getPositionY()));
+				}
+			}
+			playerTurn = true;
+		}
+		return status;
+	}
+
+	/**
+	 * Executes the turn of the bot whose turn it is
 	 */
 	protected void botTurn()
+	{
+		if (!GameMetrics.ENABLED)
+		{
+			playBotTurn();
+			return;
+		}
+		long start = System.nanoTime();
+		try
+		{
+			playBotTurn();
+		} finally
+		{
+			GameMetrics.BOT_TURN.record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Executes the turn of the bot without timing it(see botTurn)
+	 */
+	private void playBotTurn()
 	{
 		int newCoordinates[];// temporary variable for the new coordinates of the bot
 		if (botPlayer.getDifficulty() == 3)
@@ -342,7 +979,11 @@ public class GameLogic
 			// if the bot difficulty is 3 - it looks each turn and then moves
 			look(botPlayer.getPositionX(), botPlayer.getPositionY());
 			newCoordinates = botPlayer.getNextPoint();
-			move(newCoordinates[0], newCoordinates[1]);
+			// if the bot has nowhere to go it waits
+			if (newCoordinates != null)
+			{
+				move(newCoordinates[0], newCoordinates[1]);
+			}
 		}
 		else
 		{
@@ -363,7 +1004,7 @@ public class GameLogic
 					move(newCoordinates[0], newCoordinates[1]);
 				}
 			}
-			else
+			else if (newCoordinates != null)
 			{
 				// if the difficulty is 1 or 4 they move every turn without looking
 				move(newCoordinates[0], newCoordinates[1]);
@@ -372,14 +1013,35 @@ public class GameLogic
 	}
 
 	/**
-	 * Main method in the code. The program starts from here
+	 * Main method in the code. The program starts from here - with the argument
+	 * -watch the whole map is drawn on the terminal after every turn
 	 */
 	public static void main(String[] args)
 	{
+		boolean watch = args.length > 0 && args[0].equals("-watch");
 		// First create a simple menu for the game
 		System.out.println("Welcome to Dungeons of Doom\n");
 		System.out.println("Please select a map. You can choose from these:");
-		System.out.println("Bridges of Doom\nChristmas Cane\nMaze of Doom\nMerry Christmas\nTiny Map\nTest Map");
+		// the maps are loaded once and every game gets a copy of one
+		MapRepository repository = new MapRepository();
+		try
+		{
+			for (String name : repository.getMapNames())
+			{
+				try
+				{
+					MapHeader header = repository.getHeader(name);
+					System.out.println(name + " (" + header.getRows() + "x" + header.getColumns() + ", win "
+							+ header.getGoldRequired() + ")");
+				} catch (IOException e)
+				{
+					// a file that isn't a map is left out
+				}
+			}
+		} catch (IOException e)
+		{
+			System.err.println("The maps can't be listed(" + e.getMessage() + ")");
+		}
 		System.out.println("or you can type the name of a custom map you have created.");
 
 		GameLogic logic = new GameLogic();
@@ -390,20 +1052,16 @@ public class GameLogic
 			try
 			{
 				String line = logic.humanPlayer.getInputFromConsole();
-				logic.map = new Map(line);
+				logic.map = repository.newGame(line);
 				break;
+			} catch (MapFormatException e)
+			{
+				// if the file structure is wrong say where
+				System.err.println("Wrong file structure(" + e.getMessage() + "). Try again:");
 			} catch (IOException e)
 			{
 				// if there is no such file name in the directory
 				System.err.println("Wrong file name. Try again:");
-			} catch (IndexOutOfBoundsException e)
-			{
-				// if the file structure is wrong
-				System.err.println("Wrong file structure. Try again:");
-			} catch (NumberFormatException e)
-			{
-				// if there is something wrong with the second line in the file
-				System.err.println("Wrong gold win condition. Try again:");
 			}
 		}
 
@@ -436,15 +1094,49 @@ public class GameLogic
 
 		System.out.println();
 		System.out.println(logic.map.getMapName());
+		// the answers are drawn into a buffer and written with one call each turn
+		FrameRenderer renderer = new FrameRenderer(System.out, watch);
 		// loop that continues until the game is over
-		while (true)
+		try
+		{
+			while (true)
+			{
+				if (watch)
+				{
+					renderer.renderMap(logic.map);
+				}
+				int command = parseCommand(logic.humanPlayer.getInputFromConsole());
+				int status = logic.playTurn(command);
+				// a game the command ended is only answered with how it ended - if a bot
+				// ended it in its turn the command is answered first
+				String end = logic.isGameOver() ? logic.result : null;
+				if (end != null && !logic.endedInBotTurn)
+				{
+					renderer.renderLine(end);
+				}
+				else if (command == LOOK && !watch)
+				{
+					renderer.renderLook(logic.lookWindow);
+					System.out.println();
+					if (end != null)
+					{
+						renderer.renderLine(end);
+					}
+				}
+				else
+				{
+					String answer = logic.getCommandAnswer(command, status);
+					renderer.renderLine(end == null ? answer : answer + System.lineSeparator() + end);
+				}
+				if (end != null)
+				{
+					System.exit(0);
+				}
+			}
+		} catch (IOException e)
 		{
-			// execute the human player turn
-			System.out.println(logic.processCommand(logic.humanPlayer.getInputFromConsole()));
-			logic.playerTurn = false;
-			// execute bot player turn
-			logic.botTurn();
-			logic.playerTurn = true;
+			// the console is gone
+			System.exit(1);
 		}
 	}
 }
@@ -0,0 +1,153 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * How long each part of a turn takes and how much work the bots do, counted
+ * in histograms(see Histogram) by every game in the process. The metrics are
+ * only counted when the process runs with -Dmetrics=true - ENABLED is a
+ * constant, so otherwise the JIT compiler removes the code that counts them
+ * and a turn costs what it did before. They can be read through JMX(see
+ * GameMetricsMXBean) and printed every few seconds with -Dmetrics.dump=seconds.
+ */
+public class GameMetrics implements GameMetricsMXBean
+{
+	// whether the metrics are counted
+	protected static final boolean ENABLED = Boolean.getBoolean("metrics");
+
+	// how long the parts of a turn take(in nanoseconds, shown in microseconds)
+	protected static final Histogram TURN = new Histogram("turn", "us", 1000);
+	protected static final Histogram COMMAND = new Histogram("command", "us", 1000);
+	protected static final Histogram LOOK = new Histogram("look", "us", 1000);
+	protected static final Histogram MOVE = new Histogram("move", "us", 1000);
+	protected static final Histogram BOT_TURN = new Histogram("bot turn", "us", 1000);
+	protected static final Histogram NEXT_POINT = new Histogram("next point", "us", 1000);
+	protected static final Histogram PATHFIND = new Histogram("pathfind", "us", 1000);
+
+	// the work the bots do
+	protected static final Histogram EXPANDED_POINTS = new Histogram("expanded points", "points", 1);
+	protected static final Histogram ROUTE_LENGTH = new Histogram("route length", "points", 1);
+	protected static final Histogram REPLANS = new Histogram("replans per turn", "routes", 1);
+	protected static final Histogram ALLOCATED = new Histogram("allocated per turn", "bytes", 1);
+	// 100 for each field of view found in the cache and 0 for each worked out, so
+	// the mean is how many in a hundred are found
+	protected static final Histogram FIELD_OF_VIEW_HITS = new Histogram("field of view hits", "%", 1);
+
+	private static final Histogram[] HISTOGRAMS =
+	{ TURN, COMMAND, LOOK, MOVE, BOT_TURN, NEXT_POINT, PATHFIND, EXPANDED_POINTS, ROUTE_LENGTH, REPLANS,
+			ALLOCATED, FIELD_OF_VIEW_HITS };
+
+	// the name the metrics are registered with in JMX
+	private static final String OBJECT_NAME = "DungeonsOfDoom:type=GameMetrics";
+
+	// counts what each thread allocates(null if the JVM can't)
+	private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+	private static boolean started;
+
+	/**
+	 * @return : the bean that counts what each thread allocates or null if the
+	 *         JVM can't
+	 */
+	private static com.sun.management.ThreadMXBean allocationCounter()
+	{
+		if (!ENABLED || !(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported())
+		{
+			return null;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+
+	/**
+	 * @return : the bytes the current thread has allocated since it started or
+	 *         -1 if the JVM can't count them
+	 */
+	protected static long allocatedBytes()
+	{
+		return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+	/**
+	 * Registers the metrics with JMX and starts printing them every
+	 * -Dmetrics.dump seconds if it is set - it does nothing if the metrics aren't
+	 * counted
+	 */
+	protected static synchronized void start()
+	{
+		if (!ENABLED || started)
+		{
+			return;
+		}
+		started = true;
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new GameMetrics(), new ObjectName(OBJECT_NAME));
+		} catch (JMException e)
+		{
+			System.err.println("Can't register the metrics with JMX(" + e.getMessage() + ")");
+		}
+		int seconds = Integer.getInteger("metrics.dump", 0);
+		if (seconds > 0)
+		{
+			ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task ->
+			{
+				Thread thread = new Thread(task, "GameMetrics dump");
+				thread.setDaemon(true);
+				return thread;
+			});
+			dumper.scheduleAtFixedRate(() -> System.err.print(report()), seconds, seconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * @return : a table with the statistics of every histogram
+	 */
+	protected static String report()
+	{
+		StringBuilder report = new StringBuilder(String.format("%-24s %10s %12s %12s %12s %12s %12s%n", "Metric",
+				"count", "mean", "p50", "p90", "p99", "max"));
+		for (Histogram histogram : HISTOGRAMS)
+		{
+			report.append(histogram).append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+
+	@Override
+	public java.util.Map<String, Histogram.Summary> getHistograms()
+	{
+		LinkedHashMap<String, Histogram.Summary> summaries = new LinkedHashMap<>();
+		for (Histogram histogram : HISTOGRAMS)
+		{
+			summaries.put(histogram.getName(), histogram.getSummary());
+		}
+		return summaries;
+	}
+
+	@Override
+	public String getReport()
+	{
+		return report();
+	}
+
+	@Override
+	public void reset()
+	{
+		for (Histogram histogram : HISTOGRAMS)
+		{
+			histogram.reset();
+		}
+	}
+}
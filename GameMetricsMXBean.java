@@ -0,0 +1,21 @@
+/**
+ * What JMX shows of the metrics of the games(see GameMetrics) - it is found as
+ * DungeonsOfDoom:type=GameMetrics in e.g. jconsole.
+ */
+public interface GameMetricsMXBean
+{
+	/**
+	 * @return : the statistics of every histogram by its name
+	 */
+	public java.util.Map<String, Histogram.Summary> getHistograms();
+
+	/**
+	 * @return : the statistics of every histogram as a table
+	 */
+	public String getReport();
+
+	/**
+	 * Forgets every value counted so far
+	 */
+	public void reset();
+}
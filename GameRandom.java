@@ -0,0 +1,88 @@
+import java.util.SplittableRandom;
+
+/**
+ * The random numbers of a game and of its bots. It is the SplitMix64 generator
+ * of SplittableRandom and gives the same numbers for the same seed, but its
+ * whole state is one number that can be read back(see getSeed), so a game can
+ * be saved in the middle and go on making the same random choices after it is
+ * restored(see GameSnapshot).
+ */
+public class GameRandom
+{
+	// what is added to the seed for every number(the same as SplittableRandom)
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// the state - every number is made from the next value of it
+	private long seed;
+
+	/**
+	 * Constructor for random numbers that are different every time
+	 */
+	public GameRandom()
+	{
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor for the random numbers of a seed
+	 *
+	 * @param seed : the seed(the same seed gives the same numbers)
+	 */
+	public GameRandom(long seed)
+	{
+		this.seed = seed;
+	}
+
+	/**
+	 * @return : the state of the random numbers - a GameRandom made with it gives
+	 *         the numbers this one gives from now on
+	 */
+	protected long getSeed()
+	{
+		return seed;
+	}
+
+	/**
+	 * @return : a random long
+	 */
+	protected long nextLong()
+	{
+		long z = seed += GOLDEN_GAMMA;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @return : a random int
+	 */
+	protected int nextInt()
+	{
+		long z = seed += GOLDEN_GAMMA;
+		z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+		return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+	}
+
+	/**
+	 * @param bound : the number the random int is below(more than 0)
+	 * @return : a random int from 0 to bound - 1, every one as likely
+	 */
+	protected int nextInt(int bound)
+	{
+		if (bound <= 0)
+		{
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r = nextInt();
+		int m = bound - 1;
+		if ((bound & m) == 0)
+		{
+			return r & m;
+		}
+		// the numbers past the last whole multiple of bound are drawn again
+		for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1)
+		{
+		}
+		return r;
+	}
+}
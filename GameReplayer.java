@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Plays a recorded game again(see GameLog) as fast as it can, without a
+ * console or a connection - the players spawn where they did, the bots get
+ * their seeds back and the human player commands are executed in order. What
+ * each command did and the step of each bot are checked against the log, so
+ * a game that doesn't play the same any more(e.g. after a bot was changed) is
+ * found at the turn where it stops being the same.
+ * <p>
+ * Run it from the directory with the map files: java GameReplayer [log
+ * file...]
+ */
+public class GameReplayer
+{
+	// the maps the games are played on
+	private MapRepository repository;
+
+	// the game being played again and the turns played
+	private GameLogic game;
+	private int turns;
+
+	// the turn the game stopped being the same as the log and why(-1 and null if
+	// it is the same)
+	private int divergedTurn = -1;
+	private String divergence;
+
+	/**
+	 * Constructor for the replayer
+	 *
+	 * @param repository : the maps the games are played on
+	 */
+	public GameReplayer(MapRepository repository)
+	{
+		this.repository = repository;
+	}
+
+	/**
+	 * Plays a recorded game again until the end of its log or until it stops
+	 * being the same
+	 *
+	 * @param file : the log of the game
+	 * @return : the game as the log left it
+	 * @throws IOException        if the log or the map can't be read or the log is
+	 *                            broken
+	 * @throws MapFormatException if the structure of the map file is wrong
+	 */
+	protected GameLogic replay(Path file) throws IOException
+	{
+		ByteBuffer log;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		try
+		{
+			if (log.getInt() != GameLog.MAGIC || log.getInt() != GameLog.VERSION)
+			{
+				throw new IOException(file + " isn't a game log of this version");
+			}
+			byte[] name = new byte[log.getShort()];
+			log.get(name);
+			// the seed doesn't matter as every random choice comes from the log
+			game = new GameLogic(repository.newGame(new String(name, StandardCharsets.UTF_8)), 0);
+			turns = 0;
+			divergedTurn = -1;
+			divergence = null;
+			while (log.hasRemaining() && divergence == null)
+			{
+				int event = log.get() & 0xFF;
+				switch (event)
+				{
+				case GameLog.SPAWN_HUMAN:
+					game.spawnHumanPlayer(log.getInt(), log.getInt());
+					break;
+				case GameLog.SPAWN_BOT:
+					int difficulty = log.get();
+					game.setBotPathfinding(log.get());
+					game.spawnBot(difficulty, log.getInt(), log.getInt(), log.getLong());
+					break;
+				case GameLog.BOT_VISION:
+					game.setBotVision(log.getShort());
+					break;
+				default:
+					playTurn(event & 0x0F, event >>> 4, log);
+				}
+			}
+		} catch (BufferUnderflowException e)
+		{
+			throw new IOException(file + " ends in the middle of an event", e);
+		}
+		return game;
+	}
+
+	/**
+	 * Plays a recorded turn again and checks it against the log
+	 *
+	 * @param command : the command of the human player
+	 * @param status  : what the command did in the log
+	 * @param log     : the log, at the steps of the bots
+	 */
+	private void playTurn(int command, int status, ByteBuffer log)
+	{
+		List<BotPlayer> bots = game.getBots();
+		// where each bot is before the turn(the steps are checked against them)
+		int[] positions = new int[bots.size() * 2];
+		for (int i = 0; i < bots.size(); i++)
+		{
+			positions[2 * i] = bots.get(i).getPositionX();
+			positions[2 * i + 1] = bots.get(i).getPositionY();
+		}
+		turns++;
+		int replayed = game.playTurn(command);
+		if (replayed != status)
+		{
+			diverge("the command " + command + " did " + replayed + " instead of " + status);
+			return;
+		}
+		// the bots played in order until one caught the human player, which only
+		// happens in the last turn
+		int steps = game.isGameOver() ? Math.min(bots.size(), log.remaining()) : bots.size();
+		for (int i = 0; i < steps; i++)
+		{
+			int step = log.get();
+			BotPlayer bot = bots.get(i);
+			int replayedStep = GameLog.step(positions[2 * i], positions[2 * i + 1], bot.getPositionX(),
+					bot.getPositionY());
+			if (replayedStep != step)
+			{
+				diverge("bot " + i + " took step " + replayedStep + " instead of " + step);
+				return;
+			}
+		}
+		if (game.isGameOver() && log.hasRemaining())
+		{
+			diverge("the game ended before its log");
+		}
+	}
+
+	/**
+	 * Stops playing the game again where it isn't the same as the log
+	 *
+	 * @param reason : how it isn't the same
+	 */
+	private void diverge(String reason)
+	{
+		divergedTurn = turns;
+		divergence = reason;
+	}
+
+	/**
+	 * @return : the turns played again by the last replay
+	 */
+	protected int getTurns()
+	{
+		return turns;
+	}
+
+	/**
+	 * @return : the turn the last replay stopped being the same as its log or -1
+	 *         if it was the same
+	 */
+	protected int getDivergedTurn()
+	{
+		return divergedTurn;
+	}
+
+	/**
+	 * @return : how the last replay stopped being the same as its log or null if
+	 *         it was the same
+	 */
+	protected String getDivergence()
+	{
+		return divergence;
+	}
+
+	/**
+	 * Plays the logs given again and prints how each game ended
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		GameReplayer replayer = new GameReplayer(new MapRepository());
+		boolean same = true;
+		for (String fileName : args)
+		{
+			long start = System.nanoTime();
+			GameLogic game = replayer.replay(Paths.get(fileName));
+			double seconds = (System.nanoTime() - start) / 1e9;
+			if (replayer.getDivergence() == null)
+			{
+				String result = game.isGameOver() ? game.getResult() : "unfinished";
+				System.out.printf("%s: %s after %d turns(%.0f turns/s)%n", fileName, result, replayer.getTurns(),
+						replayer.getTurns() / seconds);
+			}
+			else
+			{
+				same = false;
+				System.out.printf("%s: not the same at turn %d - %s%n", fileName, replayer.getDivergedTurn(),
+						replayer.getDivergence());
+			}
+		}
+		if (!same)
+		{
+			System.exit(1);
+		}
+	}
+}
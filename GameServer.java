@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts games over TCP - every connection is a game of its own(see
+ * GameSession) that speaks the same text protocol as the console. Each
+ * connection gets a thread that blocks on it, a virtual one when the Java
+ * version has them so thousands of games need no more than a few platform
+ * threads.
+ * <p>
+ * Run it from the directory with the map files: java GameServer [port] [map
+ * name] [EASY|NORMAL|HARD|NIGHTMARE] - with -Dlog=directory every game is
+ * recorded in that directory(see GameLog).
+ */
+public class GameServer
+{
+	// the port the server listens on if no other one is given
+	protected static final int DEFAULT_PORT = 4444;
+
+	// the maps of the games
+	private MapRepository repository;
+
+	// the map and bot difficulty of every game
+	private String mapName;
+	private int difficulty;
+
+	// the directory the games are recorded in(null if they aren't)
+	private Path logDirectory;
+
+	private ServerSocket serverSocket;
+	private Thread acceptor;
+	// when the server started(in ms since the epoch)
+	private long startTime;
+	private ExecutorService sessions;
+
+	// the games being played and the games played since the server started
+	private AtomicInteger activeSessions = new AtomicInteger();
+	private AtomicInteger totalSessions = new AtomicInteger();
+
+	/**
+	 * Constructor for the server
+	 *
+	 * @param repository : the maps of the games
+	 * @param mapName    : the name of the map file every game is played on
+	 * @param difficulty : the difficulty of the bot of every game
+	 */
+	public GameServer(MapRepository repository, String mapName, int difficulty)
+	{
+		this.repository = repository;
+		this.mapName = mapName;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * @param directory : the directory every game is recorded in(null if they
+	 *                  aren't)
+	 */
+	protected void setLogDirectory(Path directory)
+	{
+		logDirectory = directory;
+	}
+
+	/**
+	 * Starts listening for connections
+	 *
+	 * @param port : the port to listen on(0 for any free one)
+	 * @throws IOException        if the port can't be used or the map can't be read
+	 * @throws MapFormatException if the structure of the map file is wrong
+	 */
+	protected void start(int port) throws IOException
+	{
+		// load the map before the first game so a wrong one is found at once
+		repository.getTemplate(mapName);
+		startTime = System.currentTimeMillis();
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(port), 1024);
+		sessions = newThreadPerTaskExecutor();
+		acceptor = new Thread(this::accept, "GameServer acceptor");
+		acceptor.start();
+	}
+
+	/**
+	 * @return : the port the server listens on
+	 */
+	protected int getPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * @return : the number of games being played
+	 */
+	protected int getActiveSessions()
+	{
+		return activeSessions.get();
+	}
+
+	/**
+	 * @return : the number of games started since the server started
+	 */
+	protected int getTotalSessions()
+	{
+		return totalSessions.get();
+	}
+
+	/**
+	 * Stops listening for connections - the games being played go on until they
+	 * end
+	 *
+	 * @throws IOException if the server socket can't be closed
+	 */
+	protected void close() throws IOException
+	{
+		serverSocket.close();
+		sessions.shutdown();
+	}
+
+	/**
+	 * Waits for the server to stop listening
+	 *
+	 * @throws InterruptedException if the thread is interrupted while it waits
+	 */
+	protected void join() throws InterruptedException
+	{
+		acceptor.join();
+	}
+
+	/**
+	 * Accepts connections until the server socket is closed and starts a game for
+	 * each of them
+	 */
+	private void accept()
+	{
+		while (!serverSocket.isClosed())
+		{
+			Socket socket;
+			try
+			{
+				socket = serverSocket.accept();
+			} catch (IOException e)
+			{
+				if (!serverSocket.isClosed())
+				{
+					System.err.println("Can't accept a connection(" + e.getMessage() + ")");
+				}
+				continue;
+			}
+			activeSessions.incrementAndGet();
+			int number = totalSessions.incrementAndGet();
+			GameSession session = new GameSession(socket, repository, mapName, difficulty);
+			if (logDirectory != null)
+			{
+				// the start time of the server keeps the logs of earlier runs
+				session.setLogFile(logDirectory.resolve("game-" + startTime + "-" + number + GameLog.EXTENSION));
+			}
+			sessions.execute(() ->
+			{
+				try
+				{
+					session.run();
+				} finally
+				{
+					activeSessions.decrementAndGet();
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return : an executor that runs every task on a new virtual thread if the
+	 *         Java version has them, otherwise on a new(or idle) platform thread
+	 */
+	protected static ExecutorService newThreadPerTaskExecutor()
+	{
+		try
+		{
+			// looked up at run time so the game still builds and runs on Java 17
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e)
+		{
+			return Executors.newCachedThreadPool(task ->
+			{
+				Thread thread = new Thread(task);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Runs the server until the process is stopped
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		String mapName = args.length > 1 ? args[1] : "Maze of Doom";
+		int difficulty = args.length > 2 ? GameSession.parseDifficulty(args[2]) : 2;
+		if (difficulty < 0)
+		{
+			System.err.println("Unrecognised difficulty " + args[2]);
+			System.exit(1);
+		}
+		GameServer server = new GameServer(new MapRepository(), mapName, difficulty);
+		String logDirectory = System.getProperty("log");
+		if (logDirectory != null)
+		{
+			server.setLogDirectory(Paths.get(logDirectory));
+		}
+		GameMetrics.start();
+		server.start(port);
+		System.out.println("Dungeons of Doom server on port " + server.getPort() + " playing " + mapName);
+		server.join();
+	}
+}
@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * One game played over a connection with the text protocol of the console:
+ * the server sends the name of the map, then the client sends a command per
+ * line(HELLO, GOLD, PICKUP, LOOK, MOVE N/S/E/W or QUIT) and gets the answer
+ * followed by a new line - so the rows of LOOK are followed by an empty line.
+ * When the game ends the result is sent and the connection closed. The line
+ * "BINARY" switches the session to the binary protocol(see BinaryProtocol).
+ * The answers are sent when there are no more commands waiting, so a batch of
+ * commands sent together is answered together.
+ */
+public class GameSession implements Runnable
+{
+	// the longest command that is read(anything longer is cut and so invalid)
+	private static final int MAX_LINE = 256;
+
+	// how long the client has to close the connection after the game ends
+	private static final int CLOSE_TIMEOUT = 5000;
+
+	private Socket socket;
+
+	// where the map of the game comes from
+	private MapRepository repository;
+	private String mapName;
+	private int difficulty;
+
+	// the file the game is recorded in(null if it isn't)
+	private Path logFile;
+
+	/**
+	 * Constructor for the session
+	 *
+	 * @param socket     : the connection to the client
+	 * @param repository : the maps of the games
+	 * @param mapName    : the name of the map file the game is played on
+	 * @param difficulty : the difficulty of the bot
+	 */
+	public GameSession(Socket socket, MapRepository repository, String mapName, int difficulty)
+	{
+		this.socket = socket;
+		this.repository = repository;
+		this.mapName = mapName;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * @param file : the file the game is recorded in(see GameLog) or null if it
+	 *             isn't recorded
+	 */
+	protected void setLogFile(Path file)
+	{
+		logFile = file;
+	}
+
+	/**
+	 * Plays the game until it ends or the client goes away
+	 */
+	@Override
+	public void run()
+	{
+		try (Socket connection = socket; GameLog log = logFile == null ? null : new GameLog(logFile, mapName))
+		{
+			connection.setTcpNoDelay(true);
+			InputStream in = new BufferedInputStream(connection.getInputStream());
+			OutputStream out = new BufferedOutputStream(connection.getOutputStream());
+
+			GameLogic game = new GameLogic(repository.newGame(mapName));
+			game.setLog(log);
+			game.spawnHumanPlayer();
+			game.spawnBot(difficulty);
+			writeLine(out, game.getMap().getMapName());
+			out.flush();
+
+			byte[] line = new byte[MAX_LINE];
+			boolean binary = false;
+			ByteBuffer reply = ByteBuffer.allocate(BinaryProtocol.MAX_REPLY_SIZE);
+			while (!game.isGameOver())
+			{
+				if (binary)
+				{
+					int opcode = in.read();
+					if (opcode < 0)
+					{
+						// the client went away
+						return;
+					}
+					reply.clear();
+					BinaryProtocol.playTurn(game, opcode, reply);
+					out.write(reply.array(), 0, reply.position());
+				}
+				else
+				{
+					int length = readLine(in, line);
+					if (length < 0)
+					{
+						// the client went away
+						return;
+					}
+					if (length == 0)
+					{
+						// empty lines are skipped like in the console
+						continue;
+					}
+					String command = new String(line, 0, length, StandardCharsets.US_ASCII);
+					if (command.equals(BinaryProtocol.SWITCH_COMMAND))
+					{
+						binary = true;
+						writeLine(out, command);
+					}
+					else
+					{
+						writeLine(out, game.playTurn(command));
+					}
+				}
+				if (in.available() == 0)
+				{
+					out.flush();
+				}
+			}
+			out.flush();
+			// closing with unread commands would reset the connection and might lose the
+			// last answers, so they are dropped until the client closes it
+			connection.shutdownOutput();
+			connection.setSoTimeout(CLOSE_TIMEOUT);
+			while (in.read() >= 0)
+			{
+				// drop the commands sent after the game ended
+			}
+		} catch (IOException e)
+		{
+			// a broken connection only ends its own game
+		}
+	}
+
+	/**
+	 * Reads a line(without its end) into a buffer - the rest of a line that
+	 * doesn't fit is skipped
+	 *
+	 * @param in   : where the line is read from
+	 * @param line : the buffer
+	 * @return : the length of the line in the buffer or -1 at the end of the input
+	 * @throws IOException if the line can't be read
+	 */
+	private static int readLine(InputStream in, byte[] line) throws IOException
+	{
+		int length = 0;
+		int c = in.read();
+		if (c < 0)
+		{
+			return -1;
+		}
+		while (c >= 0 && c != '\n')
+		{
+			if (c != '\r' && length < line.length)
+			{
+				line[length++] = (byte) c;
+			}
+			c = in.read();
+		}
+		return length;
+	}
+
+	/**
+	 * Writes a line of the text protocol
+	 *
+	 * @param out  : the connection
+	 * @param text : the line(in ASCII, without its end)
+	 * @throws IOException if the connection is broken
+	 */
+	private static void writeLine(OutputStream out, String text) throws IOException
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			out.write(text.charAt(i));
+		}
+		out.write('\n');
+	}
+
+	/**
+	 * @param difficulty : the name of a difficulty(EASY, NORMAL, HARD or NIGHTMARE)
+	 * @return : the number of the difficulty or -1 if there is no such one
+	 */
+	protected static int parseDifficulty(String difficulty)
+	{
+		switch (difficulty)
+		{
+		case "EASY":
+			return 1;
+		case "NORMAL":
+			return 2;
+		case "HARD":
+			return 3;
+		case "NIGHTMARE":
+			return 4;
+		default:
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The bytes a game in progress is saved into(see GameLogic.snapshot) and
+ * restored from. Each part of the game writes what it can't work out again -
+ * the tiles of the maps, the players, what each bot knows and plans and the
+ * state of the random numbers - while whatever is found from the map(the
+ * indices, the searches of the pathfinders) is made again when it is first
+ * needed. The tiles are kept packed as the grids hold them, so a snapshot is
+ * about the size of the maps in it.
+ */
+public class GameSnapshot
+{
+	// the first bytes of every snapshot("DSNP") and the version of the format
+	protected static final int MAGIC = 0x44534E50;
+	protected static final int VERSION = 1;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * Constructor for an empty snapshot that is written into
+	 */
+	public GameSnapshot()
+	{
+		buffer = ByteBuffer.allocate(4096);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+	}
+
+	/**
+	 * Constructor for a snapshot that is read
+	 *
+	 * @param bytes : the bytes of the snapshot(see toByteArray)
+	 * @throws IllegalArgumentException if they aren't a snapshot of this version
+	 */
+	public GameSnapshot(byte[] bytes)
+	{
+		buffer = ByteBuffer.wrap(bytes);
+		if (bytes.length < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+		{
+			throw new IllegalArgumentException("not a game snapshot of this version");
+		}
+	}
+
+	/**
+	 * Makes room for some bytes to be written
+	 *
+	 * @param bytes : the number of bytes
+	 * @return : the buffer they are written into
+	 */
+	protected ByteBuffer reserve(int bytes)
+	{
+		if (buffer.remaining() < bytes)
+		{
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			bigger.put(buffer.flip());
+			buffer = bigger;
+		}
+		return buffer;
+	}
+
+	/**
+	 * @return : the buffer the snapshot is read from
+	 */
+	protected ByteBuffer getBuffer()
+	{
+		return buffer;
+	}
+
+	/**
+	 * @return : the bytes written so far
+	 */
+	protected byte[] toByteArray()
+	{
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	/**
+	 * @param s : a string(or null)
+	 */
+	protected void putString(String s)
+	{
+		if (s == null)
+		{
+			reserve(4).putInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		reserve(4 + bytes.length).putInt(bytes.length).put(bytes);
+	}
+
+	/**
+	 * @return : the string that was put(or null)
+	 */
+	protected String getString()
+	{
+		int length = buffer.getInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Puts a number that isn't negative in 7 bits a byte, so the small ones take
+	 * one byte
+	 *
+	 * @param value : the number
+	 */
+	protected void putVarInt(int value)
+	{
+		reserve(5);
+		while ((value & ~0x7F) != 0)
+		{
+			buffer.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * @return : the number that was put with putVarInt
+	 */
+	protected int getVarInt()
+	{
+		int value = 0;
+		for (int shift = 0;; shift += 7)
+		{
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0)
+			{
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * @param values : an array of ints
+	 */
+	protected void putInts(int[] values)
+	{
+		reserve(4 + 4 * values.length).putInt(values.length);
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + 4 * values.length);
+	}
+
+	/**
+	 * @return : the array of ints that was put
+	 */
+	protected int[] getInts()
+	{
+		int[] values = new int[buffer.getInt()];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * values.length);
+		return values;
+	}
+
+	/**
+	 * @param values : an array of longs
+	 */
+	protected void putLongs(long[] values)
+	{
+		reserve(4 + 8 * values.length).putInt(values.length);
+		buffer.asLongBuffer().put(values);
+		buffer.position(buffer.position() + 8 * values.length);
+	}
+
+	/**
+	 * @return : the array of longs that was put
+	 */
+	protected long[] getLongs()
+	{
+		long[] values = new long[buffer.getInt()];
+		buffer.asLongBuffer().get(values);
+		buffer.position(buffer.position() + 8 * values.length);
+		return values;
+	}
+
+	/**
+	 * Puts the size, the tiles and the packed points of a grid like a binary map
+	 * file holds them(see Map.writeBinaryMap)
+	 *
+	 * @param grid : the grid
+	 */
+	protected void putGrid(Grid grid)
+	{
+		ByteBuffer cells = grid.getCells();
+		reserve(16 + grid.getTileCount() + cells.remaining());
+		buffer.putInt(grid.getRows()).putInt(grid.getColumns()).putInt(grid.getTileCount());
+		for (int code = 0; code < grid.getTileCount(); code++)
+		{
+			buffer.put((byte) grid.getTile(code));
+		}
+		buffer.putInt(cells.remaining()).put(cells);
+	}
+
+	/**
+	 * @return : a grid like the one that was put
+	 */
+	protected Grid getGrid()
+	{
+		int rows = buffer.getInt();
+		int columns = buffer.getInt();
+		char[] tiles = new char[buffer.getInt()];
+		for (int code = 0; code < tiles.length; code++)
+		{
+			tiles[code] = (char) (buffer.get() & 0xFF);
+		}
+		int length = buffer.getInt();
+		ByteBuffer cells = buffer.slice();
+		cells.limit(length);
+		buffer.position(buffer.position() + length);
+		return new Grid(rows, columns, tiles, cells);
+	}
+}
@@ -0,0 +1,76 @@
+import java.util.SplittableRandom;
+
+/**
+ * An agent that knows the whole map and plays to win - it walks to the nearest
+ * gold until it has enough, then to the nearest exit and quits there. It
+ * never walks through the bot but doesn't run away from it either.
+ */
+public class GreedyAgent implements Agent
+{
+	// the commands that move to the neighbours with the offsets in the same order
+	private static final int[] MOVES =
+	{ GameLogic.MOVE_NORTH, GameLogic.MOVE_SOUTH, GameLogic.MOVE_EAST, GameLogic.MOVE_WEST };
+
+	// the random numbers it chooses a move with when it has nowhere to go
+	private SplittableRandom random;
+
+	/**
+	 * Constructor for the agent
+	 *
+	 * @param random : the random numbers it chooses a move with when it has
+	 *               nowhere to go
+	 */
+	public GreedyAgent(SplittableRandom random)
+	{
+		this.random = random;
+	}
+
+	@Override
+	public int nextCommand(GameLogic game)
+	{
+		HumanPlayer player = game.getHumanPlayer();
+		Map map = game.getMap();
+		boolean enoughGold = player.getGold() >= map.getGoldRequired();
+		if (player.isOnGold())
+		{
+			return GameLogic.PICKUP;
+		}
+		if (enoughGold && player.isOnExit())
+		{
+			return GameLogic.QUIT;
+		}
+		// with nothing left to walk to the whole map would be searched for nothing
+		PointIndex targets = enoughGold ? map.getExitIndex() : map.getGoldIndex();
+		int move = targets.size() == 0 ? -1
+				: firstMove(map.getGrid(), targets, player.getPositionX(), player.getPositionY());
+		return MOVES[move >= 0 ? move : random.nextInt(MOVES.length)];
+	}
+
+	/**
+	 * Finds the first move of the shortest route to the nearest of some points
+	 *
+	 * @param map     : the map
+	 * @param targets : the points
+	 * @param x       : x coordinate of the player
+	 * @param y       : y coordinate of the player
+	 * @return : the index of the move in MOVES or -1 if none of the points can be
+	 *         reached
+	 */
+	private static int firstMove(Grid map, PointIndex targets, int x, int y)
+	{
+		// the bot is walked around, not through
+		int[] nearest = targets.nearestByPath(map, x, y, 1, 'B');
+		int step = nearest.length == 0 ? -1 : targets.firstStepTo(map, nearest[0]);
+		int stride = map.getStride();
+		int[] offsets =
+		{ -stride, stride, 1, -1 };
+		for (int i = 0; i < offsets.length; i++)
+		{
+			if (map.index(x, y) + offsets[i] == step)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
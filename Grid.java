@@ -0,0 +1,596 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The tiles of a map stored in one flat array with half a byte per tile. Each
+ * tile is a code that stands for a char - '#' is code 0 so the zeroed border
+ * of one tile around the map is wall and the neighbours of any point in the map
+ * can be read without checking the bounds. The point (x, y) is stored under the
+ * index (x + 1) * stride + y + 1.
+ * 
+ * The array is split into pages so a copy of a grid can share the pages with
+ * it and only copy the ones it changes(copy on write) - a game on a map that
+ * is already loaded only stores the pages its players walk over.
+ */
+public class Grid
+{
+	// the code of a wall - the border around the map is made of it
+	protected static final int WALL = 0;
+
+	// the tiles every map can have get fixed codes, other chars get the free ones
+	private static final String FIXED_TILES = "#.GEPB";
+
+	// how many different tiles a grid can hold(the number of values of half a byte)
+	private static final int MAX_TILES = 16;
+
+	// the chars a tile can be(printable ASCII)
+	private static final char FIRST_TILE = '!';
+	private static final char LAST_TILE = '~';
+
+	// the bytes in a page(a power of two)
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	// two tiles per byte - the even index in the low half. Byte b is in page
+	// b >> PAGE_SHIFT and only the last page can be shorter than PAGE_SIZE
+	private byte[][] pages;
+
+	// whether a page belongs only to this grid - shared pages are copied before
+	// they are written
+	private boolean[] ownedPages;
+
+	// whether the grid can't be changed any more
+	private boolean frozen;
+
+	// the size of the map and the length of a stored row(including the border)
+	private int rows;
+	private int columns;
+	private int stride;
+
+	// the char of every code and the code of every byte value(-1 if it has none
+	// yet or can't have one)
+	private char[] tiles;
+	private byte[] codes;
+	private int tileCount;
+
+	/**
+	 * Constructor for a grid where every tile is wall
+	 *
+	 * @param rows    : the number of rows
+	 * @param columns : the number of columns
+	 */
+	public Grid(int rows, int columns)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		stride = columns + 2;
+		allocatePages();
+		tiles = new char[MAX_TILES];
+		codes = new byte[256];
+		Arrays.fill(codes, (byte) -1);
+		for (int i = 0; i < FIXED_TILES.length(); i++)
+		{
+			addTile(FIXED_TILES.charAt(i));
+		}
+	}
+
+	/**
+	 * Constructor for a grid with the tiles of a char map
+	 *
+	 * @param map : the char map
+	 */
+	public Grid(char[][] map)
+	{
+		this(map.length, map[0].length);
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				set(i, j, map[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a grid from its packed tiles(e.g. from a binary map file)
+	 *
+	 * @param rows    : the number of rows
+	 * @param columns : the number of columns
+	 * @param tiles   : the char of every code
+	 * @param cells   : the packed tiles as given by getCells()
+	 * @throws IllegalArgumentException if the tiles or the cells can't make a grid
+	 */
+	public Grid(int rows, int columns, char[] tiles, ByteBuffer cells)
+	{
+		this.rows = rows;
+		this.columns = columns;
+		stride = columns + 2;
+		this.tiles = new char[MAX_TILES];
+		codes = new byte[256];
+		Arrays.fill(codes, (byte) -1);
+		if (tiles.length == 0 || tiles[0] != '#')
+		{
+			throw new IllegalArgumentException("the first tile has to be wall");
+		}
+		for (char c : tiles)
+		{
+			if (c < codes.length && codes[c] >= 0)
+			{
+				throw new IllegalArgumentException("the tile '" + c + "' is there twice");
+			}
+			addTile(c);
+		}
+		allocatePages();
+		if (cells.remaining() != getByteCount())
+		{
+			throw new IllegalArgumentException("the tiles don't match the size of the map");
+		}
+		for (byte[] page : pages)
+		{
+			cells.get(page);
+		}
+		// the pathfinders rely on the border to stop them
+		for (int i = -1; i <= rows; i++)
+		{
+			if (!isWall(i, -1) || !isWall(i, columns))
+			{
+				throw new IllegalArgumentException("the border has to be wall");
+			}
+		}
+		for (int j = 0; j < columns; j++)
+		{
+			if (!isWall(-1, j) || !isWall(rows, j))
+			{
+				throw new IllegalArgumentException("the border has to be wall");
+			}
+		}
+	}
+
+	/**
+	 * Constructor for a copy of a grid
+	 *
+	 * @param grid : the grid that is copied
+	 */
+	public Grid(Grid grid)
+	{
+		this(grid, false);
+	}
+
+	/**
+	 * Constructor for a copy of a grid
+	 *
+	 * @param grid  : the grid that is copied
+	 * @param share : whether the copy shares the pages with the grid until one of
+	 *              them changes them
+	 */
+	private Grid(Grid grid, boolean share)
+	{
+		rows = grid.rows;
+		columns = grid.columns;
+		stride = grid.stride;
+		pages = grid.pages.clone();
+		ownedPages = new boolean[pages.length];
+		if (share)
+		{
+			// neither of them can write into the pages any more without copying them
+			Arrays.fill(grid.ownedPages, false);
+		}
+		else
+		{
+			for (int i = 0; i < pages.length; i++)
+			{
+				pages[i] = pages[i].clone();
+			}
+			Arrays.fill(ownedPages, true);
+		}
+		tiles = grid.tiles.clone();
+		codes = grid.codes.clone();
+		tileCount = grid.tileCount;
+	}
+
+	/**
+	 * @return : a copy of the grid that shares its pages with it - each of them
+	 *         copies a page only when it changes it
+	 */
+	protected Grid copyOnWrite()
+	{
+		return new Grid(this, true);
+	}
+
+	/**
+	 * Stops the grid from being changed(e.g. so it can be shared between threads)
+	 * - setting a point throws an IllegalStateException after this
+	 */
+	protected void freeze()
+	{
+		frozen = true;
+		// every write checks a page it doesn't own first
+		Arrays.fill(ownedPages, false);
+	}
+
+	/**
+	 * @return : whether the grid can't be changed
+	 */
+	protected boolean isFrozen()
+	{
+		return frozen;
+	}
+
+	/**
+	 * @return : the number of bytes of tiles the grid holds by itself(the rest it
+	 *         shares with the grid it was copied from)
+	 */
+	protected int getOwnedBytes()
+	{
+		int bytes = 0;
+		for (int i = 0; i < pages.length; i++)
+		{
+			if (ownedPages[i])
+			{
+				bytes += pages[i].length;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return : the number of rows
+	 */
+	protected int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * @return : the number of columns
+	 */
+	protected int getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * @return : the number of different chars in the grid - they have the codes
+	 *         from 0 to this
+	 */
+	protected int getTileCount()
+	{
+		return tileCount;
+	}
+
+	/**
+	 * @param code : the code of a tile
+	 * @return : the char with the code
+	 */
+	protected char getTile(int code)
+	{
+		return tiles[code];
+	}
+
+	/**
+	 * @return : the packed tiles(including the border) that can only be read
+	 */
+	protected ByteBuffer getCells()
+	{
+		if (pages.length == 1)
+		{
+			return ByteBuffer.wrap(pages[0]).asReadOnlyBuffer();
+		}
+		ByteBuffer cells = ByteBuffer.allocate(getByteCount());
+		for (byte[] page : pages)
+		{
+			cells.put(page);
+		}
+		return cells.flip().asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return : the difference between the indices of a point and the one below it
+	 */
+	protected int getStride()
+	{
+		return stride;
+	}
+
+	/**
+	 * @return : the number of indices(including the border) - every index is
+	 *         smaller than it
+	 */
+	protected int getSize()
+	{
+		return (rows + 2) * stride;
+	}
+
+	/**
+	 * @param x : x coordinate of the point(-1 to rows for the border)
+	 * @param y : y coordinate of the point(-1 to columns for the border)
+	 * @return : the index of the point
+	 */
+	protected int index(int x, int y)
+	{
+		return (x + 1) * stride + y + 1;
+	}
+
+	/**
+	 * @param index : the index of a point
+	 * @return : x coordinate of the point
+	 */
+	protected int getX(int index)
+	{
+		return index / stride - 1;
+	}
+
+	/**
+	 * @param index : the index of a point
+	 * @return : y coordinate of the point
+	 */
+	protected int getY(int index)
+	{
+		return index % stride - 1;
+	}
+
+	/**
+	 * @param x : x coordinate of the point
+	 * @param y : y coordinate of the point
+	 * @return : the char of the point
+	 */
+	protected char get(int x, int y)
+	{
+		return tiles[code(index(x, y))];
+	}
+
+	/**
+	 * @param index : the index of a point
+	 * @return : the char of the point
+	 */
+	protected char getAt(int index)
+	{
+		return tiles[code(index)];
+	}
+
+	/**
+	 * @param x : x coordinate of the point(the border counts as wall)
+	 * @param y : y coordinate of the point
+	 * @return : whether the point is a wall
+	 */
+	protected boolean isWall(int x, int y)
+	{
+		return code(index(x, y)) == WALL;
+	}
+
+	/**
+	 * @param index : the index of a point
+	 * @return : whether the point is a wall
+	 */
+	protected boolean isWallAt(int index)
+	{
+		return code(index) == WALL;
+	}
+
+	/**
+	 * Sets a point in the map
+	 *
+	 * @param x : x coordinate of the point
+	 * @param y : y coordinate of the point
+	 * @param c : the new char of the point
+	 * @throws IllegalArgumentException if the grid already holds as many different
+	 *                                  chars as it can
+	 */
+	protected void set(int x, int y, char c)
+	{
+		if (x < 0 || y < 0 || x >= rows || y >= columns)
+		{
+			throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside the map");
+		}
+		setAt(index(x, y), c);
+	}
+
+	/**
+	 * Sets a point in the map
+	 *
+	 * @param index : the index of the point(it can't be on the border)
+	 * @param c     : the new char of the point
+	 * @throws IllegalArgumentException if the grid already holds as many different
+	 *                                  chars as it can
+	 * @throws IllegalStateException    if the grid is frozen
+	 */
+	protected void setAt(int index, char c)
+	{
+		int code = c < codes.length ? codes[c] : -1;
+		if (code < 0)
+		{
+			code = addTile(c);
+		}
+		int shift = (index & 1) << 2;
+		byte[] page = writablePage(index >> 1);
+		int i = (index >> 1) & PAGE_MASK;
+		page[i] = (byte) ((page[i] & ~(0xF << shift)) | (code << shift));
+	}
+
+	/**
+	 * Sets a whole row of the map
+	 *
+	 * @param x   : x coordinate of the row
+	 * @param row : the chars of the row(one byte each)
+	 * @return : -1 or the y coordinate of the first char that isn't a tile or that
+	 *         the grid has no room for(the row is only set up to it)
+	 */
+	protected int setRow(int x, byte[] row)
+	{
+		int index = index(x, 0);
+		int y = 0;
+		// a row can start in the high half of a byte
+		if ((index & 1) == 1)
+		{
+			int code = codeOf(row[0]);
+			if (code < 0)
+			{
+				return 0;
+			}
+			byte[] page = writablePage(index >> 1);
+			int i = (index >> 1) & PAGE_MASK;
+			page[i] = (byte) ((page[i] & 0xF) | (code << 4));
+			y++;
+		}
+		// then whole bytes are written two tiles at a time
+		for (; y + 1 < columns; y += 2)
+		{
+			int low = codeOf(row[y]);
+			int high = codeOf(row[y + 1]);
+			if ((low | high) < 0)
+			{
+				return low < 0 ? y : y + 1;
+			}
+			writablePage((index + y) >> 1)[((index + y) >> 1) & PAGE_MASK] = (byte) (low | (high << 4));
+		}
+		if (y < columns)
+		{
+			int code = codeOf(row[y]);
+			if (code < 0)
+			{
+				return y;
+			}
+			byte[] page = writablePage((index + y) >> 1);
+			int i = ((index + y) >> 1) & PAGE_MASK;
+			page[i] = (byte) ((page[i] & 0xF0) | code);
+		}
+		return -1;
+	}
+
+	/**
+	 * @param c : a char as a byte
+	 * @return : the code of the char(it gets one if it has none yet) or -1 if it
+	 *         isn't a tile or the grid has no room for it
+	 */
+	private int codeOf(byte c)
+	{
+		int code = codes[c & 0xFF];
+		if (code >= 0)
+		{
+			return code;
+		}
+		if (c < FIRST_TILE || c > LAST_TILE || tileCount == MAX_TILES)
+		{
+			return -1;
+		}
+		return addTile((char) c);
+	}
+
+	/**
+	 * @return : a char map with the same tiles
+	 */
+	protected char[][] toCharArray()
+	{
+		char[][] map = new char[rows][columns];
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				map[i][j] = get(i, j);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Drops the rows after the first ones(which have to be all wall so they can
+	 * become the border)
+	 *
+	 * @param newRows : the number of rows that are kept
+	 */
+	protected void trimRows(int newRows)
+	{
+		checkFrozen();
+		rows = newRows;
+		int bytes = getByteCount();
+		int pageCount = (bytes + PAGE_MASK) >> PAGE_SHIFT;
+		pages = Arrays.copyOf(pages, pageCount);
+		ownedPages = Arrays.copyOf(ownedPages, pageCount);
+		int lastPage = bytes - ((pageCount - 1) << PAGE_SHIFT);
+		if (pages[pageCount - 1].length != lastPage)
+		{
+			pages[pageCount - 1] = Arrays.copyOf(pages[pageCount - 1], lastPage);
+			ownedPages[pageCount - 1] = true;
+		}
+	}
+
+	/**
+	 * @param index : the index of a point
+	 * @return : the code of the point
+	 */
+	private int code(int index)
+	{
+		int b = index >> 1;
+		return (pages[b >> PAGE_SHIFT][b & PAGE_MASK] >> ((index & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * @return : the number of bytes the tiles(including the border) take
+	 */
+	private int getByteCount()
+	{
+		return ((rows + 2) * stride + 1) / 2;
+	}
+
+	/**
+	 * Makes the pages for a new grid with every tile wall
+	 */
+	private void allocatePages()
+	{
+		int bytes = getByteCount();
+		pages = new byte[(bytes + PAGE_MASK) >> PAGE_SHIFT][];
+		ownedPages = new boolean[pages.length];
+		for (int i = 0; i < pages.length; i++)
+		{
+			pages[i] = new byte[Math.min(PAGE_SIZE, bytes - (i << PAGE_SHIFT))];
+		}
+		Arrays.fill(ownedPages, true);
+	}
+
+	/**
+	 * @param b : the index of a byte of the tiles
+	 * @return : the page with the byte, copied first if it is shared
+	 * @throws IllegalStateException if the grid is frozen
+	 */
+	private byte[] writablePage(int b)
+	{
+		int page = b >> PAGE_SHIFT;
+		if (!ownedPages[page])
+		{
+			checkFrozen();
+			pages[page] = pages[page].clone();
+			ownedPages[page] = true;
+		}
+		return pages[page];
+	}
+
+	/**
+	 * @throws IllegalStateException if the grid is frozen
+	 */
+	private void checkFrozen()
+	{
+		if (frozen)
+		{
+			throw new IllegalStateException("the grid can't be changed");
+		}
+	}
+
+	/**
+	 * Gives a char the next free code
+	 *
+	 * @param c : the char
+	 * @return : its code
+	 */
+	private int addTile(char c)
+	{
+		checkFrozen();
+		if (c < FIRST_TILE || c > LAST_TILE || tileCount == MAX_TILES)
+		{
+			throw new IllegalArgumentException("the map can't hold the tile '" + c + "'");
+		}
+		tiles[tileCount] = c;
+		codes[c] = (byte) tileCount;
+		return tileCount++;
+	}
+}
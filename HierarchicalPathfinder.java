@@ -0,0 +1,814 @@
+import java.util.Arrays;
+
+/**
+ * Hierarchical pathfinding(HPA*) for big maps. The map is split into square
+ * clusters and the points where two clusters can be crossed(entrances) are
+ * connected by the distances between them inside each cluster, which are
+ * calculated once. A route is found on this much smaller graph of entrances and
+ * only its first leg(the way out of the start cluster) is turned into points -
+ * the bot asks again when it gets there. When a point turns into a wall(or
+ * stops being one) only its cluster and the borders it touches are calculated
+ * again.
+ */
+public class HierarchicalPathfinder extends Pathfinder
+{
+	// the default size of the side of a cluster
+	protected static final int CLUSTER_SIZE = 16;
+
+	// distance used for points that can't be reached
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+	// entrances at least this long get a crossing at both ends instead of one in
+	// the middle
+	private static final int LONG_ENTRANCE = 6;
+
+	// the map used for the algorithm
+	private Grid map;
+
+	// number of columns in the map, every point is stored under the index x * columns + y
+	private int columns;
+
+	// the size of the side of a cluster and the number of clusters in each direction
+	private int clusterSize;
+	private int clusterRows;
+	private int clusterColumns;
+
+	/*
+	 * the crossings between each cluster and the one below it(horizontal) or the
+	 * one on its right(vertical) as pairs of points - the first point of a pair is
+	 * in the upper/left cluster
+	 */
+	private int[][] horizontalCrossings;
+	private int[][] verticalCrossings;
+
+	/*
+	 * the entrances of each cluster, the distances between every two of them
+	 * inside the cluster(entrance i to j is at i * count + j) and the points in the
+	 * neighbouring clusters each entrance crosses to(two per entrance as a corner
+	 * can be on two borders, -1 if there is none)
+	 */
+	private int[][] entrances;
+	private int[][] entranceDistances;
+	private int[][] crossings;
+
+	// clusters and borders that have to be calculated again before the next search
+	private boolean[] changedClusters;
+	private boolean[] changedHorizontalBorders;
+	private boolean[] changedVerticalBorders;
+	private boolean changed;
+
+	/*
+	 * every entrance has a number in the search - the entrances of cluster c start
+	 * at firstEntrance[c], the start point and the end point come after all of them
+	 */
+	private int[] firstEntrance;
+	private int entranceCount;
+
+	// the attributes of the entrances during the search
+	private int[] distance;
+	private int[] parent;
+	private int[] visited;
+	private int currentSearch;
+	private int[] visitedPoints;
+	private int visitedPointsSize;
+	private int[] priority;
+	private int[] heapIndex;
+
+	// the distances from the start and the end point to the entrances of their clusters
+	private int[] startDistances;
+	private int[] endDistances;
+	private int startToEnd;
+
+	// breadth first search inside one cluster(indexed by the position in the cluster)
+	private int[] clusterDistance;
+	private int[] clusterParent;
+	private int[] clusterVisited;
+	private int clusterSearch;
+	private int[] clusterQueue;
+
+	// the number of points expanded by the last search
+	private int expandedPoints;
+
+	/**
+	 * Constructor for the class, calculates the entrances of every cluster
+	 *
+	 * @param map : the map that the algorithm will use
+	 */
+	public HierarchicalPathfinder(Grid map)
+	{
+		this(map, CLUSTER_SIZE);
+	}
+
+	/**
+	 * Constructor for the class with a specific cluster size
+	 *
+	 * @param map         : the map that the algorithm will use
+	 * @param clusterSize : the size of the side of a cluster
+	 */
+	public HierarchicalPathfinder(Grid map, int clusterSize)
+	{
+		this.map = map;
+		this.clusterSize = clusterSize;
+		columns = map.getColumns();
+		clusterRows = (map.getRows() + clusterSize - 1) / clusterSize;
+		clusterColumns = (columns + clusterSize - 1) / clusterSize;
+		int clusters = clusterRows * clusterColumns;
+
+		horizontalCrossings = new int[clusters][];
+		verticalCrossings = new int[clusters][];
+		entrances = new int[clusters][];
+		entranceDistances = new int[clusters][];
+		crossings = new int[clusters][];
+		firstEntrance = new int[clusters + 1];
+		changedClusters = new boolean[clusters];
+		changedHorizontalBorders = new boolean[clusters];
+		changedVerticalBorders = new boolean[clusters];
+
+		int clusterArea = clusterSize * clusterSize;
+		clusterDistance = new int[clusterArea];
+		clusterParent = new int[clusterArea];
+		clusterVisited = new int[clusterArea];
+		clusterQueue = new int[clusterArea];
+		distance = new int[0];
+
+		// everything has to be calculated the first time
+		Arrays.fill(changedClusters, true);
+		Arrays.fill(changedHorizontalBorders, true);
+		Arrays.fill(changedVerticalBorders, true);
+		changed = true;
+		update();
+	}
+
+	/**
+	 * Finds a route from a start to an end point through the entrances of the
+	 * clusters. Only the part of the route inside the start cluster(and the step
+	 * out of it) is returned - if it doesn't reach the end point the rest is found
+	 * by calling this again from where it ends.
+	 *
+	 * @param x1 : x coordinate of the start point
+	 * @param y1 : y coordinate of the start point
+	 * @param x2 : x coordinate of the end point
+	 * @param y2 : y coordinate of the end point
+	 * @return : a 2d array of the coordinates of the first part of the route
+	 *         (without the start point) or null if there is no route
+	 */
+	@Override
+	protected int[][] pathfind(int x1, int y1, int x2, int y2)
+	{
+		update();
+		expandedPoints = 0;
+		int start = x1 * columns + y1;
+		int end = x2 * columns + y2;
+		if (start == end)
+		{
+			return new int[0][];
+		}
+		if (map.isWall(x2, y2))
+		{
+			// a wall can't be reached
+			return null;
+		}
+		int startCluster = clusterOf(start);
+		int endCluster = clusterOf(end);
+
+		// connect the start and end points to the entrances of their clusters
+		clusterSearch(start, startCluster);
+		startDistances = distancesToEntrances(startCluster, startDistances);
+		startToEnd = startCluster == endCluster ? clusterDistanceTo(end) : INFINITY;
+		clusterSearch(end, endCluster);
+		endDistances = distancesToEntrances(endCluster, endDistances);
+
+		int[] abstractRoute = searchEntrances(startCluster, endCluster, x2, y2);
+		if (abstractRoute == null)
+		{
+			return null;
+		}
+		return refineFirstLeg(start, end, abstractRoute);
+	}
+
+	/**
+	 * Sets a point in the map and marks its cluster(and the borders it is on) to be
+	 * calculated again if the point turned into a wall or stopped being one
+	 *
+	 * @param positionX : x coordinate of the point in the map
+	 * @param positionY : y coordinate of the point in the map
+	 * @param c         : the new char representation of that point
+	 */
+	@Override
+	protected void setMapPoint(int positionX, int positionY, char c)
+	{
+		boolean wasWall = map.isWall(positionX, positionY);
+		map.set(positionX, positionY, c);
+		if (wasWall == (c == '#'))
+		{
+			return;
+		}
+		int clusterX = positionX / clusterSize;
+		int clusterY = positionY / clusterSize;
+		int cluster = clusterX * clusterColumns + clusterY;
+		changedClusters[cluster] = true;
+		changed = true;
+		// the point may be on the border with a neighbouring cluster
+		if (positionX % clusterSize == 0 && clusterX > 0)
+		{
+			changedHorizontalBorders[cluster - clusterColumns] = true;
+		}
+		if (positionX % clusterSize == clusterSize - 1)
+		{
+			changedHorizontalBorders[cluster] = true;
+		}
+		if (positionY % clusterSize == 0 && clusterY > 0)
+		{
+			changedVerticalBorders[cluster - 1] = true;
+		}
+		if (positionY % clusterSize == clusterSize - 1)
+		{
+			changedVerticalBorders[cluster] = true;
+		}
+	}
+
+	/**
+	 * @return : the number of entrances expanded by the last search
+	 */
+	@Override
+	protected int getExpandedPoints()
+	{
+		return expandedPoints;
+	}
+
+	/**
+	 * Calculates the changed borders and clusters again
+	 */
+	private void update()
+	{
+		if (!changed)
+		{
+			return;
+		}
+		for (int cluster = 0; cluster < changedClusters.length; cluster++)
+		{
+			if (changedHorizontalBorders[cluster])
+			{
+				changedHorizontalBorders[cluster] = false;
+				horizontalCrossings[cluster] = findCrossings(cluster, true);
+				// the entrances of both clusters change
+				changedClusters[cluster] = true;
+				if (cluster + clusterColumns < changedClusters.length)
+				{
+					changedClusters[cluster + clusterColumns] = true;
+				}
+			}
+			if (changedVerticalBorders[cluster])
+			{
+				changedVerticalBorders[cluster] = false;
+				verticalCrossings[cluster] = findCrossings(cluster, false);
+				changedClusters[cluster] = true;
+				if (cluster % clusterColumns + 1 < clusterColumns)
+				{
+					changedClusters[cluster + 1] = true;
+				}
+			}
+		}
+		for (int cluster = 0; cluster < changedClusters.length; cluster++)
+		{
+			if (changedClusters[cluster])
+			{
+				changedClusters[cluster] = false;
+				calculateEntrances(cluster);
+			}
+			firstEntrance[cluster + 1] = firstEntrance[cluster] + entrances[cluster].length;
+		}
+		entranceCount = firstEntrance[changedClusters.length];
+		if (distance.length < entranceCount + 2)
+		{
+			int size = entranceCount + 2;
+			distance = new int[size];
+			parent = new int[size];
+			visited = new int[size];
+			visitedPoints = new int[size];
+			priority = new int[size];
+			heapIndex = new int[size];
+			currentSearch = 0;
+		}
+		changed = false;
+	}
+
+	/**
+	 * Finds where the border between a cluster and the next one can be crossed
+	 *
+	 * @param cluster    : the upper/left cluster
+	 * @param horizontal : true for the border with the cluster below, false for the
+	 *                   one on the right
+	 * @return : pairs of points on both sides of the crossings
+	 */
+	private int[] findCrossings(int cluster, boolean horizontal)
+	{
+		int clusterX = cluster / clusterColumns;
+		int clusterY = cluster % clusterColumns;
+		// the first side of the border and the direction along it
+		int lineX = horizontal ? (clusterX + 1) * clusterSize - 1 : clusterX * clusterSize;
+		int lineY = horizontal ? clusterY * clusterSize : (clusterY + 1) * clusterSize - 1;
+		int acrossX = horizontal ? 1 : 0;
+		int acrossY = horizontal ? 0 : 1;
+		if (lineX + acrossX >= map.getRows() || lineY + acrossY >= columns)
+		{
+			// the cluster is on the edge of the map
+			return new int[0];
+		}
+		int length = horizontal ? Math.min(clusterSize, columns - lineY) : Math.min(clusterSize, map.getRows() - lineX);
+
+		int[] found = new int[4 * length];
+		int count = 0;
+		int runStart = -1;
+		for (int i = 0; i <= length; i++)
+		{
+			int x = lineX + (horizontal ? 0 : i);
+			int y = lineY + (horizontal ? i : 0);
+			boolean open = i < length && !map.isWall(x, y) && !map.isWall(x + acrossX, y + acrossY);
+			if (open && runStart < 0)
+			{
+				runStart = i;
+			}
+			else if (!open && runStart >= 0)
+			{
+				// an entrance from runStart to i - 1
+				int[] positions = i - runStart >= LONG_ENTRANCE ? new int[]
+				{ runStart, i - 1 } : new int[]
+				{ (runStart + i - 1) / 2 };
+				for (int position : positions)
+				{
+					int pointX = lineX + (horizontal ? 0 : position);
+					int pointY = lineY + (horizontal ? position : 0);
+					found[count++] = pointX * columns + pointY;
+					found[count++] = (pointX + acrossX) * columns + pointY + acrossY;
+				}
+				runStart = -1;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Collects the entrances of a cluster from its four borders and calculates the
+	 * distances between them inside the cluster
+	 *
+	 * @param cluster : the cluster
+	 */
+	private void calculateEntrances(int cluster)
+	{
+		int clusterX = cluster / clusterColumns;
+		int clusterY = cluster % clusterColumns;
+		int[] points = new int[0];
+		int[] pointCrossings = new int[0];
+		// the border with the cluster below and on the right(this cluster is the first side)
+		int[][] borders =
+		{ horizontalCrossings[cluster], verticalCrossings[cluster],
+				clusterX > 0 ? horizontalCrossings[cluster - clusterColumns] : null,
+				clusterY > 0 ? verticalCrossings[cluster - 1] : null };
+		for (int border = 0; border < borders.length; border++)
+		{
+			if (borders[border] == null)
+			{
+				continue;
+			}
+			int side = border < 2 ? 0 : 1;
+			for (int i = 0; i < borders[border].length; i += 2)
+			{
+				int point = borders[border][i + side];
+				int across = borders[border][i + 1 - side];
+				// a corner point can be an entrance of two borders
+				int index = indexOf(points, point);
+				if (index < 0)
+				{
+					index = points.length;
+					points = Arrays.copyOf(points, index + 1);
+					points[index] = point;
+					pointCrossings = Arrays.copyOf(pointCrossings, 2 * index + 2);
+					pointCrossings[2 * index] = across;
+					pointCrossings[2 * index + 1] = -1;
+				}
+				else
+				{
+					pointCrossings[2 * index + 1] = across;
+				}
+			}
+		}
+
+		int count = points.length;
+		int[] distances = new int[count * count];
+		for (int i = 0; i < count; i++)
+		{
+			clusterSearch(points[i], cluster);
+			for (int j = 0; j < count; j++)
+			{
+				distances[i * count + j] = clusterDistanceTo(points[j]);
+			}
+		}
+		entrances[cluster] = points;
+		entranceDistances[cluster] = distances;
+		crossings[cluster] = pointCrossings;
+	}
+
+	/**
+	 * A* on the graph of entrances from the start point to the end point
+	 *
+	 * @param startCluster : the cluster of the start point
+	 * @param endCluster   : the cluster of the end point
+	 * @param x2           : x coordinate of the end point
+	 * @param y2           : y coordinate of the end point
+	 * @return : the entrance numbers on the route(the start point first, the end
+	 *         point last) or null if there is no route
+	 */
+	private int[] searchEntrances(int startCluster, int endCluster, int x2, int y2)
+	{
+		int startNode = entranceCount;
+		int endNode = entranceCount + 1;
+		startNewSearch();
+		distance[startNode] = 0;
+		parent[startNode] = -1;
+		visited[startNode] = currentSearch;
+		priority[startNode] = 0;
+		siftUp(startNode, visitedPointsSize++);
+
+		while (visitedPointsSize > 0)
+		{
+			int node = poll();
+			expandedPoints++;
+			if (node == endNode)
+			{
+				int length = 0;
+				for (int i = node; i >= 0; i = parent[i])
+				{
+					length++;
+				}
+				int[] route = new int[length];
+				for (int i = node; i >= 0; i = parent[i])
+				{
+					route[--length] = i;
+				}
+				return route;
+			}
+			if (node == startNode)
+			{
+				// the start point leads to the entrances of its cluster(and the end point if it
+				// is in the same cluster)
+				for (int i = 0; i < startDistances.length; i++)
+				{
+					visit(node, firstEntrance[startCluster] + i, startDistances[i], x2, y2);
+				}
+				visit(node, endNode, startToEnd, x2, y2);
+				continue;
+			}
+
+			int cluster = clusterOfEntrance(node);
+			int index = node - firstEntrance[cluster];
+			int count = entrances[cluster].length;
+			// other entrances of the same cluster
+			for (int i = 0; i < count; i++)
+			{
+				visit(node, firstEntrance[cluster] + i, entranceDistances[cluster][index * count + i], x2, y2);
+			}
+			// crossing into the neighbouring clusters
+			for (int i = 2 * index; i < 2 * index + 2; i++)
+			{
+				int across = crossings[cluster][i];
+				if (across >= 0)
+				{
+					int acrossCluster = clusterOf(across);
+					int acrossIndex = indexOf(entrances[acrossCluster], across);
+					visit(node, firstEntrance[acrossCluster] + acrossIndex, 1, x2, y2);
+				}
+			}
+			if (cluster == endCluster)
+			{
+				visit(node, endNode, endDistances[index], x2, y2);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds an entrance to the priority queue or updates it if it has been reached
+	 * with a shorter distance
+	 *
+	 * @param from : the entrance the step starts from
+	 * @param node : the entrance the step goes to
+	 * @param cost : the length of the step
+	 * @param x2   : x coordinate of the end point
+	 * @param y2   : y coordinate of the end point
+	 */
+	private void visit(int from, int node, int cost, int x2, int y2)
+	{
+		if (cost >= INFINITY || node == from)
+		{
+			return;
+		}
+		int newDistance = distance[from] + cost;
+		if (visited[node] != currentSearch)
+		{
+			int point = node == entranceCount + 1 ? x2 * columns + y2 : entrancePoint(node);
+			distance[node] = newDistance;
+			parent[node] = from;
+			visited[node] = currentSearch;
+			priority[node] = newDistance + Math.abs(point / columns - x2) + Math.abs(point % columns - y2);
+			siftUp(node, visitedPointsSize++);
+		}
+		else if (heapIndex[node] >= 0 && newDistance < distance[node])
+		{
+			priority[node] -= distance[node] - newDistance;
+			distance[node] = newDistance;
+			parent[node] = from;
+			siftUp(node, heapIndex[node]);
+		}
+	}
+
+	/**
+	 * Turns the first leg of the route through the entrances into points - the way
+	 * to the entrance the route leaves the start cluster through and the step over
+	 * the border(or the way to the end point if the route doesn't leave it)
+	 *
+	 * @param start         : index of the start point
+	 * @param end           : index of the end point
+	 * @param abstractRoute : the entrance numbers on the route
+	 * @return : a 2d array of the coordinates of the first leg of the route
+	 */
+	private int[][] refineFirstLeg(int start, int end, int[] abstractRoute)
+	{
+		int[] points = new int[2 * clusterSize * clusterSize];
+		int count = 0;
+		int current = start;
+		for (int i = 1; i < abstractRoute.length; i++)
+		{
+			int next = abstractRoute[i] == entranceCount + 1 ? end : entrancePoint(abstractRoute[i]);
+			if (clusterOf(next) != clusterOf(current))
+			{
+				// the step over the border ends the first leg
+				points[count++] = next;
+				break;
+			}
+			// walk the parents back from the next point to the current one
+			clusterSearch(current, clusterOf(current));
+			int length = clusterDistanceTo(next);
+			if (count + length > points.length)
+			{
+				points = Arrays.copyOf(points, 2 * (count + length));
+			}
+			int point = next;
+			for (int j = count + length - 1; j >= count; j--)
+			{
+				points[j] = point;
+				point = clusterParent[localIndex(point)];
+			}
+			count += length;
+			current = next;
+			if (next == end)
+			{
+				break;
+			}
+		}
+
+		int[][] finalRoute = new int[count][];
+		for (int i = 0; i < count; i++)
+		{
+			finalRoute[i] = new int[]
+			{ points[i] / columns, points[i] % columns };
+		}
+		return finalRoute;
+	}
+
+	/**
+	 * Breadth first search inside a cluster that fills in clusterDistance and
+	 * clusterParent for every point of the cluster reachable from a point
+	 *
+	 * @param from    : index of the point the search starts from
+	 * @param cluster : the cluster of the point
+	 */
+	private void clusterSearch(int from, int cluster)
+	{
+		clusterSearch++;
+		if (clusterSearch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(clusterVisited, 0);
+			clusterSearch = 1;
+		}
+		int minX = cluster / clusterColumns * clusterSize;
+		int minY = cluster % clusterColumns * clusterSize;
+		int maxX = Math.min(minX + clusterSize, map.getRows());
+		int maxY = Math.min(minY + clusterSize, columns);
+
+		int head = 0;
+		int tail = 0;
+		int local = localIndex(from);
+		clusterVisited[local] = clusterSearch;
+		clusterDistance[local] = 0;
+		clusterParent[local] = -1;
+		clusterQueue[tail++] = from;
+		while (head < tail)
+		{
+			int point = clusterQueue[head++];
+			int x = point / columns;
+			int y = point - x * columns;
+			int pointDistance = clusterDistance[localIndex(point)];
+			for (int direction = 0; direction < 4; direction++)
+			{
+				int nextX = x + (direction == 0 ? 1 : direction == 1 ? -1 : 0);
+				int nextY = y + (direction == 2 ? 1 : direction == 3 ? -1 : 0);
+				if (nextX < minX || nextY < minY || nextX >= maxX || nextY >= maxY || map.isWall(nextX, nextY))
+				{
+					continue;
+				}
+				int next = nextX * columns + nextY;
+				int nextLocal = localIndex(next);
+				if (clusterVisited[nextLocal] != clusterSearch)
+				{
+					clusterVisited[nextLocal] = clusterSearch;
+					clusterDistance[nextLocal] = pointDistance + 1;
+					clusterParent[nextLocal] = point;
+					clusterQueue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param point : index of a point in the cluster of the last cluster search
+	 * @return : its distance from the point the search started from or INFINITY
+	 */
+	private int clusterDistanceTo(int point)
+	{
+		int local = localIndex(point);
+		return clusterVisited[local] == clusterSearch ? clusterDistance[local] : INFINITY;
+	}
+
+	/**
+	 * @param cluster   : the cluster of the last cluster search
+	 * @param distances : an array that can be reused(or null)
+	 * @return : the distances from the point the search started from to every
+	 *         entrance of the cluster
+	 */
+	private int[] distancesToEntrances(int cluster, int[] distances)
+	{
+		int[] points = entrances[cluster];
+		if (distances == null || distances.length != points.length)
+		{
+			distances = new int[points.length];
+		}
+		for (int i = 0; i < points.length; i++)
+		{
+			distances[i] = clusterDistanceTo(points[i]);
+		}
+		return distances;
+	}
+
+	/**
+	 * @param point : index of a point
+	 * @return : the position of the point inside its cluster
+	 */
+	private int localIndex(int point)
+	{
+		return (point / columns % clusterSize) * clusterSize + point % columns % clusterSize;
+	}
+
+	/**
+	 * @param point : index of a point
+	 * @return : the cluster of the point
+	 */
+	private int clusterOf(int point)
+	{
+		return point / columns / clusterSize * clusterColumns + point % columns / clusterSize;
+	}
+
+	/**
+	 * @param node : the number of an entrance in the search
+	 * @return : the cluster of the entrance
+	 */
+	private int clusterOfEntrance(int node)
+	{
+		// the last cluster whose first entrance isn't after the node
+		int low = 0;
+		int high = entrances.length - 1;
+		while (low < high)
+		{
+			int middle = (low + high + 1) >>> 1;
+			if (firstEntrance[middle] <= node)
+			{
+				low = middle;
+			}
+			else
+			{
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param node : the number of an entrance in the search
+	 * @return : index of the point of the entrance
+	 */
+	private int entrancePoint(int node)
+	{
+		int cluster = clusterOfEntrance(node);
+		return entrances[cluster][node - firstEntrance[cluster]];
+	}
+
+	/**
+	 * @return : the position of the value in the array or -1
+	 */
+	private static int indexOf(int[] array, int value)
+	{
+		for (int i = 0; i < array.length; i++)
+		{
+			if (array[i] == value)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares 2 entrances by their priority(in the priority queue)
+	 *
+	 * @return : true if entrance a goes before entrance b
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		return priority[a] < priority[b] || (priority[a] == priority[b] && distance[a] > distance[b]);
+	}
+
+	/**
+	 * Moves an entrance up the heap until its parent goes before it
+	 *
+	 * @param node : the entrance
+	 * @param i    : the position in the heap the entrance starts from
+	 */
+	private void siftUp(int node, int i)
+	{
+		while (i > 0)
+		{
+			int up = (i - 1) >>> 1;
+			if (!isBefore(node, visitedPoints[up]))
+			{
+				break;
+			}
+			visitedPoints[i] = visitedPoints[up];
+			heapIndex[visitedPoints[i]] = i;
+			i = up;
+		}
+		visitedPoints[i] = node;
+		heapIndex[node] = i;
+	}
+
+	/**
+	 * Removes the entrance with the lowest priority from the priority queue
+	 *
+	 * @return : the entrance
+	 */
+	private int poll()
+	{
+		int first = visitedPoints[0];
+		int last = visitedPoints[--visitedPointsSize];
+		int i = 0;
+		while (true)
+		{
+			int down = 2 * i + 1;
+			if (down >= visitedPointsSize)
+			{
+				break;
+			}
+			if (down + 1 < visitedPointsSize && isBefore(visitedPoints[down + 1], visitedPoints[down]))
+			{
+				down++;
+			}
+			if (!isBefore(visitedPoints[down], last))
+			{
+				break;
+			}
+			visitedPoints[i] = visitedPoints[down];
+			heapIndex[visitedPoints[i]] = i;
+			i = down;
+		}
+		if (visitedPointsSize > 0)
+		{
+			visitedPoints[i] = last;
+			heapIndex[last] = i;
+		}
+		heapIndex[first] = -1;
+		return first;
+	}
+
+	/**
+	 * Empties the priority queue and moves on to the next search stamp
+	 */
+	private void startNewSearch()
+	{
+		visitedPointsSize = 0;
+		currentSearch++;
+		if (currentSearch == Integer.MAX_VALUE)
+		{
+			Arrays.fill(visited, 0);
+			currentSearch = 1;
+		}
+	}
+}
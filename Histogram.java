@@ -0,0 +1,262 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how often values(e.g. nanoseconds or bytes) occur in buckets whose
+ * width grows with the value, like HdrHistogram: the values below 64 have a
+ * bucket each and every power of 2 above is split into 32 buckets, so any
+ * percentile is known to within about 3% of the value from about 1400
+ * counters. Recording a value allocates nothing and takes no lock, so it can
+ * be done from every game thread at once.
+ */
+public class Histogram
+{
+	// the buckets of each power of 2 are 2^(SUB_BUCKET_BITS - 1)
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int HALF_SUB_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+
+	// the largest value that is counted as itself(larger ones count as it)
+	private static final long MAX_VALUE = (1L << 48) - 1;
+
+	// the name and unit of the values and what they are divided by when shown
+	private String name;
+	private String unit;
+	private double scale;
+
+	private AtomicLongArray counts = new AtomicLongArray(bucketOf(MAX_VALUE) + 1);
+	private AtomicLong count = new AtomicLong();
+	private AtomicLong sum = new AtomicLong();
+	private AtomicLong max = new AtomicLong();
+
+	/**
+	 * Constructor for the histogram
+	 *
+	 * @param name  : what the values are
+	 * @param unit  : the unit they are shown in
+	 * @param scale : what they are divided by to be in that unit(e.g. 1000 for
+	 *              nanoseconds shown as microseconds)
+	 */
+	public Histogram(String name, String unit, double scale)
+	{
+		this.name = name;
+		this.unit = unit;
+		this.scale = scale;
+	}
+
+	/**
+	 * @param value : a value that isn't negative
+	 * @return : the bucket it is counted in
+	 */
+	private static int bucketOf(long value)
+	{
+		// the bits below the top SUB_BUCKET_BITS are dropped
+		int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * @param bucket : a bucket
+	 * @return : the largest value counted in it
+	 */
+	private static long highestValueOf(int bucket)
+	{
+		if (bucket < 2 * HALF_SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		int shift = bucket / HALF_SUB_BUCKETS - 1;
+		long lowest = (long) (bucket - shift * HALF_SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Counts a value
+	 *
+	 * @param value : the value(negative ones count as 0)
+	 */
+	protected void record(long value)
+	{
+		value = Math.min(Math.max(value, 0), MAX_VALUE);
+		counts.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value))
+		{
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Forgets every value - the ones counted while it is reset may be partly
+	 * forgotten
+	 */
+	protected void reset()
+	{
+		for (int i = 0; i < counts.length(); i++)
+		{
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	/**
+	 * @return : what the values are
+	 */
+	protected String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @return : the number of values counted
+	 */
+	protected long getCount()
+	{
+		return count.get();
+	}
+
+	/**
+	 * @return : the mean of the values in their unit(0 if there are none)
+	 */
+	protected double getMean()
+	{
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / scale / n;
+	}
+
+	/**
+	 * @return : the largest value in its unit
+	 */
+	protected double getMax()
+	{
+		return max.get() / scale;
+	}
+
+	/**
+	 * @param percentile : the percentile(0 to 100)
+	 * @return : the value that many percent of the values are at most, in their
+	 *         unit(the highest value of its bucket, 0 if there are none)
+	 */
+	protected double getPercentile(double percentile)
+	{
+		long n = count.get();
+		if (n == 0)
+		{
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++)
+		{
+			seen += counts.get(i);
+			if (seen >= rank)
+			{
+				return Math.min(highestValueOf(i), max.get()) / scale;
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * @return : the statistics of the values as they are now
+	 */
+	protected Summary getSummary()
+	{
+		return new Summary(getCount(), getMean(), getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+	}
+
+	/**
+	 * @return : a line with the statistics of the values
+	 */
+	@Override
+	public String toString()
+	{
+		return String.format("%-24s %10d %12.2f %12.2f %12.2f %12.2f %12.2f %s", name, getCount(), getMean(),
+				getPercentile(50), getPercentile(90), getPercentile(99), getMax(), unit);
+	}
+
+	/**
+	 * The statistics of a histogram at one time - the getters are public so JMX
+	 * can show them(see GameMetricsMXBean)
+	 */
+	public static class Summary
+	{
+		private long count;
+		private double mean;
+		private double p50;
+		private double p90;
+		private double p99;
+		private double max;
+
+		/**
+		 * Constructor for the statistics
+		 *
+		 * @param count : the number of values
+		 * @param mean  : their mean
+		 * @param p50   : their median
+		 * @param p90   : their 90th percentile
+		 * @param p99   : their 99th percentile
+		 * @param max   : the largest of them
+		 */
+		public Summary(long count, double mean, double p50, double p90, double p99, double max)
+		{
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		/**
+		 * @return : the number of values
+		 */
+		public long getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return : their mean
+		 */
+		public double getMean()
+		{
+			return mean;
+		}
+
+		/**
+		 * @return : their median
+		 */
+		public double getP50()
+		{
+			return p50;
+		}
+
+		/**
+		 * @return : their 90th percentile
+		 */
+		public double getP90()
+		{
+			return p90;
+		}
+
+		/**
+		 * @return : their 99th percentile
+		 */
+		public double getP99()
+		{
+			return p99;
+		}
+
+		/**
+		 * @return : the largest of them
+		 */
+		public double getMax()
+		{
+			return max;
+		}
+	}
+}
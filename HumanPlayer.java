@@ -6,6 +6,8 @@ import java.io.*;
  */
 public class HumanPlayer extends Player
 {
+	// the console is read through one reader so nothing it has read ahead is lost
+	private static BufferedReader console;
 	// how the player is represented on the map
 	private char mapRepresentation = 'P';
 	// x and y coordinates of the human player on the map
@@ -122,6 +124,14 @@ public class HumanPlayer extends Player
 		gold++;
 	}
 
+	/**
+	 * @param gold : the gold the player owns(e.g. in a restored game)
+	 */
+	protected void setGold(int gold)
+	{
+		this.gold = gold;
+	}
+
 	protected int getGold()
 	{
 		return gold;
@@ -134,7 +144,7 @@ public class HumanPlayer extends Player
 	 */
 	protected String getInputFromConsole()
 	{
-		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+		BufferedReader reader = getConsole();
 
 		try
 		{
@@ -142,6 +152,11 @@ public class HumanPlayer extends Player
 			{
 				// get the user input
 				String input = reader.readLine();
+				if (input == null)
+				{
+					// the input has ended so there is nothing more to play
+					System.exit(0);
+				}
 				if (input.equals(""))
 				{
 					// keep reading input if the previous one was just enter(empty line)
@@ -152,7 +167,7 @@ public class HumanPlayer extends Player
 					System.out.println("Are you sure you want to exit?");
 					System.out.println("Y or N");
 					input = reader.readLine();
-					if (input.equals("Y"))
+					if (input == null || input.equals("Y"))
 					{
 						System.exit(0);
 					}
@@ -169,4 +184,16 @@ public class HumanPlayer extends Player
 			return "";
 		}
 	}
+
+	/**
+	 * @return : the reader of the console shared by every player
+	 */
+	private static synchronized BufferedReader getConsole()
+	{
+		if (console == null)
+		{
+			console = new BufferedReader(new InputStreamReader(System.in));
+		}
+		return console;
+	}
 }
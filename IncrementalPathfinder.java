@@ -0,0 +1,655 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental pathfinding for bots that chase a moving target on a map that
+ * keeps being revealed(Moving Target D* Lite). The search tree is rooted at the
+ * start point and kept between calls: when the start moves only the part of
+ * the tree that doesn't hang under the new start is repaired, when the end
+ * point moves the queued priorities are corrected lazily and when a point
+ * turns into a wall(or stops being one) only the points whose distance depends
+ * on it are updated.
+ */
+public class IncrementalPathfinder extends Pathfinder
+{
+	// distance used for points that can't be reached
+	private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+	// the map used for the algorithm
+	private Grid map;
+
+	// the difference between the index of a point and the one below it - every
+	// point is stored under its index in the grid
+	private int stride;
+
+	/*
+	 * the distance of each point from the start(g) and the distance it should have
+	 * according to its neighbours(rhs). A point whose two distances differ is
+	 * inconsistent and waits in the priority queue to be fixed.
+	 */
+	private int[] distance;
+	private int[] expectedDistance;
+
+	// the neighbour each point is reached from in the search tree
+	private int[] parent;
+
+	// the search each point belongs to - values of points from older searches are
+	// treated as unknown so starting a new search doesn't have to reset anything
+	private int[] search;
+	private int currentSearch;
+
+	/*
+	 * binary heap of the inconsistent points ordered by their two part key and the
+	 * position of each point in it(-1 if it isn't in it)
+	 */
+	private int[] queue;
+	private int queueSize;
+	private int[] queueIndex;
+	private int[] key;
+	private int[] secondKey;
+
+	// the root of the search tree and the end point of the last search
+	private int start = -1;
+	private int end = -1;
+
+	// added to every key to make up for the moves of the end point
+	private int keyModifier;
+
+	// the number of points expanded by the last search
+	private int expandedPoints;
+
+	/**
+	 * Constructor for the class
+	 *
+	 * @param map : the map that the algorithm will use
+	 */
+	public IncrementalPathfinder(Grid map)
+	{
+		this.map = map;
+		stride = map.getStride();
+		int size = map.getSize();
+		distance = new int[size];
+		expectedDistance = new int[size];
+		parent = new int[size];
+		search = new int[size];
+		queue = new int[size];
+		queueIndex = new int[size];
+		key = new int[size];
+		secondKey = new int[size];
+	}
+
+	/**
+	 * Finds the shortest route from a start to an end point reusing as much of the
+	 * previous search as possible.
+	 *
+	 * @param x1 : x coordinate of the start point
+	 * @param y1 : y coordinate of the start point
+	 * @param x2 : x coordinate of the end point
+	 * @param y2 : y coordinate of the end point
+	 * @return : a 2d array of the coordinates of the route(without the start point)
+	 *         or null if there is no route
+	 */
+	@Override
+	protected int[][] pathfind(int x1, int y1, int x2, int y2)
+	{
+		int newStart = map.index(x1, y1);
+		int newEnd = map.index(x2, y2);
+
+		if (start < 0)
+		{
+			startNewSearch(newStart, newEnd);
+		}
+		else
+		{
+			if (newEnd != end)
+			{
+				// the priorities in the queue are now too low by at most the distance the end
+				// point moved - they are fixed when they reach the top
+				keyModifier += heuristic(end, newEnd);
+				end = newEnd;
+			}
+			if (newStart != start)
+			{
+				moveStart(newStart);
+			}
+		}
+
+		expandedPoints = 0;
+		computeShortestPath();
+		return buildRoute();
+	}
+
+	/**
+	 * @return : the number of points expanded by the last search
+	 */
+	@Override
+	protected int getExpandedPoints()
+	{
+		return expandedPoints;
+	}
+
+	/**
+	 * Sets a point in the map and repairs the search tree if the point turned into
+	 * a wall or stopped being one
+	 *
+	 * @param positionX : x coordinate of the point in the map
+	 * @param positionY : y coordinate of the point in the map
+	 * @param c         : the new char representation of that point
+	 */
+	@Override
+	protected void setMapPoint(int positionX, int positionY, char c)
+	{
+		boolean wasWall = map.isWall(positionX, positionY);
+		map.set(positionX, positionY, c);
+		if (start < 0 || wasWall == (c == '#'))
+		{
+			return;
+		}
+
+		int point = map.index(positionX, positionY);
+		// a new wall has no distance and a new floor gets one from its neighbours - it
+		// is passed on to the rest once the point is fixed
+		updateExpectedDistance(point);
+		if (c == '#')
+		{
+			// the neighbours that were reached through the new wall need another way
+			updateChild(point, point + stride);
+			updateChild(point, point + 1);
+			updateChild(point, point - stride);
+			updateChild(point, point - 1);
+		}
+		else
+		{
+			// the neighbours may be closer through the new floor - including the ones
+			// that lost their way when it was a wall
+			updateExpectedDistance(point + stride);
+			updateExpectedDistance(point + 1);
+			updateExpectedDistance(point - stride);
+			updateExpectedDistance(point - 1);
+		}
+	}
+
+	/**
+	 * Writes the search tree into a snapshot of a game - the routes found later
+	 * depend on it, as the points it reaches the same way stay in it. Only the
+	 * points of the current search are written, each as the distance from the
+	 * one before, its distances and the way to its parent, in a few bytes.
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	@Override
+	protected void writeSnapshot(GameSnapshot snapshot)
+	{
+		if (start < 0)
+		{
+			snapshot.reserve(4).putInt(start);
+			return;
+		}
+		int count = 0;
+		for (int point = 0; point < search.length; point++)
+		{
+			if (search[point] == currentSearch)
+			{
+				count++;
+			}
+		}
+		snapshot.reserve(12).putInt(start).putInt(end).putInt(keyModifier);
+		snapshot.putVarInt(count);
+		int previous = 0;
+		for (int point = 0; point < search.length; point++)
+		{
+			if (search[point] != currentSearch)
+			{
+				continue;
+			}
+			snapshot.putVarInt(point - previous);
+			previous = point;
+			// the parent is a neighbour(or none) and most points are consistent
+			int link = 0;
+			for (int i = 0; i < 4; i++)
+			{
+				if (parent[point] == point + neighbourOffset(i))
+				{
+					link = i + 1;
+				}
+			}
+			boolean consistent = distance[point] == expectedDistance[point];
+			snapshot.reserve(1).put((byte) (link | (consistent ? 8 : 0)));
+			snapshot.putVarInt(distance[point]);
+			if (!consistent)
+			{
+				snapshot.putVarInt(expectedDistance[point]);
+			}
+		}
+		// the queue is written in the order of the heap so it breaks ties the same way
+		snapshot.putVarInt(queueSize);
+		for (int i = 0; i < queueSize; i++)
+		{
+			snapshot.putVarInt(queue[i]);
+			snapshot.putVarInt(key[queue[i]]);
+			snapshot.putVarInt(secondKey[queue[i]]);
+		}
+	}
+
+	/**
+	 * Reads the search tree written by writeSnapshot
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	@Override
+	protected void readSnapshot(GameSnapshot snapshot)
+	{
+		ByteBuffer buffer = snapshot.getBuffer();
+		start = buffer.getInt();
+		if (start < 0)
+		{
+			return;
+		}
+		end = buffer.getInt();
+		keyModifier = buffer.getInt();
+		// the values of the points left out are from an older search
+		currentSearch++;
+		int point = 0;
+		for (int count = snapshot.getVarInt(); count > 0; count--)
+		{
+			point += snapshot.getVarInt();
+			int flags = buffer.get();
+			int link = flags & 7;
+			search[point] = currentSearch;
+			parent[point] = link == 0 ? -1 : point + neighbourOffset(link - 1);
+			distance[point] = snapshot.getVarInt();
+			expectedDistance[point] = (flags & 8) != 0 ? distance[point] : snapshot.getVarInt();
+			queueIndex[point] = -1;
+		}
+		queueSize = snapshot.getVarInt();
+		for (int i = 0; i < queueSize; i++)
+		{
+			point = snapshot.getVarInt();
+			queue[i] = point;
+			queueIndex[point] = i;
+			key[point] = snapshot.getVarInt();
+			secondKey[point] = snapshot.getVarInt();
+		}
+	}
+
+	/**
+	 * @param i : the number of a neighbour(0 to 3)
+	 * @return : the difference between the index of a point and the one of the
+	 *         neighbour
+	 */
+	private int neighbourOffset(int i)
+	{
+		return i == 0 ? stride : i == 1 ? 1 : i == 2 ? -stride : -1;
+	}
+
+	/**
+	 * Fixes inconsistent points in the order of their key until the end point is
+	 * consistent and nothing in the queue can make its route shorter
+	 */
+	private void computeShortestPath()
+	{
+		while (queueSize > 0)
+		{
+			int top = queue[0];
+			int endKey = calculateKey(end);
+			int endSecondKey = Math.min(get(distance, end), get(expectedDistance, end));
+			boolean beforeEnd = key[top] < endKey || (key[top] == endKey && secondKey[top] < endSecondKey);
+			if (!beforeEnd && get(expectedDistance, end) == get(distance, end))
+			{
+				return;
+			}
+
+			expandedPoints++;
+			int topKey = calculateKey(top);
+			if (key[top] < topKey)
+			{
+				// the key is out of date since the end point moved
+				key[top] = topKey;
+				secondKey[top] = Math.min(distance[top], expectedDistance[top]);
+				siftDown(top, 0);
+			}
+			else if (distance[top] > expectedDistance[top])
+			{
+				// a shorter way to the point has been found - pass it on to the neighbours
+				distance[top] = expectedDistance[top];
+				remove(top);
+				relaxNeighbour(top, top + stride);
+				relaxNeighbour(top, top + 1);
+				relaxNeighbour(top, top - stride);
+				relaxNeighbour(top, top - 1);
+			}
+			else
+			{
+				// the way to the point got longer - everything reached through it has to be
+				// recalculated
+				distance[top] = INFINITY;
+				updateExpectedDistance(top);
+				updateChild(top, top + stride);
+				updateChild(top, top + 1);
+				updateChild(top, top - stride);
+				updateChild(top, top - 1);
+			}
+		}
+	}
+
+	/**
+	 * Walks the search tree back from the end point and stores the coordinates of
+	 * each point on the way
+	 *
+	 * @return : a 2d array of the coordinates of the route or null if there is no
+	 *         route
+	 */
+	private int[][] buildRoute()
+	{
+		int length = get(distance, end) - get(distance, start);
+		if (get(expectedDistance, end) >= INFINITY || get(distance, end) != get(expectedDistance, end) || length < 0)
+		{
+			return null;
+		}
+		int[][] finalRoute = new int[length][];
+		int point = end;
+		for (int i = length - 1; i >= 0; i--)
+		{
+			finalRoute[i] = new int[]
+			{ map.getX(point), map.getY(point) };
+			point = parent[point];
+		}
+		return finalRoute;
+	}
+
+	/**
+	 * Makes another point the root of the search tree. Points under the new start
+	 * keep their distances(they are all off by the distance of the new start so
+	 * their order doesn't change), the rest are repaired through the old start.
+	 *
+	 * @param newStart : index of the new start point
+	 */
+	private void moveStart(int newStart)
+	{
+		int newStartDistance = get(distance, newStart);
+		if (newStartDistance >= INFINITY / 2 || newStartDistance != get(expectedDistance, newStart))
+		{
+			// the new start isn't in the search tree so there's nothing to reuse
+			startNewSearch(newStart, end);
+			return;
+		}
+		int oldStart = start;
+		start = newStart;
+		parent[start] = -1;
+		updateExpectedDistance(oldStart);
+	}
+
+	/**
+	 * Starts a search from scratch
+	 *
+	 * @param newStart : index of the start point
+	 * @param newEnd   : index of the end point
+	 */
+	private void startNewSearch(int newStart, int newEnd)
+	{
+		currentSearch++;
+		if (currentSearch == Integer.MAX_VALUE)
+		{
+			java.util.Arrays.fill(search, 0);
+			currentSearch = 1;
+		}
+		queueSize = 0;
+		keyModifier = 0;
+		start = newStart;
+		end = newEnd;
+		prepare(start);
+		expectedDistance[start] = 0;
+		updateQueue(start);
+	}
+
+	/**
+	 * Gives the point the distance it has through the neighbour if it is shorter
+	 * than the one it expects now
+	 *
+	 * @param point     : index of the point whose distance has just been fixed
+	 * @param neighbour : index of the neighbour
+	 */
+	private void relaxNeighbour(int point, int neighbour)
+	{
+		if (map.isWallAt(neighbour))
+		{
+			return;
+		}
+		prepare(neighbour);
+		if (neighbour != start && expectedDistance[neighbour] > distance[point] + 1)
+		{
+			parent[neighbour] = point;
+			expectedDistance[neighbour] = distance[point] + 1;
+			updateQueue(neighbour);
+		}
+	}
+
+	/**
+	 * Recalculates the expected distance of the neighbour if it was reached
+	 * through the point
+	 *
+	 * @param point     : index of the point whose distance got longer
+	 * @param neighbour : index of the neighbour(the border is never reached through
+	 *                  anything)
+	 */
+	private void updateChild(int point, int neighbour)
+	{
+		if (search[neighbour] == currentSearch && parent[neighbour] == point)
+		{
+			updateExpectedDistance(neighbour);
+		}
+	}
+
+	/**
+	 * Sets the expected distance of a point to the shortest distance through any
+	 * of its neighbours and puts it in the queue if it became inconsistent
+	 *
+	 * @param point : index of the point
+	 */
+	private void updateExpectedDistance(int point)
+	{
+		prepare(point);
+		if (point == start)
+		{
+			return;
+		}
+		int best = INFINITY;
+		int bestParent = -1;
+		if (!map.isWallAt(point))
+		{
+			// go through each of the neighbours of the point
+			if (distanceThrough(point + stride) < best)
+			{
+				best = distanceThrough(point + stride);
+				bestParent = point + stride;
+			}
+			if (distanceThrough(point + 1) < best)
+			{
+				best = distanceThrough(point + 1);
+				bestParent = point + 1;
+			}
+			if (distanceThrough(point - stride) < best)
+			{
+				best = distanceThrough(point - stride);
+				bestParent = point - stride;
+			}
+			if (distanceThrough(point - 1) < best)
+			{
+				best = distanceThrough(point - 1);
+				bestParent = point - 1;
+			}
+		}
+		expectedDistance[point] = best;
+		parent[point] = bestParent;
+		updateQueue(point);
+	}
+
+	/**
+	 * @param neighbour : index of the neighbour
+	 * @return : the distance of a point reached through the neighbour
+	 */
+	private int distanceThrough(int neighbour)
+	{
+		if (map.isWallAt(neighbour))
+		{
+			return INFINITY;
+		}
+		int distanceThrough = get(distance, neighbour) + 1;
+		return Math.min(distanceThrough, INFINITY);
+	}
+
+	/**
+	 * Puts the point in the queue(or updates its key) if it is inconsistent and
+	 * takes it out if it is consistent
+	 *
+	 * @param point : index of the point
+	 */
+	private void updateQueue(int point)
+	{
+		if (distance[point] != expectedDistance[point])
+		{
+			key[point] = calculateKey(point);
+			secondKey[point] = Math.min(distance[point], expectedDistance[point]);
+			if (queueIndex[point] < 0)
+			{
+				queueIndex[point] = queueSize++;
+			}
+			siftDown(point, siftUp(point, queueIndex[point]));
+		}
+		else if (queueIndex[point] >= 0)
+		{
+			remove(point);
+		}
+	}
+
+	/**
+	 * @param point : index of the point
+	 * @return : the first part of the key of the point
+	 */
+	private int calculateKey(int point)
+	{
+		int shortest = Math.min(get(distance, point), get(expectedDistance, point));
+		if (shortest >= INFINITY)
+		{
+			return INFINITY;
+		}
+		return shortest + heuristic(point, end) + keyModifier;
+	}
+
+	/**
+	 * Resets the values of a point if they are left over from an older search
+	 *
+	 * @param point : index of the point
+	 */
+	private void prepare(int point)
+	{
+		if (search[point] != currentSearch)
+		{
+			search[point] = currentSearch;
+			distance[point] = INFINITY;
+			expectedDistance[point] = INFINITY;
+			parent[point] = -1;
+			queueIndex[point] = -1;
+		}
+	}
+
+	/**
+	 * @param values : distance or expectedDistance
+	 * @param point  : index of the point
+	 * @return : the value of the point or INFINITY if it is left over from an
+	 *         older search
+	 */
+	private int get(int[] values, int point)
+	{
+		return search[point] == currentSearch ? values[point] : INFINITY;
+	}
+
+	/**
+	 * Determines the heuristic between two points
+	 *
+	 * @return the distance between the two points
+	 */
+	private int heuristic(int a, int b)
+	{
+		return Math.abs(a / stride - b / stride) + Math.abs(a % stride - b % stride);
+	}
+
+	/**
+	 * @return : true if point a goes before point b in the queue
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		return key[a] < key[b] || (key[a] == key[b] && secondKey[a] < secondKey[b]);
+	}
+
+	/**
+	 * Takes a point out of the queue
+	 *
+	 * @param point : index of the point
+	 */
+	private void remove(int point)
+	{
+		int i = queueIndex[point];
+		queueIndex[point] = -1;
+		int last = queue[--queueSize];
+		if (i < queueSize)
+		{
+			siftDown(last, siftUp(last, i));
+		}
+	}
+
+	/**
+	 * Moves a point up the heap until its parent goes before it
+	 *
+	 * @param point : index of the point
+	 * @param i     : the position in the heap the point starts from
+	 * @return : the final position of the point
+	 */
+	private int siftUp(int point, int i)
+	{
+		while (i > 0)
+		{
+			int up = (i - 1) >>> 1;
+			if (!isBefore(point, queue[up]))
+			{
+				break;
+			}
+			queue[i] = queue[up];
+			queueIndex[queue[i]] = i;
+			i = up;
+		}
+		queue[i] = point;
+		queueIndex[point] = i;
+		return i;
+	}
+
+	/**
+	 * Moves a point down the heap until both its children go after it
+	 *
+	 * @param point : index of the point
+	 * @param i     : the position in the heap the point starts from
+	 */
+	private void siftDown(int point, int i)
+	{
+		while (true)
+		{
+			int down = 2 * i + 1;
+			if (down >= queueSize)
+			{
+				break;
+			}
+			if (down + 1 < queueSize && isBefore(queue[down + 1], queue[down]))
+			{
+				down++;
+			}
+			if (!isBefore(queue[down], point))
+			{
+				break;
+			}
+			queue[i] = queue[down];
+			queueIndex[queue[i]] = i;
+			i = down;
+		}
+		queue[i] = point;
+		queueIndex[point] = i;
+	}
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+/**
+ * A map from int keys(0 or more) to int values that keeps them in two int
+ * arrays - open addressing with linear probing, so nothing is boxed and a
+ * removed key leaves no tombstone(the keys after it move back instead).
+ */
+public class IntHashMap
+{
+	// the key of an empty slot
+	private static final int EMPTY = -1;
+
+	// the keys and the values of the slots(the number of slots is a power of 2)
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Constructor for an empty map
+	 */
+	public IntHashMap()
+	{
+		keys = new int[16];
+		Arrays.fill(keys, EMPTY);
+		values = new int[16];
+	}
+
+	/**
+	 * Constructor for a copy of a map
+	 *
+	 * @param map : the map that is copied
+	 */
+	public IntHashMap(IntHashMap map)
+	{
+		keys = map.keys.clone();
+		values = map.values.clone();
+		size = map.size;
+	}
+
+	/**
+	 * @param key : a key(0 or more)
+	 * @return : the slot the key is in or the empty slot where it would go
+	 */
+	private int slotOf(int key)
+	{
+		int mask = keys.length - 1;
+		int slot = home(key);
+		while (keys[slot] != EMPTY && keys[slot] != key)
+		{
+			slot = slot + 1 & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * @param key : a key
+	 * @return : the slot the key goes in if no other key is in it - the bits of the
+	 *         key are mixed so keys next to each other don't fill a run of slots
+	 */
+	private int home(int key)
+	{
+		int hash = key * 0x9E3779B9;
+		return (hash ^ hash >>> 16) & keys.length - 1;
+	}
+
+	/**
+	 * @param key     : a key(0 or more)
+	 * @param missing : what is returned if the key isn't in the map
+	 * @return : the value of the key
+	 */
+	protected int get(int key, int missing)
+	{
+		int slot = slotOf(key);
+		return keys[slot] == EMPTY ? missing : values[slot];
+	}
+
+	/**
+	 * @param key   : a key(0 or more)
+	 * @param value : the value it is given
+	 */
+	protected void put(int key, int value)
+	{
+		int slot = slotOf(key);
+		if (keys[slot] == EMPTY)
+		{
+			if (++size * 2 > keys.length)
+			{
+				// at most half of the slots are used so the runs stay short
+				grow();
+				slot = slotOf(key);
+			}
+			keys[slot] = key;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * @param key : a key(0 or more) that may not be in the map
+	 */
+	protected void remove(int key)
+	{
+		int slot = slotOf(key);
+		if (keys[slot] == EMPTY)
+		{
+			return;
+		}
+		size--;
+		int mask = keys.length - 1;
+		// the keys of the run after the slot move back into it unless that would put
+		// them before their own slot
+		for (int next = slot + 1 & mask; keys[next] != EMPTY; next = next + 1 & mask)
+		{
+			if ((next - home(keys[next]) & mask) >= (next - slot & mask))
+			{
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				slot = next;
+			}
+		}
+		keys[slot] = EMPTY;
+	}
+
+	/**
+	 * @return : the number of keys in the map
+	 */
+	protected int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Doubles the number of slots
+	 */
+	private void grow()
+	{
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		values = new int[oldValues.length * 2];
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] != EMPTY)
+			{
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
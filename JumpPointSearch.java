@@ -0,0 +1,451 @@
+/**
+ * Jump Point Search for maps where the players move in 4 directions. Instead of
+ * adding every neighbour to the priority queue it jumps in a straight line
+ * until it reaches a point where the route could turn(a jump point), so on
+ * open maps only a small part of the points are ever expanded. The length of
+ * the jumps along y is stored per row so jumps along x can check both sides of
+ * every point they pass without scanning the row.
+ */
+public class JumpPointSearch extends Pathfinder
+{
+	// the map used for the algorithm
+	private Grid map;
+
+	// number of columns in the map, every point is stored under the index x * columns + y
+	private int columns;
+
+	// the distance from the beginning to each jump point
+	private int[] distance;
+
+	// the jump point each jump point has been reached from
+	private int[] parent;
+
+	// the search each point has last been "visited" in
+	private int[] visited;
+	private int currentSearch;
+
+	// binary heap of jump point indices ordered by their priority
+	private int[] visitedPoints;
+	private int visitedPointsSize;
+	private int[] priority;
+	private int[] heapIndex;
+
+	// the end point of the current search
+	private int endX;
+	private int endY;
+
+	/*
+	 * the jump from each point towards higher(right) and lower(left) y. A positive
+	 * value is the number of steps to the jump point, a negative one is the number
+	 * of steps to the last point before a wall when there is no jump point
+	 */
+	private int[] rightJumps;
+	private int[] leftJumps;
+	// whether the jumps of each row are up to date with the map
+	private boolean[] validRows;
+
+	// the number of points expanded by the last search
+	private int expandedPoints;
+
+	/**
+	 * Constructor for the class
+	 *
+	 * @param map : the map that the algorithm will use - its own, which is only
+	 *            changed through setMapPoint(the jumps of a row are only found
+	 *            again when setMapPoint sees one of its walls change)
+	 */
+	public JumpPointSearch(Grid map)
+	{
+		this.map = map;
+		columns = map.getColumns();
+		int size = map.getRows() * columns;
+		distance = new int[size];
+		parent = new int[size];
+		visited = new int[size];
+		visitedPoints = new int[size];
+		priority = new int[size];
+		heapIndex = new int[size];
+		rightJumps = new int[size];
+		leftJumps = new int[size];
+		validRows = new boolean[map.getRows()];
+	}
+
+	/**
+	 * Finds the shortest route from a start to an end point by jumping between
+	 * jump points and returns it point by point.
+	 *
+	 * @param x1 : x coordinate of the start point
+	 * @param y1 : y coordinate of the start point
+	 * @param x2 : x coordinate of the end point
+	 * @param y2 : y coordinate of the end point
+	 * @return : a 2d array of the coordinates of the route(without the start point)
+	 *         or null if there is no route
+	 */
+	@Override
+	protected int[][] pathfind(int x1, int y1, int x2, int y2)
+	{
+		int start = x1 * columns + y1;
+		int end = x2 * columns + y2;
+		endX = x2;
+		endY = y2;
+		startNewSearch();
+
+		distance[start] = 0;
+		parent[start] = -1;
+		visited[start] = currentSearch;
+		priority[start] = heuristic(x1, y1);
+		siftUp(start, visitedPointsSize++);
+
+		while (visitedPointsSize > 0)
+		{
+			int curPoint = poll();
+			expandedPoints++;
+			if (curPoint == end)
+			{
+				return buildRoute(start, end);
+			}
+			int x = curPoint / columns;
+			int y = curPoint - x * columns;
+
+			if (parent[curPoint] < 0)
+			{
+				// the start point goes in every direction
+				jump(curPoint, x, y, 1, 0);
+				jump(curPoint, x, y, 0, 1);
+				jump(curPoint, x, y, -1, 0);
+				jump(curPoint, x, y, 0, -1);
+				continue;
+			}
+			int dx = Integer.signum(x - parent[curPoint] / columns);
+			int dy = Integer.signum(y - parent[curPoint] % columns);
+			if (dx != 0)
+			{
+				// moving vertically - keep going and also try both sides
+				jump(curPoint, x, y, dx, 0);
+				jump(curPoint, x, y, 0, 1);
+				jump(curPoint, x, y, 0, -1);
+			}
+			else
+			{
+				// moving horizontally - keep going and also try both sides
+				jump(curPoint, x, y, 0, dy);
+				jump(curPoint, x, y, 1, 0);
+				jump(curPoint, x, y, -1, 0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param positionX : x coordinate of the point in the map
+	 * @param positionY : y coordinate of the point in the map
+	 * @param c         : the new char representation of that point
+	 */
+	@Override
+	protected void setMapPoint(int positionX, int positionY, char c)
+	{
+		if ((map.isWall(positionX, positionY)) != (c == '#'))
+		{
+			// a wall changes the jumps of its row and of the rows next to it
+			for (int x = Math.max(positionX - 1, 0); x <= Math.min(positionX + 1, map.getRows() - 1); x++)
+			{
+				validRows[x] = false;
+			}
+		}
+		map.set(positionX, positionY, c);
+	}
+
+	/**
+	 * @return : the number of points expanded by the last search
+	 */
+	@Override
+	protected int getExpandedPoints()
+	{
+		return expandedPoints;
+	}
+
+	/**
+	 * Jumps from a point in a direction and adds the jump point it reaches(if any)
+	 * to the priority queue
+	 *
+	 * @param from : index of the point the jump starts from
+	 * @param x    : x coordinate of the point the jump starts from
+	 * @param y    : y coordinate of the point the jump starts from
+	 * @param dx   : the direction of the jump along x
+	 * @param dy   : the direction of the jump along y
+	 */
+	private void jump(int from, int x, int y, int dx, int dy)
+	{
+		int steps = dx != 0 ? jumpVertically(x, y, dx) : jumpHorizontally(x, y, dy);
+		if (steps > 0)
+		{
+			visit(from, x + dx * steps, y + dy * steps, steps);
+		}
+	}
+
+	/**
+	 * Moves along x from a point until it reaches a jump point. A point is a jump
+	 * point if it is the end point, if a side of it opens up that was closed
+	 * before it or if a horizontal jump from it finds a jump point.
+	 *
+	 * @param x  : x coordinate of the point the jump starts from
+	 * @param y  : y coordinate of the point the jump starts from
+	 * @param dx : the direction of the jump(1 or -1)
+	 * @return : the number of steps to the jump point or 0 if there is none
+	 */
+	private int jumpVertically(int x, int y, int dx)
+	{
+		for (int steps = 1;; steps++)
+		{
+			int curX = x + dx * steps;
+			if (isWall(curX, y))
+			{
+				return 0;
+			}
+			if ((curX == endX && y == endY)
+					|| (!isWall(curX, y - 1) && isWall(curX - dx, y - 1))
+					|| (!isWall(curX, y + 1) && isWall(curX - dx, y + 1))
+					|| jumpHorizontally(curX, y, 1) > 0 || jumpHorizontally(curX, y, -1) > 0)
+			{
+				return steps;
+			}
+		}
+	}
+
+	/**
+	 * Moves along y from a point until it reaches a jump point. A point is a jump
+	 * point if it is the end point or if a side of it opens up that was closed
+	 * before it.
+	 *
+	 * @param x  : x coordinate of the point the jump starts from
+	 * @param y  : y coordinate of the point the jump starts from
+	 * @param dy : the direction of the jump(1 or -1)
+	 * @return : the number of steps to the jump point or 0 if there is none
+	 */
+	private int jumpHorizontally(int x, int y, int dy)
+	{
+		if (!validRows[x])
+		{
+			calculateJumps(x);
+		}
+		int jump = dy > 0 ? rightJumps[x * columns + y] : leftJumps[x * columns + y];
+		// the end point is a jump point if it is reached before the jump ends
+		int toEnd = (endY - y) * dy;
+		if (x == endX && toEnd > 0 && toEnd <= Math.abs(jump))
+		{
+			return toEnd;
+		}
+		return Math.max(jump, 0);
+	}
+
+	/**
+	 * Calculates the jumps along y of every point in a row
+	 *
+	 * @param x : the row
+	 */
+	private void calculateJumps(int x)
+	{
+		int row = x * columns;
+		for (int y = columns - 1; y >= 0; y--)
+		{
+			rightJumps[row + y] = nextJump(x, y, 1, y + 1 < columns ? rightJumps[row + y + 1] : 0);
+		}
+		for (int y = 0; y < columns; y++)
+		{
+			leftJumps[row + y] = nextJump(x, y, -1, y > 0 ? leftJumps[row + y - 1] : 0);
+		}
+		validRows[x] = true;
+	}
+
+	/**
+	 * Works out the jump from a point from the jump of its neighbour
+	 *
+	 * @param x            : x coordinate of the point
+	 * @param y            : y coordinate of the point
+	 * @param dy           : the direction of the jump(1 or -1)
+	 * @param neighbourJump : the jump from the next point in that direction
+	 * @return : the jump from the point
+	 */
+	private int nextJump(int x, int y, int dy, int neighbourJump)
+	{
+		int nextY = y + dy;
+		if (isWall(x, nextY))
+		{
+			return 0;
+		}
+		if ((!isWall(x - 1, nextY) && isWall(x - 1, y)) || (!isWall(x + 1, nextY) && isWall(x + 1, y)))
+		{
+			// a side opens up at the next point
+			return 1;
+		}
+		return neighbourJump > 0 ? neighbourJump + 1 : neighbourJump - 1;
+	}
+
+	/**
+	 * Adds a jump point to the priority queue or updates it if it has been
+	 * reached with a shorter distance
+	 *
+	 * @param from  : index of the point the jump started from
+	 * @param x     : x coordinate of the jump point
+	 * @param y     : y coordinate of the jump point
+	 * @param steps : the length of the jump
+	 */
+	private void visit(int from, int x, int y, int steps)
+	{
+		int point = x * columns + y;
+		int newDistance = distance[from] + steps;
+		if (visited[point] != currentSearch)
+		{
+			distance[point] = newDistance;
+			parent[point] = from;
+			visited[point] = currentSearch;
+			priority[point] = newDistance + heuristic(x, y);
+			siftUp(point, visitedPointsSize++);
+		}
+		else if (heapIndex[point] >= 0 && newDistance < distance[point])
+		{
+			priority[point] -= distance[point] - newDistance;
+			distance[point] = newDistance;
+			parent[point] = from;
+			siftUp(point, heapIndex[point]);
+		}
+	}
+
+	/**
+	 * Walks the jump points back from the end point and fills in the points
+	 * between them
+	 *
+	 * @param start : index of the start point
+	 * @param end   : index of the end point
+	 * @return : a 2d array of the coordinates of the route
+	 */
+	private int[][] buildRoute(int start, int end)
+	{
+		int[][] finalRoute = new int[distance[end]][];
+		int i = finalRoute.length - 1;
+		for (int point = end; point != start; point = parent[point])
+		{
+			// the jump points are on a straight line so go back one step at a time
+			int x = point / columns;
+			int y = point % columns;
+			int parentX = parent[point] / columns;
+			int parentY = parent[point] % columns;
+			int dx = Integer.signum(parentX - x);
+			int dy = Integer.signum(parentY - y);
+			while (x != parentX || y != parentY)
+			{
+				finalRoute[i--] = new int[]
+				{ x, y };
+				x += dx;
+				y += dy;
+			}
+		}
+		return finalRoute;
+	}
+
+	/**
+	 * @return : whether the point is a wall or outside the map
+	 */
+	private boolean isWall(int x, int y)
+	{
+		return x < 0 || y < 0 || x >= map.getRows() || y >= columns || map.isWall(x, y);
+	}
+
+	/**
+	 * Determines the heuristic between a point and the end point
+	 *
+	 * @return the distance between the two points
+	 */
+	private int heuristic(int x, int y)
+	{
+		return Math.abs(x - endX) + Math.abs(y - endY);
+	}
+
+	/**
+	 * Compares 2 points by their priority(in the priority queue). On equal priority
+	 * the point further from the beginning goes first as it is closer to the end.
+	 *
+	 * @return : true if point a goes before point b
+	 */
+	private boolean isBefore(int a, int b)
+	{
+		return priority[a] < priority[b] || (priority[a] == priority[b] && distance[a] > distance[b]);
+	}
+
+	/**
+	 * Moves a point up the heap until its parent goes before it
+	 *
+	 * @param point : index of the point
+	 * @param i     : the position in the heap the point starts from
+	 */
+	private void siftUp(int point, int i)
+	{
+		while (i > 0)
+		{
+			int up = (i - 1) >>> 1;
+			if (!isBefore(point, visitedPoints[up]))
+			{
+				break;
+			}
+			visitedPoints[i] = visitedPoints[up];
+			heapIndex[visitedPoints[i]] = i;
+			i = up;
+		}
+		visitedPoints[i] = point;
+		heapIndex[point] = i;
+	}
+
+	/**
+	 * Removes the point with the lowest priority from the priority queue
+	 *
+	 * @return : index of the point
+	 */
+	private int poll()
+	{
+		int first = visitedPoints[0];
+		int last = visitedPoints[--visitedPointsSize];
+		int i = 0;
+		while (true)
+		{
+			int down = 2 * i + 1;
+			if (down >= visitedPointsSize)
+			{
+				break;
+			}
+			if (down + 1 < visitedPointsSize && isBefore(visitedPoints[down + 1], visitedPoints[down]))
+			{
+				down++;
+			}
+			if (!isBefore(visitedPoints[down], last))
+			{
+				break;
+			}
+			visitedPoints[i] = visitedPoints[down];
+			heapIndex[visitedPoints[i]] = i;
+			i = down;
+		}
+		if (visitedPointsSize > 0)
+		{
+			visitedPoints[i] = last;
+			heapIndex[last] = i;
+		}
+		heapIndex[first] = -1;
+		return first;
+	}
+
+	/**
+	 * Empties the priority queue and moves on to the next search stamp
+	 */
+	private void startNewSearch()
+	{
+		visitedPointsSize = 0;
+		expandedPoints = 0;
+		currentSearch++;
+		if (currentSearch == Integer.MAX_VALUE)
+		{
+			java.util.Arrays.fill(visited, 0);
+			currentSearch = 1;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games on a game server at once with random commands and reports
+ * how many commands it answered per second and how long the answers took. A
+ * connection whose game ends starts a new one until it has sent all of its
+ * commands. The commands can be pipelined - sent in batches with one write, the
+ * latency of each command is then the time until the answers of its whole batch
+ * were read.
+ * <p>
+ * Run it with: java LoadTestClient [host] [port] [connections] [commands per
+ * connection] [commands per batch]
+ */
+public class LoadTestClient
+{
+	// the commands that are sent(QUIT would end the games too early)
+	private static final String[] COMMANDS =
+	{ "LOOK", "MOVE N", "MOVE S", "MOVE E", "MOVE W", "HELLO", "GOLD", "PICKUP" };
+
+	/**
+	 * Runs the load test and prints its results
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+		int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int commands = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+		int batch = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+		ExecutorService clients = GameServer.newThreadPerTaskExecutor();
+		List<Callable<long[]>> tasks = new ArrayList<>();
+		for (int i = 0; i < connections; i++)
+		{
+			long seed = i;
+			tasks.add(() -> play(host, port, commands, batch, new SplittableRandom(seed)));
+		}
+		long start = System.nanoTime();
+		List<Future<long[]>> results = clients.invokeAll(tasks);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		clients.shutdown();
+
+		// the latencies of every command and the games(the last value of each result)
+		long[] latencies = new long[connections * commands];
+		int count = 0;
+		long games = 0;
+		int failed = 0;
+		for (Future<long[]> result : results)
+		{
+			try
+			{
+				long[] values = result.get();
+				System.arraycopy(values, 0, latencies, count, values.length - 1);
+				count += values.length - 1;
+				games += values[values.length - 1];
+			} catch (ExecutionException e)
+			{
+				failed++;
+				if (failed == 1)
+				{
+					System.err.println("A connection failed: " + e.getCause());
+				}
+			}
+		}
+		Arrays.sort(latencies, 0, count);
+		System.out.printf("%d connections(%d failed), %d games, %d commands in %.2f s: %.0f commands/s%n", connections,
+				failed, games, count, seconds, count / seconds);
+		if (count > 0)
+		{
+			System.out.printf("latency p50 %.1f us, p99 %.1f us, max %.1f us%n", latencies[count / 2] / 1e3,
+					latencies[(int) (count * 99L / 100)] / 1e3, latencies[count - 1] / 1e3);
+		}
+	}
+
+	/**
+	 * Sends random commands to the server, starting a new game whenever one ends
+	 *
+	 * @param host     : the host of the server
+	 * @param port     : the port of the server
+	 * @param commands : the number of commands sent
+	 * @param batch    : the number of commands sent with one write
+	 * @param random   : the random numbers the commands are chosen with
+	 * @return : the latency of each command in nanoseconds followed by the number
+	 *         of games played
+	 * @throws IOException if the server can't be reached or closes a game early
+	 */
+	private static long[] play(String host, int port, int commands, int batch, SplittableRandom random)
+			throws IOException
+	{
+		long[] results = new long[commands + 1];
+		String[] batchCommands = new String[batch];
+		StringBuilder request = new StringBuilder();
+		int sent = 0;
+		while (sent < commands)
+		{
+			try (Socket socket = new Socket(host, port))
+			{
+				socket.setTcpNoDelay(true);
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				OutputStream out = socket.getOutputStream();
+				// the server starts with the name of the map
+				readAnswer(in);
+				results[commands]++;
+				boolean gameOver = false;
+				while (!gameOver && sent < commands)
+				{
+					int size = Math.min(batch, commands - sent);
+					request.setLength(0);
+					for (int i = 0; i < size; i++)
+					{
+						batchCommands[i] = COMMANDS[random.nextInt(COMMANDS.length)];
+						request.append(batchCommands[i]).append('\n');
+					}
+					long begin = System.nanoTime();
+					out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+					// the commands after the end of the game get no answers
+					int answered = 0;
+					while (!gameOver && answered < size)
+					{
+						String answer = readAnswer(in);
+						// the rows of LOOK end with an empty line
+						if (batchCommands[answered].equals("LOOK") && !isResult(answer))
+						{
+							while (!readAnswer(in).isEmpty())
+							{
+								// skip the rest of the rows
+							}
+						}
+						answered++;
+						gameOver = isResult(answer);
+					}
+					long latency = System.nanoTime() - begin;
+					for (int i = 0; i < answered; i++)
+					{
+						results[sent++] = latency;
+					}
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @param in : the connection to the server
+	 * @return : the next line sent by the server
+	 * @throws IOException if the server closed the connection
+	 */
+	private static String readAnswer(BufferedReader in) throws IOException
+	{
+		String line = in.readLine();
+		if (line == null)
+		{
+			throw new IOException("the server closed the connection");
+		}
+		return line;
+	}
+
+	/**
+	 * @param answer : an answer of the server
+	 * @return : whether it is the result of a game that ended
+	 */
+	private static boolean isResult(String answer)
+	{
+		return answer.startsWith("WIN") || answer.startsWith("LOSE");
+	}
+}
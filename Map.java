@@ -1,4 +1,11 @@
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
 
 /**
  * Reads and contains in memory the map of the game.
@@ -6,8 +13,19 @@ import java.io.*;
  */
 public class Map
 {
+	// files at least this big are memory-mapped instead of read into the heap
+	private static final int MAPPED_FILE_SIZE = 1 << 20;
+
+	// the extensions of the text map files and of the binary ones made from them
+	protected static final String TEXT_EXTENSION = ".txt";
+	protected static final String BINARY_EXTENSION = ".dmap";
+
+	// the start of every binary map file("DMAP") and the version of the format
+	private static final int BINARY_MAGIC = 0x444D4150;
+	private static final int BINARY_VERSION = 1;
+
 	// Representation of the map
-	private char[][] map;
+	private Grid grid;
 
 	// Map name
 	private String mapName;
@@ -15,6 +33,45 @@ public class Map
 	// Gold required for the human player to win
 	private int goldRequired;
 
+	/*
+	 * the gold, exit and free(not wall or gold) tiles of the map as loaded, stored
+	 * as x * columns + y - they come with a binary map file and are found the first
+	 * time they are asked for otherwise
+	 */
+	private int[] goldCells;
+	private int[] exitCells;
+	private int[] freeCells;
+
+	// the same lists in a mapped binary map file - copied out of it the first time
+	// they are asked for so opening the file doesn't have to read them
+	private IntBuffer[] mappedCells;
+
+	// the clusters of the map for hierarchical pathfinding - built the first time
+	// a bot asks for them and kept up to date with the map
+	private HierarchicalPathfinder hierarchicalPathfinder;
+
+	// the distances from the human player shared by the chasing bots - also made
+	// the first time a bot asks for it
+	private FlowField flowField;
+
+	// the tiles players can be spawned on - made from the lists of tiles when the
+	// map is frozen(or the first time a player is spawned on a random tile) and
+	// kept up to date with the map
+	private SpawnIndex spawnIndex;
+
+	// the latest changes of the map for whoever follows it - made the first time
+	// it is asked for, so the changes before that aren't in it
+	private MapJournal journal;
+
+	// what can be seen from the points of the map - made the first time a bot
+	// looks with a field of view and told about the walls that change
+	private FieldOfView fieldOfView;
+
+	// where the gold that hasn't been picked up and the exits are - made from the
+	// lists of tiles the first time they are asked for
+	private PointIndex goldIndex;
+	private PointIndex exitIndex;
+
 	/**
 	 * Default constructor, creates the default map "Very small Labyrinth of doom".
 	 */
@@ -22,7 +79,7 @@ public class Map
 	{
 		mapName = "Very small Labyrinth of Doom";
 		goldRequired = 2;
-		map = new char[][]
+		grid = new Grid(new char[][]
 		{
 				{ '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#' },
 				{ '#', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '#' },
@@ -32,23 +89,80 @@ public class Map
 				{ '#', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', 'G', '.', '.', '.', '.', '.', '.', '#' },
 				{ '#', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '#' },
 				{ '#', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '.', '#' },
-				{ '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#' } };
+				{ '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#', '#' } });
+	}
+
+	/**
+	 * Constructor for a map that is already in memory(e.g. a generated one).
+	 *
+	 * @param mapName      : the name of the map
+	 * @param goldRequired : gold required for the human player to win
+	 * @param map          : the representation of the map
+	 */
+	public Map(String mapName, int goldRequired, char[][] map)
+	{
+		this(mapName, goldRequired, new Grid(map));
 	}
 
 	/**
-	 * Constructor that accepts a map to read in from.
+	 * Constructor for a map that is already in memory as a grid.
 	 *
-	 * @param fileName : The filename of the map file.
-	 * @throws IOException               if there is no file with that name
-	 * @throws IndexOutOfBoundsException if the file structure is wrong
-	 * @throws NumberFormatException     if the win condition line in the file is
-	 *                                   wrong
+	 * @param mapName      : the name of the map
+	 * @param goldRequired : gold required for the human player to win
+	 * @param grid         : the representation of the map
 	 */
-	public Map(String fileName) throws IOException, IndexOutOfBoundsException, NumberFormatException
+	public Map(String mapName, int goldRequired, Grid grid)
+	{
+		this.mapName = mapName;
+		this.goldRequired = goldRequired;
+		this.grid = grid;
+	}
+
+	/**
+	 * Constructor that accepts a map to read in from. The binary version of the
+	 * map is used if there is one that is newer than the text file.
+	 *
+	 * @param fileName : The filename of the map file(without the extension).
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the file structure is wrong(it says on which
+	 *                            line and column)
+	 */
+	public Map(String fileName) throws IOException
 	{
 		readMap(fileName);
 	}
 
+	/**
+	 * @return : a copy of the map for a new game - it shares the tiles with this
+	 *         map until the game changes them and only copies the parts it changes
+	 */
+	protected Map copyOnWrite()
+	{
+		// the lists of tiles are found once and shared by every copy
+		findCells();
+		Map copy = new Map(mapName, goldRequired, grid.copyOnWrite());
+		copy.goldCells = goldCells;
+		copy.exitCells = exitCells;
+		copy.freeCells = freeCells;
+		// so are the lists of the spawn index - the copy only keeps what it changes
+		copy.spawnIndex = new SpawnIndex(getSpawnIndex());
+		return copy;
+	}
+
+	/**
+	 * Stops the map from being changed so it can be shared by every game that is
+	 * played on it(see copyOnWrite)
+	 */
+	protected void freeze()
+	{
+		findCells();
+		if (spawnIndex == null)
+		{
+			spawnIndex = new SpawnIndex(grid, freeCells, goldCells);
+		}
+		grid.freeze();
+	}
+
 	/**
 	 * @return : Gold required to exit the current map.
 	 */
@@ -57,12 +171,40 @@ public class Map
 		return goldRequired;
 	}
 
+	/**
+	 * @return : the gold tiles of the map as loaded(x * columns + y)
+	 */
+	protected int[] getGoldCells()
+	{
+		findCells();
+		return goldCells;
+	}
+
+	/**
+	 * @return : the exit tiles of the map as loaded(x * columns + y)
+	 */
+	protected int[] getExitCells()
+	{
+		findCells();
+		return exitCells;
+	}
+
+	/**
+	 * @return : the tiles of the map that aren't wall or gold as loaded(x * columns
+	 *         + y)
+	 */
+	protected int[] getFreeCells()
+	{
+		findCells();
+		return freeCells;
+	}
+
 	/**
 	 * @return : The map as stored in memory.
 	 */
-	protected char[][] getMap()
+	protected Grid getGrid()
 	{
-		return map;
+		return grid;
 	}
 
 	/**
@@ -74,7 +216,104 @@ public class Map
 	 */
 	protected char getMapPoint(int x, int y)
 	{
-		return map[x][y];
+		return grid.get(x, y);
+	}
+
+	/**
+	 * @return : the distances from the human player shared by every chasing bot
+	 */
+	protected FlowField getFlowField()
+	{
+		if (flowField == null)
+		{
+			flowField = new FlowField(grid);
+		}
+		return flowField;
+	}
+
+	/**
+	 * @return : the tiles players can be spawned on
+	 */
+	protected SpawnIndex getSpawnIndex()
+	{
+		if (spawnIndex == null)
+		{
+			spawnIndex = new SpawnIndex(grid);
+		}
+		return spawnIndex;
+	}
+
+	/**
+	 * @return : the latest changes of the map
+	 */
+	protected MapJournal getJournal()
+	{
+		if (journal == null)
+		{
+			journal = new MapJournal();
+		}
+		return journal;
+	}
+
+	/**
+	 * @return : what can be seen from the points of the map
+	 */
+	protected FieldOfView getFieldOfView()
+	{
+		if (fieldOfView == null)
+		{
+			fieldOfView = new FieldOfView(grid);
+		}
+		return fieldOfView;
+	}
+
+	/**
+	 * @return : where the gold that hasn't been picked up is(see removeGold)
+	 */
+	protected PointIndex getGoldIndex()
+	{
+		if (goldIndex == null)
+		{
+			goldIndex = new PointIndex(grid.getRows(), grid.getColumns(), getGoldCells());
+		}
+		return goldIndex;
+	}
+
+	/**
+	 * @return : where the exits are
+	 */
+	protected PointIndex getExitIndex()
+	{
+		if (exitIndex == null)
+		{
+			exitIndex = new PointIndex(grid.getRows(), grid.getColumns(), getExitCells());
+		}
+		return exitIndex;
+	}
+
+	/**
+	 * Takes picked up gold out of the gold index - the tile stays gold until the
+	 * player leaves it
+	 *
+	 * @param positionX : the x coordinate of the gold
+	 * @param positionY : the y coordinate of the gold
+	 */
+	protected void removeGold(int positionX, int positionY)
+	{
+		getGoldIndex().remove(positionX * grid.getColumns() + positionY);
+	}
+
+	/**
+	 * @return : the hierarchical pathfinder shared by everyone that uses the whole
+	 *         map
+	 */
+	protected HierarchicalPathfinder getHierarchicalPathfinder()
+	{
+		if (hierarchicalPathfinder == null)
+		{
+			hierarchicalPathfinder = new HierarchicalPathfinder(grid);
+		}
+		return hierarchicalPathfinder;
 	}
 
 	/**
@@ -93,56 +332,643 @@ public class Map
 	 */
 	protected void setMapPoint(int positionX, int positionY, char c)
 	{
-		map[positionX][positionY] = c;
+		char oldTile = grid.get(positionX, positionY);
+		if (journal != null && oldTile != c)
+		{
+			journal.append(positionX * grid.getColumns() + positionY, oldTile, c);
+		}
+		if ((oldTile == '#') != (c == '#'))
+		{
+			if (flowField != null)
+			{
+				flowField.wallChanged();
+			}
+			if (fieldOfView != null)
+			{
+				fieldOfView.wallChanged(positionX, positionY);
+			}
+		}
+		if (spawnIndex != null)
+		{
+			spawnIndex.update(positionX * grid.getColumns() + positionY, oldTile, c);
+		}
+		if (hierarchicalPathfinder != null)
+		{
+			// the pathfinder sets the point and updates the clusters if a wall changed
+			hierarchicalPathfinder.setMapPoint(positionX, positionY, c);
+		}
+		else
+		{
+			grid.set(positionX, positionY, c);
+		}
+	}
+
+	/**
+	 * Writes the map into a binary map file next to the text one. It holds the
+	 * header(name, gold required and size), the packed tiles and the gold, exit and
+	 * free tiles so loading it needs no parsing or scanning. Every number is a big
+	 * endian int:
+	 * 
+	 * <pre>
+	 * "DMAP" version name-length name(UTF-8) gold-required rows columns
+	 * tile-count tile-chars(a byte each) cells-length cells(see Grid)
+	 * gold-count gold-cells exit-count exit-cells free-count free-cells
+	 * </pre>
+	 *
+	 * @param fileName : the name of the file(without the extension)
+	 * @throws IOException if the file can't be written
+	 */
+	protected void writeBinaryMap(String fileName) throws IOException
+	{
+		findCells();
+		byte[] name = mapName.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer cells = grid.getCells();
+		ByteBuffer header = ByteBuffer.allocate(6 * 4 + name.length + 4 + grid.getTileCount() + 4);
+		header.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(name.length).put(name).putInt(goldRequired);
+		header.putInt(grid.getRows()).putInt(grid.getColumns()).putInt(grid.getTileCount());
+		for (int code = 0; code < grid.getTileCount(); code++)
+		{
+			header.put((byte) grid.getTile(code));
+		}
+		header.putInt(cells.remaining()).flip();
+		ByteBuffer indices = ByteBuffer.allocate(4 * (3 + goldCells.length + exitCells.length + freeCells.length));
+		for (int[] list : new int[][]
+		{ goldCells, exitCells, freeCells })
+		{
+			indices.putInt(list.length);
+			indices.asIntBuffer().put(list);
+			indices.position(indices.position() + 4 * list.length);
+		}
+		indices.flip();
+
+		// write into a temporary file first so a running game never maps half a file
+		Path path = toPath(fileName + BINARY_EXTENSION);
+		Path temporary = toPath(fileName + BINARY_EXTENSION + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer[] parts =
+			{ header, cells, indices };
+			while (indices.hasRemaining())
+			{
+				channel.write(parts);
+			}
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Writes the map into a snapshot of a game - the tiles, the gold that hasn't
+	 * been picked up, the exits, the goal of the chasing bots and the changes of
+	 * the journal its followers haven't seen yet
+	 *
+	 * @param snapshot     : the snapshot
+	 * @param journalSince : the oldest version of the journal a follower has seen
+	 */
+	protected void writeSnapshot(GameSnapshot snapshot, long journalSince)
+	{
+		snapshot.putString(mapName);
+		snapshot.reserve(4).putInt(goldRequired);
+		snapshot.putGrid(grid);
+		// some of the gold may be under a player, so it is taken from the index and not
+		// from the tiles
+		snapshot.putInts(getGoldIndex().toArray());
+		snapshot.putInts(getExitIndex().toArray());
+		if (journal == null)
+		{
+			snapshot.reserve(1).put((byte) 0);
+		}
+		else
+		{
+			// the changes the followers need are kept, the older ones are left out
+			long since = journal.isAvailable(journalSince) ? journalSince : journal.getVersion();
+			int count = (int) (journal.getVersion() - since);
+			ByteBuffer buffer = snapshot.reserve(13 + 8 * count);
+			buffer.put((byte) 1).putLong(since).putInt(count);
+			for (long change = since + 1; change <= journal.getVersion(); change++)
+			{
+				buffer.putInt(journal.getCell(change)).putChar(journal.getOldTile(change))
+						.putChar(journal.getNewTile(change));
+			}
+		}
+		snapshot.reserve(5).put((byte) (flowField == null ? 0 : 1)).putInt(flowField == null ? -1 : flowField.getGoal());
+	}
+
+	/**
+	 * Makes a map from a snapshot of a game(see writeSnapshot)
+	 *
+	 * @param snapshot : the snapshot, where the map was written
+	 * @return : the map
+	 */
+	protected static Map readSnapshot(GameSnapshot snapshot)
+	{
+		ByteBuffer buffer = snapshot.getBuffer();
+		String mapName = snapshot.getString();
+		int goldRequired = buffer.getInt();
+		Map map = new Map(mapName, goldRequired, snapshot.getGrid());
+		// the free tiles are found from the tiles(they are only used to write the map)
+		map.findCells();
+		map.goldCells = snapshot.getInts();
+		map.exitCells = snapshot.getInts();
+		if (buffer.get() != 0)
+		{
+			MapJournal journal = map.getJournal();
+			journal.restart(buffer.getLong());
+			for (int count = buffer.getInt(); count > 0; count--)
+			{
+				journal.append(buffer.getInt(), buffer.getChar(), buffer.getChar());
+			}
+		}
+		boolean hasFlowField = buffer.get() != 0;
+		int goal = buffer.getInt();
+		if (hasFlowField && goal >= 0)
+		{
+			map.getFlowField().setGoal(map.grid.getX(goal), map.grid.getY(goal));
+		}
+		return map;
+	}
+
+	/**
+	 * Finds the gold, exit and free tiles of the map if they aren't known yet
+	 */
+	private void findCells()
+	{
+		if (freeCells != null)
+		{
+			return;
+		}
+		if (mappedCells != null)
+		{
+			int[][] lists = new int[mappedCells.length][];
+			int size = grid.getRows() * grid.getColumns();
+			boolean valid = true;
+			for (int i = 0; i < lists.length && valid; i++)
+			{
+				lists[i] = new int[mappedCells[i].remaining()];
+				mappedCells[i].get(lists[i]);
+				for (int cell : lists[i])
+				{
+					valid &= cell >= 0 && cell < size;
+				}
+			}
+			mappedCells = null;
+			if (valid)
+			{
+				goldCells = lists[0];
+				exitCells = lists[1];
+				freeCells = lists[2];
+				return;
+			}
+			// a broken file only costs finding the tiles again
+		}
+		int rows = grid.getRows();
+		int columns = grid.getColumns();
+		int[] gold = new int[16];
+		int[] exit = new int[16];
+		int[] free = new int[16];
+		int goldCount = 0;
+		int exitCount = 0;
+		int freeCount = 0;
+		for (int i = 0; i < rows; i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				char tile = grid.get(i, j);
+				if (tile == 'G')
+				{
+					gold = grow(gold, goldCount);
+					gold[goldCount++] = i * columns + j;
+					continue;
+				}
+				if (tile == '#')
+				{
+					continue;
+				}
+				if (tile == 'E')
+				{
+					exit = grow(exit, exitCount);
+					exit[exitCount++] = i * columns + j;
+				}
+				free = grow(free, freeCount);
+				free[freeCount++] = i * columns + j;
+			}
+		}
+		goldCells = Arrays.copyOf(gold, goldCount);
+		exitCells = Arrays.copyOf(exit, exitCount);
+		freeCells = Arrays.copyOf(free, freeCount);
+	}
+
+	/**
+	 * @param array : an array that is being filled
+	 * @param count : the number of values in it
+	 * @return : the array or a bigger copy if it is full
+	 */
+	private static int[] grow(int[] array, int count)
+	{
+		return count < array.length ? array : Arrays.copyOf(array, 2 * array.length);
+	}
+
+	/**
+	 * @param fileName : the name of a file in the current directory
+	 * @return : its path
+	 * @throws FileNotFoundException if the name can't be a file name
+	 */
+	private static Path toPath(String fileName) throws FileNotFoundException
+	{
+		// get the current directory and complete the file location with the name of the
+		// file
+		String fileLocation = System.getProperty("user.dir") + "/" + fileName;
+		try
+		{
+			return Paths.get(fileLocation);
+		} catch (InvalidPathException e)
+		{
+			throw new FileNotFoundException(fileLocation);
+		}
+	}
+
+	/**
+	 * @param fileName : the name of a map(without the extension)
+	 * @return : the binary map file if there is one that isn't older than the text
+	 *         one, otherwise the text file(which might not exist)
+	 * @throws IOException if the files can't be checked
+	 */
+	protected static Path findFile(String fileName) throws IOException
+	{
+		Path path = toPath(fileName + TEXT_EXTENSION);
+		Path binaryPath = toPath(fileName + BINARY_EXTENSION);
+		if (Files.isRegularFile(binaryPath) && (!Files.exists(path)
+				|| Files.getLastModifiedTime(binaryPath).compareTo(Files.getLastModifiedTime(path)) >= 0))
+		{
+			return binaryPath;
+		}
+		return path;
+	}
+
+	/**
+	 * Reads only the header of a map file - the name, the gold required and the
+	 * size of the map. The tiles of a text map file are only looked at to count
+	 * the rows.
+	 *
+	 * @param fileName : the name of the map(without the extension)
+	 * @return : the header
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the header is wrong
+	 */
+	protected static MapHeader readHeader(String fileName) throws IOException
+	{
+		Path path = findFile(fileName);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (path.toString().endsWith(BINARY_EXTENSION))
+			{
+				try
+				{
+					return readBinaryHeader(buffer);
+				} catch (BufferUnderflowException e)
+				{
+					throw new MapFormatException("the file ends too early", buffer.position());
+				}
+			}
+			MapHeader header = parseHeader(buffer);
+			int position = buffer.position();
+			// the rows go on until the first empty line
+			int rows = 0;
+			int columns = findLineEnd(buffer, position) - position;
+			while (position < buffer.limit() && findLineEnd(buffer, position) != position)
+			{
+				position = skipLineEnd(buffer, findLineEnd(buffer, position));
+				rows++;
+			}
+			return new MapHeader(header.getMapName(), header.getGoldRequired(), rows, columns);
+		}
 	}
 
 	/**
-	 * Reads a file with a map
+	 * Reads a file with a map. A binary map file is used if there is one that isn't
+	 * older than the text one, otherwise the whole text file is read into
+	 * memory(or mapped into it if it is big) and parsed in one pass straight into
+	 * the grid.
 	 * 
 	 * @param fileName : The filename of the map file
-	 * @throws IOException               if there is no file with that name
-	 * @throws IndexOutOfBoundsException if the file structure is wrong
-	 * @throws NumberFormatException     if the win condition line in the file is
-	 *                                   wrong
-	 */
-	private void readMap(String fileName) throws IOException, IndexOutOfBoundsException, NumberFormatException
-	{
-		// get the current directory
-		String fileLocation = System.getProperty("user.dir");
-		// complete the file location with the name of the file
-		fileLocation += "/" + fileName + ".txt";
-		BufferedReader fileReader = new BufferedReader(new FileReader(fileLocation));
-		// map name begins from index 5 in the first line of the file
-		String line = fileReader.readLine();
-		mapName = line.substring(5);
-		// gold needed to win starts from index 4 of the second line
-		line = fileReader.readLine();
-		goldRequired = Integer.parseInt(line.substring(4));
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the file structure is wrong
+	 */
+	private void readMap(String fileName) throws IOException
+	{
+		Path path = findFile(fileName);
+		if (path.toString().endsWith(BINARY_EXTENSION))
+		{
+			readBinaryMap(path);
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new MapFormatException("the file is too big", 1, 1);
+			}
+			ByteBuffer buffer;
+			if (size >= MAPPED_FILE_SIZE)
+			{
+				// big files are read straight from the page cache without copying them first
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			else
+			{
+				buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				{
+					// keep reading until the buffer is full
+				}
+				buffer.flip();
+			}
+			parseMap(buffer);
+		}
+	}
+
+	/**
+	 * Reads a binary map file(see writeBinaryMap). The file is memory-mapped so
+	 * only the pages that are used are read and every game that opens it shares
+	 * them through the page cache - the tiles are copied into the grid in one go
+	 * as the game changes them and the lists of tiles stay in the file until they
+	 * are asked for.
+	 *
+	 * @param path : the path of the file
+	 * @throws IOException        if the file can't be read
+	 * @throws MapFormatException if the file structure is wrong
+	 */
+	private void readBinaryMap(Path path) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			try
+			{
+				MapHeader header = readBinaryHeader(buffer);
+				mapName = header.getMapName();
+				goldRequired = header.getGoldRequired();
+				int rows = header.getRows();
+				int columns = header.getColumns();
+				char[] tiles = new char[readCount(buffer, 1)];
+				for (int i = 0; i < tiles.length; i++)
+				{
+					tiles[i] = (char) (buffer.get() & 0xFF);
+				}
+				int cellsStart = buffer.position() + 4;
+				int cellsLength = readCount(buffer, 1);
+				try
+				{
+					grid = new Grid(rows, columns, tiles, buffer.slice(cellsStart, cellsLength));
+				} catch (IllegalArgumentException e)
+				{
+					throw new MapFormatException(e.getMessage(), cellsStart);
+				}
+				buffer.position(cellsStart + cellsLength);
+				mappedCells = new IntBuffer[3];
+				for (int i = 0; i < mappedCells.length; i++)
+				{
+					int count = readCount(buffer, 4);
+					mappedCells[i] = buffer.slice(buffer.position(), 4 * count).asIntBuffer();
+					buffer.position(buffer.position() + 4 * count);
+				}
+			} catch (BufferUnderflowException e)
+			{
+				throw new MapFormatException("the file ends too early", buffer.position());
+			}
+		}
+	}
+
+	/**
+	 * Reads the header of a binary map file up to the size of the map
+	 *
+	 * @param buffer : the content of the file
+	 * @return : the header
+	 * @throws MapFormatException       if the header is wrong
+	 * @throws BufferUnderflowException if the file ends too early
+	 */
+	private static MapHeader readBinaryHeader(ByteBuffer buffer) throws MapFormatException
+	{
+		if (buffer.getInt() != BINARY_MAGIC)
+		{
+			throw new MapFormatException("not a binary map file", 0);
+		}
+		if (buffer.getInt() != BINARY_VERSION)
+		{
+			throw new MapFormatException("unknown version of the binary map format", 4);
+		}
+		byte[] name = new byte[readCount(buffer, 1)];
+		buffer.get(name);
+		int goldRequired = buffer.getInt();
+		int rows = readCount(buffer, 0);
+		int columns = readCount(buffer, 0);
+		if (rows == 0 || columns == 0)
+		{
+			throw new MapFormatException("the map has no tiles", buffer.position() - 4);
+		}
+		return new MapHeader(new String(name, StandardCharsets.UTF_8), goldRequired, rows, columns);
+	}
 
-		String mapInLine = "";// temporary string that will contain the whole map
-		for (int x = 0; true; x++)
+	/**
+	 * @param buffer    : the content of a binary map file
+	 * @param valueSize : the size of each of the values counted(0 to only check it
+	 *                  isn't negative)
+	 * @return : the next int in the file that counts something
+	 * @throws MapFormatException if there isn't room for that many values in the
+	 *                            rest of the file
+	 */
+	private static int readCount(ByteBuffer buffer, int valueSize) throws MapFormatException
+	{
+		int count = buffer.getInt();
+		if (count < 0 || (long) count * valueSize > buffer.remaining())
 		{
-			// read the map from the file until it's over
-			line = fileReader.readLine();
-			if (line == null)
+			throw new MapFormatException("wrong count " + count, buffer.position() - 4);
+		}
+		return count;
+	}
+
+	/**
+	 * Parses the content of a map file - the name line, the win condition line and
+	 * then the rows of the map which all have to be the same width
+	 *
+	 * @param buffer : the content of the file
+	 * @throws MapFormatException if the file structure is wrong
+	 */
+	private void parseMap(ByteBuffer buffer) throws MapFormatException
+	{
+		int end = buffer.limit();
+		MapHeader header = parseHeader(buffer);
+		mapName = header.getMapName();
+		goldRequired = header.getGoldRequired();
+		int position = buffer.position();
+
+		// the width of the map is set by its first row
+		int lineNumber = 3;
+		int lineEnd = findLineEnd(buffer, position);
+		int width = lineEnd - position;
+		if (width == 0)
+		{
+			throw new MapFormatException("the map has no rows", lineNumber, 1);
+		}
+		// the most rows the rest of the file can hold - the ones that aren't used are
+		// dropped at the end
+		grid = new Grid((end - position + 1) / (width + 1), width);
+		byte[] row = new byte[width];
+		int rowCount = 0;
+		while (position < end)
+		{
+			if (buffer.get(position) == '\n' || buffer.get(position) == '\r')
 			{
-				fileReader.close();
-				// determine the size of the map char array
-				map = new char[x][mapInLine.length() / x];
+				// empty lines are only allowed at the end of the file
+				int emptyLine = lineNumber;
+				while (position < end)
+				{
+					lineEnd = findLineEnd(buffer, position);
+					if (lineEnd != position)
+					{
+						throw new MapFormatException("empty line inside the map", emptyLine, 1);
+					}
+					position = skipLineEnd(buffer, lineEnd);
+				}
 				break;
 			}
-			mapInLine += line;
+
+			if (end - position < width)
+			{
+				// the last row of the file is too short
+				int length = findLineEnd(buffer, position) - position;
+				throw new MapFormatException("the row is " + length + " tiles wide instead of " + width, lineNumber, length + 1);
+			}
+			buffer.get(position, row);
+			// the grid only takes printable chars so it also finds line ends and wrong chars
+			int wrong = grid.setRow(rowCount, row);
+			if (wrong >= 0)
+			{
+				if (row[wrong] == '\n' || row[wrong] == '\r')
+				{
+					throw new MapFormatException("the row is " + wrong + " tiles wide instead of " + width, lineNumber,
+							wrong + 1);
+				}
+				if (row[wrong] < '!' || row[wrong] > '~')
+				{
+					throw new MapFormatException("unexpected character", lineNumber, wrong + 1);
+				}
+				throw new MapFormatException("too many different tiles", lineNumber, wrong + 1);
+			}
+			position += width;
+			if (position < end && buffer.get(position) != '\n' && buffer.get(position) != '\r')
+			{
+				throw new MapFormatException("the row is " + (findLineEnd(buffer, position) - position + width)
+						+ " tiles wide instead of " + width, lineNumber, width + 1);
+			}
+			rowCount++;
+			position = skipLineEnd(buffer, position);
+			lineNumber++;
+		}
+		if (rowCount < grid.getRows())
+		{
+			grid.trimRows(rowCount);
+		}
+	}
+
+	/**
+	 * Parses the name line and the win condition line of a map file
+	 *
+	 * @param buffer : the content of the file - its position is moved to the
+	 *               start of the first row
+	 * @return : the header without the size of the map
+	 * @throws MapFormatException if the lines are wrong
+	 */
+	private static MapHeader parseHeader(ByteBuffer buffer) throws MapFormatException
+	{
+		// map name begins from index 5 in the first line of the file
+		int lineEnd = findLineEnd(buffer, 0);
+		if (!startsWith(buffer, 0, lineEnd, "name "))
+		{
+			throw new MapFormatException("the first line has to be \"name <map name>\"", 1, 1);
+		}
+		byte[] name = new byte[lineEnd - 5];
+		buffer.get(5, name);
+		int position = skipLineEnd(buffer, lineEnd);
+
+		// gold needed to win starts from index 4 of the second line
+		lineEnd = findLineEnd(buffer, position);
+		if (!startsWith(buffer, position, lineEnd, "win ") || lineEnd == position + 4)
+		{
+			throw new MapFormatException("the second line has to be \"win <gold required>\"", 2, 1);
+		}
+		int goldRequired = 0;
+		for (int i = position + 4; i < lineEnd; i++)
+		{
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9 || goldRequired > (Integer.MAX_VALUE - digit) / 10)
+			{
+				throw new MapFormatException("wrong gold win condition", 2, i - position + 1);
+			}
+			goldRequired = goldRequired * 10 + digit;
 		}
+		buffer.position(skipLineEnd(buffer, lineEnd));
+		return new MapHeader(new String(name, StandardCharsets.UTF_8), goldRequired, 0, 0);
+	}
 
-		// go through each element in mapInLine and assign it to the corresponding spot
-		// in the map char array
-		for (int i = 0; i < map.length; i++)
+	/**
+	 * @param buffer   : the content of the file
+	 * @param position : the start of a line
+	 * @return : the index of the \r or \n that ends the line(or the end of the file)
+	 */
+	private static int findLineEnd(ByteBuffer buffer, int position)
+	{
+		int end = buffer.limit();
+		while (position < end && buffer.get(position) != '\n' && buffer.get(position) != '\r')
+		{
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * @param buffer  : the content of the file
+	 * @param lineEnd : the end of a line
+	 * @return : the start of the next line
+	 */
+	private static int skipLineEnd(ByteBuffer buffer, int lineEnd)
+	{
+		int end = buffer.limit();
+		if (lineEnd < end && buffer.get(lineEnd) == '\r')
+		{
+			lineEnd++;
+		}
+		if (lineEnd < end && buffer.get(lineEnd) == '\n')
+		{
+			lineEnd++;
+		}
+		return lineEnd;
+	}
+
+	/**
+	 * @param buffer  : the content of the file
+	 * @param start   : the start of a line
+	 * @param lineEnd : the end of the line
+	 * @param prefix  : the text the line should start with
+	 * @return : whether the line starts with the text
+	 */
+	private static boolean startsWith(ByteBuffer buffer, int start, int lineEnd, String prefix)
+	{
+		if (lineEnd - start < prefix.length())
+		{
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++)
 		{
-			for (int j = 0; j < map[0].length; j++)
+			if (buffer.get(start + i) != prefix.charAt(i))
 			{
-				map[i][j] = mapInLine.charAt(i * map[0].length + j);
+				return false;
 			}
 		}
+		return true;
 	}
 
 }
@@ -0,0 +1,39 @@
+import java.io.IOException;
+
+/**
+ * Converts text map files into binary map files(see Map.writeBinaryMap) that
+ * load without parsing. Run it from the directory with the map files:
+ * java MapConverter "Maze of Doom" "Tiny Map" ...
+ */
+public class MapConverter
+{
+	/**
+	 * Converts every map named in the arguments
+	 */
+	public static void main(String[] args)
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: java MapConverter <map name>...");
+			System.exit(1);
+		}
+		int failed = 0;
+		for (String name : args)
+		{
+			try
+			{
+				long start = System.nanoTime();
+				Map map = new Map(name);
+				map.writeBinaryMap(name);
+				System.out.printf("%s -> %s%s (%dx%d, %d gold, %d exits, %.1f ms)%n", name, name, Map.BINARY_EXTENSION,
+						map.getGrid().getRows(), map.getGrid().getColumns(), map.getGoldCells().length,
+						map.getExitCells().length, (System.nanoTime() - start) / 1e6);
+			} catch (IOException e)
+			{
+				System.err.println(name + ": " + e.getMessage());
+				failed++;
+			}
+		}
+		System.exit(failed == 0 ? 0 : 1);
+	}
+}
@@ -0,0 +1,56 @@
+import java.io.IOException;
+
+/**
+ * Thrown when a map file can be read but its content is wrong. It knows the
+ * line and column(both starting from 1) where the problem was found in a text
+ * map file - in a binary one they are 0 and the message says at which byte.
+ */
+public class MapFormatException extends IOException
+{
+	private static final long serialVersionUID = 1L;
+
+	// where in the file the problem is
+	private int line;
+	private int column;
+
+	/**
+	 * Constructor for the exception
+	 *
+	 * @param message : what is wrong
+	 * @param line    : the line of the file with the problem
+	 * @param column  : the column of the line with the problem
+	 */
+	public MapFormatException(String message, int line, int column)
+	{
+		super("line " + line + ", column " + column + ": " + message);
+		this.line = line;
+		this.column = column;
+	}
+
+	/**
+	 * Constructor for the exception in a binary map file
+	 *
+	 * @param message : what is wrong
+	 * @param offset  : the byte of the file where the problem was found
+	 */
+	public MapFormatException(String message, long offset)
+	{
+		super("byte " + offset + ": " + message);
+	}
+
+	/**
+	 * @return : the line of the file with the problem
+	 */
+	protected int getLine()
+	{
+		return line;
+	}
+
+	/**
+	 * @return : the column of the line with the problem
+	 */
+	protected int getColumn()
+	{
+		return column;
+	}
+}
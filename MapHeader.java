@@ -0,0 +1,64 @@
+/**
+ * What a map file says about its map before the tiles - enough to list the maps
+ * without loading them.
+ */
+public class MapHeader
+{
+	// Map name
+	private String mapName;
+
+	// Gold required for the human player to win
+	private int goldRequired;
+
+	// the size of the map
+	private int rows;
+	private int columns;
+
+	/**
+	 * Constructor for the header
+	 *
+	 * @param mapName      : the name of the map
+	 * @param goldRequired : gold required for the human player to win
+	 * @param rows         : the number of rows
+	 * @param columns      : the number of columns
+	 */
+	public MapHeader(String mapName, int goldRequired, int rows, int columns)
+	{
+		this.mapName = mapName;
+		this.goldRequired = goldRequired;
+		this.rows = rows;
+		this.columns = columns;
+	}
+
+	/**
+	 * @return : the name of the map
+	 */
+	protected String getMapName()
+	{
+		return mapName;
+	}
+
+	/**
+	 * @return : gold required for the human player to win
+	 */
+	protected int getGoldRequired()
+	{
+		return goldRequired;
+	}
+
+	/**
+	 * @return : the number of rows
+	 */
+	protected int getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * @return : the number of columns
+	 */
+	protected int getColumns()
+	{
+		return columns;
+	}
+}
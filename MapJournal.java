@@ -0,0 +1,129 @@
+/**
+ * The latest changes of a map in a ring buffer - each change has a version
+ * number(the first is 1) and the version of the journal is the one of the
+ * latest change. Whoever follows the map(a bot, a renderer or a session)
+ * remembers the version it has seen and reads only the changes after it:
+ *
+ * <pre>
+ * if (journal.isAvailable(seen))
+ * 	for (long v = seen + 1; v &lt;= journal.getVersion(); v++)
+ * 		... journal.getCell(v), journal.getNewTile(v) ...
+ * else
+ * 	... look at the whole map ...
+ * seen = journal.getVersion();
+ * </pre>
+ *
+ * Only the last changes are kept, so a follower that falls further behind has
+ * to look at the whole map again.
+ */
+public class MapJournal
+{
+	// the number of changes kept if no other number is given
+	protected static final int DEFAULT_CAPACITY = 4096;
+
+	// the changes - version v is at (v - 1) & mask
+	private int[] cells;
+	private char[] oldTiles;
+	private char[] newTiles;
+	private int mask;
+
+	// the version of the latest change and the one the journal started at(the
+	// changes before it aren't in it)
+	private long version;
+	private long firstVersion;
+
+	/**
+	 * Default constructor
+	 */
+	public MapJournal()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor for the journal
+	 *
+	 * @param capacity : the least number of changes that are kept(it is rounded
+	 *                 up to a power of 2)
+	 */
+	public MapJournal(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+		cells = new int[size];
+		oldTiles = new char[size];
+		newTiles = new char[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Adds a change, replacing the oldest one if the journal is full
+	 *
+	 * @param cell    : the point that changed(x * columns + y)
+	 * @param oldTile : what it was
+	 * @param newTile : what it is now
+	 */
+	protected void append(int cell, char oldTile, char newTile)
+	{
+		int slot = (int) version & mask;
+		cells[slot] = cell;
+		oldTiles[slot] = oldTile;
+		newTiles[slot] = newTile;
+		version++;
+	}
+
+	/**
+	 * Empties the journal and starts it at a version(e.g. the one of a game that
+	 * is restored) - the next change has the version after it
+	 *
+	 * @param startVersion : the version it starts at
+	 */
+	protected void restart(long startVersion)
+	{
+		version = startVersion;
+		firstVersion = startVersion;
+	}
+
+	/**
+	 * @return : the version of the latest change(0 if nothing changed)
+	 */
+	protected long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * @param seen : the version a follower has seen
+	 * @return : whether every change after it is still kept
+	 */
+	protected boolean isAvailable(long seen)
+	{
+		return seen >= firstVersion && seen <= version && version - seen <= cells.length;
+	}
+
+	/**
+	 * @param changeVersion : the version of a change that is kept
+	 * @return : the point that changed(x * columns + y)
+	 */
+	protected int getCell(long changeVersion)
+	{
+		return cells[(int) (changeVersion - 1) & mask];
+	}
+
+	/**
+	 * @param changeVersion : the version of a change that is kept
+	 * @return : what the point was before
+	 */
+	protected char getOldTile(long changeVersion)
+	{
+		return oldTiles[(int) (changeVersion - 1) & mask];
+	}
+
+	/**
+	 * @param changeVersion : the version of a change that is kept
+	 * @return : what the point was changed to
+	 */
+	protected char getNewTile(long changeVersion)
+	{
+		return newTiles[(int) (changeVersion - 1) & mask];
+	}
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps the maps games are played on. Each map file is parsed once into a
+ * template that is never changed and every game gets a copy on write of it, so
+ * a game on a map that is already loaded needs no reading or parsing and only
+ * stores the parts of the map it changes. The templates that were used the
+ * longest time ago are dropped when there are too many of them.
+ * <p>
+ * It also keeps a catalog of the map files in the current directory - their
+ * headers are only read when they are asked for. Every method can be called
+ * from any thread.
+ */
+public class MapRepository
+{
+	// the number of templates kept if no other number is given
+	protected static final int DEFAULT_CAPACITY = 16;
+
+	// the templates by file name, the one used the longest time ago first
+	private LinkedHashMap<String, Map> templates;
+
+	// when the file of each template was changed at the time it was loaded
+	private HashMap<String, FileTime> versions;
+
+	// the maps in the current directory by file name - the header of each is null
+	// until it is read(null until the directory is listed)
+	private TreeMap<String, MapHeader> catalog;
+
+	// the number of templates loaded from their files
+	private int loads;
+
+	/**
+	 * Default constructor
+	 */
+	public MapRepository()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor for the repository
+	 *
+	 * @param capacity : the most templates that are kept at once
+	 */
+	public MapRepository(int capacity)
+	{
+		versions = new HashMap<>();
+		// in access order so the eldest entry is the one used the longest time ago
+		templates = new LinkedHashMap<>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(java.util.Map.Entry<String, Map> eldest)
+			{
+				if (size() <= capacity)
+				{
+					return false;
+				}
+				versions.remove(eldest.getKey());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Makes a map for a new game
+	 *
+	 * @param fileName : the name of the map file(without the extension)
+	 * @return : a copy on write of the template of the map
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the file structure is wrong
+	 */
+	protected synchronized Map newGame(String fileName) throws IOException
+	{
+		return getTemplate(fileName).copyOnWrite();
+	}
+
+	/**
+	 * Gives the template of a map - it is loaded if it isn't kept or its file
+	 * changed since it was loaded
+	 *
+	 * @param fileName : the name of the map file(without the extension)
+	 * @return : the template, which can't be changed
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the file structure is wrong
+	 */
+	protected synchronized Map getTemplate(String fileName) throws IOException
+	{
+		FileTime version;
+		try
+		{
+			version = Files.getLastModifiedTime(Map.findFile(fileName));
+		} catch (NoSuchFileException e)
+		{
+			// the file is gone so its template can't be used any more
+			templates.remove(fileName);
+			versions.remove(fileName);
+			throw e;
+		}
+		Map template = templates.get(fileName);
+		if (template != null && version.equals(versions.get(fileName)))
+		{
+			return template;
+		}
+		template = new Map(fileName);
+		template.freeze();
+		loads++;
+		templates.put(fileName, template);
+		versions.put(fileName, version);
+		if (catalog != null && catalog.containsKey(fileName))
+		{
+			Grid grid = template.getGrid();
+			catalog.put(fileName,
+					new MapHeader(template.getMapName(), template.getGoldRequired(), grid.getRows(), grid.getColumns()));
+		}
+		return template;
+	}
+
+	/**
+	 * @return : the names of the map files in the current directory(without the
+	 *         extension) in alphabetical order
+	 * @throws IOException if the directory can't be listed
+	 */
+	protected synchronized String[] getMapNames() throws IOException
+	{
+		if (catalog == null)
+		{
+			refresh();
+		}
+		return catalog.keySet().toArray(new String[0]);
+	}
+
+	/**
+	 * Gives the header of a map, which is read the first time it is asked for
+	 *
+	 * @param fileName : the name of the map file(without the extension)
+	 * @return : the header
+	 * @throws IOException        if there is no file with that name
+	 * @throws MapFormatException if the header is wrong
+	 */
+	protected synchronized MapHeader getHeader(String fileName) throws IOException
+	{
+		if (catalog == null)
+		{
+			refresh();
+		}
+		MapHeader header = catalog.get(fileName);
+		if (header == null)
+		{
+			header = Map.readHeader(fileName);
+			if (catalog.containsKey(fileName))
+			{
+				catalog.put(fileName, header);
+			}
+		}
+		return header;
+	}
+
+	/**
+	 * Lists the map files in the current directory again - the headers are read
+	 * again when they are asked for
+	 *
+	 * @throws IOException if the directory can't be listed
+	 */
+	protected synchronized void refresh() throws IOException
+	{
+		TreeMap<String, MapHeader> newCatalog = new TreeMap<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(System.getProperty("user.dir")),
+				"*{" + Map.TEXT_EXTENSION + "," + Map.BINARY_EXTENSION + "}"))
+		{
+			for (Path file : files)
+			{
+				String name = file.getFileName().toString();
+				newCatalog.put(name.substring(0, name.lastIndexOf('.')), null);
+			}
+		}
+		catalog = newCatalog;
+	}
+
+	/**
+	 * @return : the number of templates kept
+	 */
+	protected synchronized int getTemplateCount()
+	{
+		return templates.size();
+	}
+
+	/**
+	 * @return : the number of times a template was loaded from its file
+	 */
+	protected synchronized int getLoadCount()
+	{
+		return loads;
+	}
+}
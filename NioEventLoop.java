@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A thread that serves many connections with one selector without ever
+ * blocking on one of them. Every read is followed by one write with the
+ * answers to all the commands in it, so a client that sends a batch of
+ * commands in one write gets all the answers in one. The bytes are read into
+ * and the answers written from direct buffers that are shared by every
+ * connection of the loop - only a connection that can't take its answers at
+ * once keeps a copy of them.
+ */
+public class NioEventLoop implements Runnable
+{
+	// the size of the shared buffers
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// a connection with more answers than this waiting isn't read from until they
+	// are written
+	private static final int MAX_PENDING = 64 * 1024;
+
+	private Selector selector;
+
+	// the connections handed to the loop that aren't registered yet
+	private Queue<NioSession> newSessions = new ConcurrentLinkedQueue<>();
+
+	// the buffers shared by every connection
+	private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Constructor for the loop
+	 *
+	 * @throws IOException if the selector can't be opened
+	 */
+	public NioEventLoop() throws IOException
+	{
+		selector = Selector.open();
+	}
+
+	/**
+	 * Hands a connection to the loop - it can be called from any thread
+	 *
+	 * @param session : the game of the connection(its channel has to be non
+	 *                blocking)
+	 */
+	protected void add(NioSession session)
+	{
+		newSessions.add(session);
+		selector.wakeup();
+	}
+
+	/**
+	 * Stops the loop and closes its connections
+	 *
+	 * @throws IOException if the selector can't be closed
+	 */
+	protected void close() throws IOException
+	{
+		for (SelectionKey key : selector.keys())
+		{
+			key.channel().close();
+		}
+		selector.close();
+	}
+
+	/**
+	 * Serves the connections until the loop is closed
+	 */
+	@Override
+	public void run()
+	{
+		try
+		{
+			while (selector.isOpen())
+			{
+				selector.select();
+				registerNewSessions();
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext())
+				{
+					SelectionKey key = keys.next();
+					keys.remove();
+					NioSession session = (NioSession) key.attachment();
+					try
+					{
+						if (key.isValid() && key.isWritable())
+						{
+							flush(key, session, false);
+						}
+						if (key.isValid() && key.isReadable())
+						{
+							read(key, session);
+						}
+					} catch (IOException e)
+					{
+						// a broken connection only ends its own game
+						key.channel().close();
+					}
+				}
+			}
+		} catch (ClosedSelectorException e)
+		{
+			// the loop was closed
+		} catch (IOException e)
+		{
+			System.err.println("The event loop stopped(" + e.getMessage() + ")");
+		}
+	}
+
+	/**
+	 * Registers the connections handed to the loop and sends each of them the
+	 * first line of the protocol
+	 */
+	private void registerNewSessions() throws IOException
+	{
+		NioSession session;
+		while ((session = newSessions.poll()) != null)
+		{
+			SocketChannel channel = session.getChannel();
+			try
+			{
+				SelectionKey key = channel.register(selector, SelectionKey.OP_READ, session);
+				writeBuffer.clear();
+				session.greet(writeBuffer);
+				flush(key, session, true);
+			} catch (IOException e)
+			{
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads what the connection sent and writes the answers to its commands
+	 *
+	 * @param key     : the key of the connection
+	 * @param session : its game
+	 */
+	private void read(SelectionKey key, NioSession session) throws IOException
+	{
+		readBuffer.clear();
+		int read = session.getChannel().read(readBuffer);
+		if (read < 0)
+		{
+			// the client went away
+			key.channel().close();
+			return;
+		}
+		if (session.isGameOver())
+		{
+			// after the game the commands are dropped until the client closes
+			return;
+		}
+		readBuffer.flip();
+		writeBuffer.clear();
+		session.process(readBuffer, writeBuffer);
+		flush(key, session, true);
+	}
+
+	/**
+	 * Writes the answers of a connection and decides what the loop waits for next
+	 * on it - once the game is over and everything is written the connection is
+	 * shut for writing and the commands still on their way are dropped until the
+	 * client closes it(closing it with unread data would reset it and might lose
+	 * the last answers)
+	 *
+	 * @param key        : the key of the connection
+	 * @param session    : its game
+	 * @param newAnswers : whether the write buffer holds new answers of the
+	 *                   connection
+	 */
+	private void flush(SelectionKey key, NioSession session, boolean newAnswers) throws IOException
+	{
+		if (newAnswers)
+		{
+			writeBuffer.flip();
+		}
+		else
+		{
+			writeBuffer.clear().flip();
+		}
+		boolean written = session.write(writeBuffer);
+		if (written && session.isGameOver())
+		{
+			session.getChannel().shutdownOutput();
+			key.interestOps(SelectionKey.OP_READ);
+			return;
+		}
+		int interest = written ? 0 : SelectionKey.OP_WRITE;
+		// stop reading from a client that doesn't read its answers
+		if (session.getPendingBytes() < MAX_PENDING)
+		{
+			interest |= SelectionKey.OP_READ;
+		}
+		key.interestOps(interest);
+	}
+}
@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Hosts games over TCP like GameServer but without a thread per connection -
+ * the connections are spread over a few event loops(see NioEventLoop) that
+ * never block, so the number of games is only limited by memory.
+ * <p>
+ * Run it from the directory with the map files: java NioGameServer [port] [map
+ * name] [EASY|NORMAL|HARD|NIGHTMARE] [event loops]
+ */
+public class NioGameServer
+{
+	// the maps of the games
+	private MapRepository repository;
+
+	// the map and bot difficulty of every game
+	private String mapName;
+	private int difficulty;
+
+	private ServerSocketChannel serverChannel;
+	private Thread acceptor;
+	private NioEventLoop[] loops;
+	private Thread[] loopThreads;
+
+	/**
+	 * Constructor for the server
+	 *
+	 * @param repository : the maps of the games
+	 * @param mapName    : the name of the map file every game is played on
+	 * @param difficulty : the difficulty of the bot of every game
+	 */
+	public NioGameServer(MapRepository repository, String mapName, int difficulty)
+	{
+		this.repository = repository;
+		this.mapName = mapName;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * Starts listening for connections
+	 *
+	 * @param port      : the port to listen on(0 for any free one)
+	 * @param loopCount : the number of event loops
+	 * @throws IOException        if the port can't be used or the map can't be read
+	 * @throws MapFormatException if the structure of the map file is wrong
+	 */
+	protected void start(int port, int loopCount) throws IOException
+	{
+		// load the map before the first game so a wrong one is found at once
+		repository.getTemplate(mapName);
+		loops = new NioEventLoop[loopCount];
+		loopThreads = new Thread[loopCount];
+		for (int i = 0; i < loopCount; i++)
+		{
+			loops[i] = new NioEventLoop();
+			loopThreads[i] = new Thread(loops[i], "NioGameServer loop " + i);
+			loopThreads[i].start();
+		}
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(new InetSocketAddress(port), 1024);
+		acceptor = new Thread(this::accept, "NioGameServer acceptor");
+		acceptor.start();
+	}
+
+	/**
+	 * @return : the port the server listens on
+	 * @throws IOException if the server isn't listening
+	 */
+	protected int getPort() throws IOException
+	{
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Stops the server and closes every connection
+	 *
+	 * @throws IOException if something can't be closed
+	 */
+	protected void close() throws IOException
+	{
+		serverChannel.close();
+		for (NioEventLoop loop : loops)
+		{
+			loop.close();
+		}
+	}
+
+	/**
+	 * Waits for the server to stop listening
+	 *
+	 * @throws InterruptedException if the thread is interrupted while it waits
+	 */
+	protected void join() throws InterruptedException
+	{
+		acceptor.join();
+	}
+
+	/**
+	 * Accepts connections until the server is closed, starts a game for each of
+	 * them and hands them to the event loops in turn
+	 */
+	private void accept()
+	{
+		int next = 0;
+		while (serverChannel.isOpen())
+		{
+			SocketChannel channel = null;
+			try
+			{
+				// the acceptor is the only thread that blocks
+				channel = serverChannel.accept();
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				GameLogic game = new GameLogic(repository.newGame(mapName));
+				game.spawnHumanPlayer();
+				game.spawnBot(difficulty);
+				loops[next].add(new NioSession(channel, game));
+				next = (next + 1) % loops.length;
+			} catch (IOException e)
+			{
+				if (serverChannel.isOpen())
+				{
+					System.err.println("Can't accept a connection(" + e.getMessage() + ")");
+				}
+				if (channel != null)
+				{
+					try
+					{
+						channel.close();
+					} catch (IOException closeException)
+					{
+						// it is dropped anyway
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the server until the process is stopped
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+		String mapName = args.length > 1 ? args[1] : "Maze of Doom";
+		int difficulty = args.length > 2 ? GameSession.parseDifficulty(args[2]) : 2;
+		int loops = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		if (difficulty < 0)
+		{
+			System.err.println("Unrecognised difficulty " + args[2]);
+			System.exit(1);
+		}
+		NioGameServer server = new NioGameServer(new MapRepository(), mapName, difficulty);
+		GameMetrics.start();
+		server.start(port, loops);
+		System.out.println("Dungeons of Doom server on port " + server.getPort() + " playing " + mapName + " with "
+				+ loops + " event loops");
+		server.join();
+	}
+}
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One game played over a non-blocking connection(see NioEventLoop) with the
+ * same text protocol as GameSession. The bytes read are split into commands
+ * without making strings for the ones the protocol knows, and the answers to
+ * every command of one read are written together. The line "BINARY" switches
+ * the session to the binary protocol(see BinaryProtocol).
+ */
+public class NioSession
+{
+	// the longest command that is kept(anything longer is cut and so invalid)
+	private static final int MAX_LINE = 256;
+
+	// the commands of the protocol - a line with the same bytes is given the
+	// string from here
+	private static final String[] COMMANDS =
+	{ "MOVE N", "MOVE S", "MOVE E", "MOVE W", "LOOK", "HELLO", "GOLD", "PICKUP", "QUIT" };
+	private static final byte[][] COMMAND_BYTES = new byte[COMMANDS.length][];
+	private static final byte[] SWITCH_BYTES = BinaryProtocol.SWITCH_COMMAND.getBytes(StandardCharsets.US_ASCII);
+	static
+	{
+		for (int i = 0; i < COMMANDS.length; i++)
+		{
+			COMMAND_BYTES[i] = COMMANDS[i].getBytes(StandardCharsets.US_ASCII);
+		}
+	}
+
+	private SocketChannel channel;
+	private GameLogic game;
+
+	// the start of a line that hasn't ended yet in the bytes read so far
+	private byte[] line = new byte[MAX_LINE];
+	private int lineLength;
+
+	// whether the session speaks the binary protocol
+	private boolean binary;
+
+	// the answers that couldn't be written yet(null if there are none) - ready to
+	// be read from
+	private ByteBuffer pending;
+
+	/**
+	 * Constructor for the session
+	 *
+	 * @param channel : the connection to the client
+	 * @param game    : the game played over it(the players have to be spawned)
+	 */
+	public NioSession(SocketChannel channel, GameLogic game)
+	{
+		this.channel = channel;
+		this.game = game;
+	}
+
+	/**
+	 * @return : the connection to the client
+	 */
+	protected SocketChannel getChannel()
+	{
+		return channel;
+	}
+
+	/**
+	 * @return : whether the game has ended(the connection is closed once every
+	 *         answer is written)
+	 */
+	protected boolean isGameOver()
+	{
+		return game.isGameOver();
+	}
+
+	/**
+	 * @return : the number of bytes of answers that are waiting to be written
+	 */
+	protected int getPendingBytes()
+	{
+		return pending == null ? 0 : pending.remaining();
+	}
+
+	/**
+	 * Adds the first line of the protocol(the name of the map) to the answers
+	 *
+	 * @param out : the answers that will be written
+	 */
+	protected void greet(ByteBuffer out)
+	{
+		append(out, game.getMap().getMapName());
+	}
+
+	/**
+	 * Plays the command of every whole line that was read and adds the answers -
+	 * the start of a line that hasn't ended is kept for the next read. Nothing is
+	 * played after the game ends.
+	 *
+	 * @param in  : the bytes read from the connection
+	 * @param out : the answers that will be written
+	 */
+	protected void process(ByteBuffer in, ByteBuffer out)
+	{
+		while (in.hasRemaining() && !game.isGameOver())
+		{
+			byte b = in.get();
+			if (binary)
+			{
+				if (out.remaining() < BinaryProtocol.MAX_REPLY_SIZE)
+				{
+					out.flip();
+					spill(out);
+					out.clear();
+				}
+				BinaryProtocol.playTurn(game, b & 0xFF, out);
+				continue;
+			}
+			if (b != '\n')
+			{
+				if (b != '\r' && lineLength < line.length)
+				{
+					line[lineLength++] = b;
+				}
+				continue;
+			}
+			// empty lines are skipped like in the console
+			if (lineLength == SWITCH_BYTES.length && Arrays.equals(SWITCH_BYTES, 0, lineLength, line, 0, lineLength))
+			{
+				// the rest of the bytes are opcodes
+				binary = true;
+				append(out, BinaryProtocol.SWITCH_COMMAND);
+			}
+			else if (lineLength > 0)
+			{
+				append(out, game.playTurn(toCommand()));
+			}
+			lineLength = 0;
+		}
+	}
+
+	/**
+	 * Writes as many of the answers as the connection takes - what it doesn't take
+	 * is kept and written first the next time
+	 *
+	 * @param out : the answers added since the last write(ready to be written)
+	 * @return : whether everything was written
+	 * @throws IOException if the connection is broken
+	 */
+	protected boolean write(ByteBuffer out) throws IOException
+	{
+		if (pending != null)
+		{
+			spill(out);
+			channel.write(pending);
+			if (pending.hasRemaining())
+			{
+				return false;
+			}
+			pending = null;
+			return true;
+		}
+		channel.write(out);
+		if (out.hasRemaining())
+		{
+			spill(out);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return : the string of the command in the line
+	 */
+	private String toCommand()
+	{
+		for (int i = 0; i < COMMAND_BYTES.length; i++)
+		{
+			byte[] command = COMMAND_BYTES[i];
+			if (command.length == lineLength && Arrays.equals(command, 0, lineLength, line, 0, lineLength))
+			{
+				return COMMANDS[i];
+			}
+		}
+		// it isn't a command so the answer is Invalid anyway
+		return new String(line, 0, lineLength, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Adds an answer and the new line after it
+	 *
+	 * @param out    : the answers that will be written
+	 * @param answer : the answer
+	 */
+	private void append(ByteBuffer out, String answer)
+	{
+		if (out.remaining() < answer.length() + 1)
+		{
+			// the shared buffer is full so the answers so far wait in the session
+			out.flip();
+			spill(out);
+			out.clear();
+		}
+		if (out.remaining() < answer.length() + 1)
+		{
+			// an answer bigger than the whole buffer
+			out.flip();
+			spill(out);
+			out.clear();
+			pending.compact();
+			pending = ensureCapacity(pending, answer.length() + 1);
+			putAnswer(pending, answer);
+			pending.flip();
+			return;
+		}
+		putAnswer(out, answer);
+	}
+
+	/**
+	 * @param buffer : where the answer is put
+	 * @param answer : the answer(in ASCII)
+	 */
+	private static void putAnswer(ByteBuffer buffer, String answer)
+	{
+		for (int i = 0; i < answer.length(); i++)
+		{
+			buffer.put((byte) answer.charAt(i));
+		}
+		buffer.put((byte) '\n');
+	}
+
+	/**
+	 * Moves bytes that can't be written now to the end of the pending ones
+	 *
+	 * @param bytes : the bytes(ready to be read)
+	 */
+	private void spill(ByteBuffer bytes)
+	{
+		if (!bytes.hasRemaining())
+		{
+			return;
+		}
+		if (pending == null)
+		{
+			pending = ByteBuffer.allocate(Math.max(bytes.remaining(), 1024)).flip();
+		}
+		pending.compact();
+		pending = ensureCapacity(pending, bytes.remaining());
+		pending.put(bytes);
+		pending.flip();
+	}
+
+	/**
+	 * @param buffer : a buffer being written into
+	 * @param extra  : the bytes that have to fit in it
+	 * @return : the buffer or a bigger copy of it
+	 */
+	private static ByteBuffer ensureCapacity(ByteBuffer buffer, int extra)
+	{
+		if (buffer.remaining() >= extra)
+		{
+			return buffer;
+		}
+		ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + extra));
+		buffer.flip();
+		return bigger.put(buffer);
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Superclass for the algorithms used for bot movement. They all find a route
+ * on a grid where '#' is a wall and every other point can be walked on.
+ */
+public abstract class Pathfinder
+{
+	/**
+	 * Finds the shortest route from a start to an end point and returns it.
+	 *
+	 * @param x1 : x coordinate of the start point
+	 * @param y1 : y coordinate of the start point
+	 * @param x2 : x coordinate of the end point
+	 * @param y2 : y coordinate of the end point
+	 * @return : a 2d array of the coordinates of the route(without the start point)
+	 *         or null if there is no route
+	 */
+	protected abstract int[][] pathfind(int x1, int y1, int x2, int y2);
+
+	/**
+	 * Sets a point in the map used by the algorithm
+	 *
+	 * @param positionX : x coordinate of the point in the map
+	 * @param positionY : y coordinate of the point in the map
+	 * @param c         : the new char representation of that point
+	 */
+	protected abstract void setMapPoint(int positionX, int positionY, char c);
+
+	/**
+	 * @return : the number of points expanded by the last search
+	 */
+	protected abstract int getExpandedPoints();
+
+	/**
+	 * Writes what the algorithm keeps between routes into a snapshot of a game -
+	 * nothing unless the routes it finds depend on the earlier ones
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	protected void writeSnapshot(GameSnapshot snapshot)
+	{
+	}
+
+	/**
+	 * Reads what writeSnapshot wrote into an algorithm that hasn't found a route
+	 * yet on the same map
+	 *
+	 * @param snapshot : the snapshot
+	 */
+	protected void readSnapshot(GameSnapshot snapshot)
+	{
+	}
+}
@@ -0,0 +1,237 @@
+import java.util.Arrays;
+
+/**
+ * Where the points of interest of a map are(e.g. its gold or its exits), kept
+ * in square buckets of the map so a point is added, removed or looked up in the
+ * time it takes to look through its bucket. The nearest ones to a point are
+ * found by searching the map from it only until they are reached.
+ * <p>
+ * The points are stored as x * columns + y like the lists of tiles of Map.
+ */
+public class PointIndex
+{
+	// the buckets are BUCKET_SIZE x BUCKET_SIZE points
+	private static final int BUCKET_SHIFT = 3;
+	private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+	// the number of columns of the map
+	private int columns;
+
+	// the points in each bucket(row by row) - only the first bucketSizes[i] are
+	// used
+	private int bucketColumns;
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private int size;
+
+	// the breadth first search of the map by path distance - a point is visited
+	// if it has the current search stamp and was reached from its parent
+	private int[] visited;
+	private int[] parent;
+	private int[] queue;
+	private int currentSearch;
+	private int searchStart;
+
+	/**
+	 * Constructor for the index
+	 *
+	 * @param rows    : the number of rows of the map
+	 * @param columns : the number of columns of the map
+	 * @param points  : the points that are in it at first(x * columns + y)
+	 */
+	public PointIndex(int rows, int columns, int[] points)
+	{
+		this.columns = columns;
+		int bucketRows = (rows + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+		bucketColumns = (columns + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+		buckets = new int[bucketRows * bucketColumns][];
+		bucketSizes = new int[buckets.length];
+		for (int point : points)
+		{
+			add(point);
+		}
+	}
+
+	/**
+	 * @param point : a point of the map(x * columns + y)
+	 * @return : the bucket it is in
+	 */
+	private int bucketOf(int point)
+	{
+		return (point / columns >> BUCKET_SHIFT) * bucketColumns + (point % columns >> BUCKET_SHIFT);
+	}
+
+	/**
+	 * Adds a point if it isn't in the index
+	 *
+	 * @param point : the point(x * columns + y)
+	 */
+	protected void add(int point)
+	{
+		if (contains(point))
+		{
+			return;
+		}
+		int bucket = bucketOf(point);
+		if (buckets[bucket] == null)
+		{
+			buckets[bucket] = new int[4];
+		}
+		else if (bucketSizes[bucket] == buckets[bucket].length)
+		{
+			buckets[bucket] = Arrays.copyOf(buckets[bucket], buckets[bucket].length * 2);
+		}
+		buckets[bucket][bucketSizes[bucket]++] = point;
+		size++;
+	}
+
+	/**
+	 * Removes a point if it is in the index
+	 *
+	 * @param point : the point(x * columns + y)
+	 * @return : whether it was in the index
+	 */
+	protected boolean remove(int point)
+	{
+		int bucket = bucketOf(point);
+		for (int i = 0; i < bucketSizes[bucket]; i++)
+		{
+			if (buckets[bucket][i] == point)
+			{
+				// the last point of the bucket takes its place
+				buckets[bucket][i] = buckets[bucket][--bucketSizes[bucket]];
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param point : a point(x * columns + y)
+	 * @return : whether it is in the index
+	 */
+	protected boolean contains(int point)
+	{
+		int bucket = bucketOf(point);
+		for (int i = 0; i < bucketSizes[bucket]; i++)
+		{
+			if (buckets[bucket][i] == point)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return : the number of points in the index
+	 */
+	protected int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return : the points in the index(x * columns + y) bucket by bucket - adding
+	 *         them in this order to an empty index makes the same index
+	 */
+	protected int[] toArray()
+	{
+		int[] points = new int[size];
+		int count = 0;
+		for (int bucket = 0; bucket < buckets.length; bucket++)
+		{
+			for (int i = 0; i < bucketSizes[bucket]; i++)
+			{
+				points[count++] = buckets[bucket][i];
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Finds the points nearest to a point by the length of the shortest route to
+	 * them. The map is searched breadth first from the point only until they are
+	 * found, so the parts of the map farther away than them aren't looked at.
+	 *
+	 * @param grid    : the map the routes go through
+	 * @param x       : the x coordinate of the point
+	 * @param y       : the y coordinate of the point
+	 * @param count   : how many points are found
+	 * @param blocked : a tile the routes don't go through besides walls(e.g. 'B',
+	 *                '#' if there is none)
+	 * @return : the nearest points(x * columns + y) that can be reached, the
+	 *         nearest first - fewer than count if fewer can be reached
+	 */
+	protected int[] nearestByPath(Grid grid, int x, int y, int count, char blocked)
+	{
+		int[] found = new int[Math.min(count, size)];
+		if (found.length == 0)
+		{
+			return found;
+		}
+		if (visited == null || visited.length != grid.getSize())
+		{
+			visited = new int[grid.getSize()];
+			parent = new int[grid.getSize()];
+			queue = new int[grid.getSize()];
+			currentSearch = 0;
+		}
+		currentSearch++;
+		int stride = grid.getStride();
+		int[] offsets =
+		{ -stride, stride, 1, -1 };
+		int foundCount = 0;
+		int start = grid.index(x, y);
+		searchStart = start;
+		int head = 0;
+		int tail = 0;
+		visited[start] = currentSearch;
+		queue[tail++] = start;
+		while (head < tail && foundCount < found.length)
+		{
+			int index = queue[head++];
+			int point = grid.getX(index) * columns + grid.getY(index);
+			if (contains(point))
+			{
+				found[foundCount++] = point;
+			}
+			// the border around the map is wall so it needs no checks
+			for (int offset : offsets)
+			{
+				int next = index + offset;
+				if (visited[next] != currentSearch && !grid.isWallAt(next) && grid.getAt(next) != blocked)
+				{
+					visited[next] = currentSearch;
+					parent[next] = index;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return foundCount == found.length ? found : Arrays.copyOf(found, foundCount);
+	}
+
+	/**
+	 * Gives the first step of the shortest route to a point the last
+	 * nearestByPath found
+	 *
+	 * @param grid  : the map the routes went through
+	 * @param point : the point(x * columns + y)
+	 * @return : the point the route goes to from the start(see Grid.index) or -1
+	 *         if the point is the start
+	 */
+	protected int firstStepTo(Grid grid, int point)
+	{
+		int index = grid.index(point / columns, point % columns);
+		if (index == searchStart)
+		{
+			return -1;
+		}
+		while (parent[index] != searchStart)
+		{
+			index = parent[index];
+		}
+		return index;
+	}
+}
@@ -0,0 +1,32 @@
+import java.util.SplittableRandom;
+
+/**
+ * An agent that plays a random command of the protocol every turn(without
+ * QUIT so the game only ends when the bot catches it).
+ */
+public class RandomAgent implements Agent
+{
+	// the commands it chooses from
+	private static final int[] COMMANDS =
+	{ GameLogic.LOOK, GameLogic.MOVE_NORTH, GameLogic.MOVE_SOUTH, GameLogic.MOVE_EAST, GameLogic.MOVE_WEST,
+			GameLogic.HELLO, GameLogic.GOLD, GameLogic.PICKUP };
+
+	// the random numbers it chooses with
+	private SplittableRandom random;
+
+	/**
+	 * Constructor for the agent
+	 *
+	 * @param random : the random numbers it chooses with
+	 */
+	public RandomAgent(SplittableRandom random)
+	{
+		this.random = random;
+	}
+
+	@Override
+	public int nextCommand(GameLogic game)
+	{
+		return COMMANDS[random.nextInt(COMMANDS.length)];
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * An agent that plays a fixed list of commands again and again.
+ */
+public class ScriptedAgent implements Agent
+{
+	// the numbers of the commands that are played in order
+	private int[] script;
+	// the index of the next command
+	private int next;
+
+	/**
+	 * Constructor for the agent
+	 *
+	 * @param script : the commands that are played in order(as typed in the
+	 *               console, e.g. "MOVE N")
+	 */
+	public ScriptedAgent(String... script)
+	{
+		this.script = new int[script.length];
+		for (int i = 0; i < script.length; i++)
+		{
+			this.script[i] = GameLogic.parseCommand(script[i]);
+		}
+	}
+
+	@Override
+	public int nextCommand(GameLogic game)
+	{
+		int command = script[next];
+		next = (next + 1) % script.length;
+		return command;
+	}
+}
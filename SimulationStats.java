@@ -0,0 +1,121 @@
+/**
+ * How the games of one map and bot difficulty ended in a simulation.
+ */
+public class SimulationStats
+{
+	// what was played
+	private String mapName;
+	private int difficulty;
+
+	// the number of games that ended each way(unfinished ones ran out of turns)
+	private int games;
+	private int won;
+	private int lost;
+	private int caught;
+	private int unfinished;
+
+	// the turns played in all the games
+	private long turns;
+
+	/**
+	 * Constructor for the statistics
+	 *
+	 * @param mapName    : the name of the map file
+	 * @param difficulty : the difficulty of the bot
+	 */
+	public SimulationStats(String mapName, int difficulty)
+	{
+		this.mapName = mapName;
+		this.difficulty = difficulty;
+	}
+
+	/**
+	 * Counts a game
+	 *
+	 * @param state     : how it ended(see GameLogic, PLAYING if it ran out of turns)
+	 * @param gameTurns : the turns played in it
+	 */
+	protected void add(int state, int gameTurns)
+	{
+		games++;
+		turns += gameTurns;
+		switch (state)
+		{
+		case GameLogic.WON:
+			won++;
+			break;
+		case GameLogic.LOST:
+			lost++;
+			break;
+		case GameLogic.CAUGHT:
+			caught++;
+			break;
+		default:
+			unfinished++;
+		}
+	}
+
+	/**
+	 * @return : the name of the map file
+	 */
+	protected String getMapName()
+	{
+		return mapName;
+	}
+
+	/**
+	 * @return : the difficulty of the bot
+	 */
+	protected int getDifficulty()
+	{
+		return difficulty;
+	}
+
+	/**
+	 * @return : the number of games played
+	 */
+	protected int getGames()
+	{
+		return games;
+	}
+
+	/**
+	 * @return : the number of games the human player won
+	 */
+	protected int getWon()
+	{
+		return won;
+	}
+
+	/**
+	 * @return : the number of games the human player quit without winning
+	 */
+	protected int getLost()
+	{
+		return lost;
+	}
+
+	/**
+	 * @return : the number of games the bot caught the human player in
+	 */
+	protected int getCaught()
+	{
+		return caught;
+	}
+
+	/**
+	 * @return : the number of games that ran out of turns
+	 */
+	protected int getUnfinished()
+	{
+		return unfinished;
+	}
+
+	/**
+	 * @return : the turns played in all the games
+	 */
+	protected long getTurns()
+	{
+		return turns;
+	}
+}
@@ -0,0 +1,280 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Plays many games without a console so the bots can be tuned and the speed of
+ * the game measured. The human player is played by an agent and every random
+ * choice of a game comes from its own seed, so the results of a simulation
+ * only depend on its seed and not on how the games are spread over the threads
+ * of the fork/join pool they run on.
+ * <p>
+ * Run it from the directory with the map files: java Simulator [games]
+ * [greedy|random] [seed] [map name...] which plays that many games on every
+ * map(all of them if none is given) with every bot difficulty. The number of
+ * bots in each game is set with -Dbots=N(1 if it isn't set) and how far they
+ * see with -Dvision=N(the 5x5 square LOOK shows if it isn't set). With
+ * -Dlog=directory every game is recorded in that directory(see GameLog) so any
+ * of them can be played again with GameReplayer.
+ */
+public class Simulator
+{
+	// the names of the bot difficulties(difficulty 1 first)
+	private static final String[] DIFFICULTIES =
+	{ "EASY", "NORMAL", "HARD", "NIGHTMARE" };
+
+	// the turns a game is played for if it doesn't end before
+	protected static final int DEFAULT_MAX_TURNS = 1000;
+
+	// the maps the games are played on
+	private MapRepository repository;
+
+	// makes the agent of each game from the random numbers of the game
+	private Function<SplittableRandom, Agent> agents;
+
+	// the threads the games are played on
+	private ForkJoinPool pool;
+
+	private int maxTurns = DEFAULT_MAX_TURNS;
+
+	// the algorithm the bots find their routes with
+	private int botPathfinding = BotPlayer.INCREMENTAL_PATHFINDING;
+
+	// the number of bots in each game
+	private int botCount = 1;
+
+	// how far the bots see(0 for the square LOOK shows)
+	private int botVision;
+
+	// the directory the games are recorded in(null if they aren't)
+	private Path logDirectory;
+
+	/**
+	 * Constructor for the simulator
+	 *
+	 * @param repository : the maps the games are played on
+	 * @param agents     : makes the agent of each game from the random numbers of
+	 *                   the game
+	 * @param pool       : the threads the games are played on
+	 */
+	public Simulator(MapRepository repository, Function<SplittableRandom, Agent> agents, ForkJoinPool pool)
+	{
+		this.repository = repository;
+		this.agents = agents;
+		this.pool = pool;
+	}
+
+	/**
+	 * @param maxTurns : the turns a game is played for if it doesn't end before
+	 */
+	protected void setMaxTurns(int maxTurns)
+	{
+		this.maxTurns = maxTurns;
+	}
+
+	/**
+	 * @param pathfinding : the algorithm the bots find their routes with(one of the
+	 *                    BotPlayer *_PATHFINDING constants)
+	 */
+	protected void setBotPathfinding(int pathfinding)
+	{
+		botPathfinding = pathfinding;
+	}
+
+	/**
+	 * @param botCount : the number of bots in each game
+	 */
+	protected void setBotCount(int botCount)
+	{
+		this.botCount = botCount;
+	}
+
+	/**
+	 * @param radius : how far the bots see(0 for the square LOOK shows)
+	 */
+	protected void setBotVision(int radius)
+	{
+		botVision = radius;
+	}
+
+	/**
+	 * @param directory : the directory every game is recorded in(null if they
+	 *                  aren't)
+	 */
+	protected void setLogDirectory(Path directory)
+	{
+		logDirectory = directory;
+	}
+
+	/**
+	 * Plays games on every map with every difficulty
+	 *
+	 * @param mapNames     : the names of the map files
+	 * @param difficulties : the difficulties of the bot
+	 * @param games        : the games played on each map with each difficulty
+	 * @param seed         : the seed every game gets its own seed from
+	 * @return : the statistics of each map and difficulty(in the order of the
+	 *         maps, then of the difficulties)
+	 * @throws IOException        if a map can't be read
+	 * @throws MapFormatException if the structure of a map file is wrong
+	 */
+	protected SimulationStats[] run(String[] mapNames, int[] difficulties, int games, long seed) throws IOException
+	{
+		// load every map before the games start so a wrong one is found at once
+		for (String mapName : mapNames)
+		{
+			repository.getTemplate(mapName);
+		}
+		int groups = mapNames.length * difficulties.length;
+		long[] seeds = new long[groups * games];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < seeds.length; i++)
+		{
+			seeds[i] = random.nextLong();
+		}
+
+		// each game writes only its own results so the games share nothing
+		int[] states = new int[seeds.length];
+		int[] turns = new int[seeds.length];
+		try
+		{
+			pool.submit(() -> IntStream.range(0, seeds.length).parallel().forEach(i ->
+			{
+				int group = i / games;
+				int[] result = playGame(mapNames[group / difficulties.length], difficulties[group % difficulties.length],
+						seeds[i]);
+				states[i] = result[0];
+				turns[i] = result[1];
+			})).get();
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("the simulation was interrupted", e);
+		} catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof UncheckedIOException)
+			{
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IllegalStateException("a game failed", e.getCause());
+		}
+
+		SimulationStats[] stats = new SimulationStats[groups];
+		for (int group = 0; group < groups; group++)
+		{
+			stats[group] = new SimulationStats(mapNames[group / difficulties.length],
+					difficulties[group % difficulties.length]);
+			for (int i = group * games; i < (group + 1) * games; i++)
+			{
+				stats[group].add(states[i], turns[i]);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Plays one game until it ends or runs out of turns
+	 *
+	 * @param mapName    : the name of the map file
+	 * @param difficulty : the difficulty of the bot
+	 * @param seed       : the seed of the random choices of the game
+	 * @return : how the game ended(see GameLogic, PLAYING if it ran out of turns)
+	 *         and the turns played
+	 */
+	protected int[] playGame(String mapName, int difficulty, long seed)
+	{
+		SplittableRandom random = new SplittableRandom(seed);
+		GameLogic game;
+		GameLog log = null;
+		try
+		{
+			game = new GameLogic(repository.newGame(mapName), random.nextLong());
+			if (logDirectory != null)
+			{
+				// the seed of the game names its log so it is found from the simulation
+				log = new GameLog(logDirectory.resolve(mapName + "-" + difficulty + "-" + Long.toHexString(seed)
+						+ GameLog.EXTENSION), mapName);
+			}
+		} catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		try (GameLog gameLog = log)
+		{
+			game.setLog(gameLog);
+			game.setBotPathfinding(botPathfinding);
+			game.setBotVision(botVision);
+			Agent agent = agents.apply(random.split());
+			game.spawnHumanPlayer();
+			game.spawnBots(difficulty, botCount);
+			int turns = 0;
+			while (!game.isGameOver() && turns < maxTurns)
+			{
+				game.playTurn(agent.nextCommand(game));
+				turns++;
+			}
+			return new int[]
+			{ game.getState(), turns };
+		} catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Runs a simulation and prints its results
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		String agent = args.length > 1 ? args[1] : "greedy";
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		MapRepository repository = new MapRepository();
+		String[] mapNames = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length)
+				: repository.getMapNames();
+		int[] difficulties =
+		{ 1, 2, 3, 4 };
+
+		Simulator simulator = new Simulator(repository,
+				agent.equals("random") ? RandomAgent::new : GreedyAgent::new, ForkJoinPool.commonPool());
+		simulator.setBotCount(Integer.getInteger("bots", 1));
+		simulator.setBotVision(Integer.getInteger("vision", 0));
+		String logDirectory = System.getProperty("log");
+		if (logDirectory != null)
+		{
+			simulator.setLogDirectory(Paths.get(logDirectory));
+		}
+		GameMetrics.start();
+		long start = System.nanoTime();
+		SimulationStats[] results = simulator.run(mapNames, difficulties, games, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%-24s %-10s %8s %8s %8s %8s %10s %10s%n", "Map", "Bot", "games", "won %", "lost %",
+				"caught %", "unfinished", "avg turns");
+		long totalGames = 0;
+		long totalTurns = 0;
+		for (SimulationStats stats : results)
+		{
+			double games100 = stats.getGames() / 100.0;
+			System.out.printf("%-24s %-10s %8d %8.1f %8.1f %8.1f %10d %10.1f%n", stats.getMapName(),
+					DIFFICULTIES[stats.getDifficulty() - 1], stats.getGames(), stats.getWon() / games100,
+					stats.getLost() / games100, stats.getCaught() / games100, stats.getUnfinished(),
+					(double) stats.getTurns() / stats.getGames());
+			totalGames += stats.getGames();
+			totalTurns += stats.getTurns();
+		}
+		System.out.printf("%d games, %d turns in %.2f s: %.0f games/s, %.0f turns/s on %d threads%n", totalGames,
+				totalTurns, seconds, totalGames / seconds, totalTurns / seconds, ForkJoinPool.commonPool().getParallelism());
+		if (GameMetrics.ENABLED)
+		{
+			System.out.print(GameMetrics.report());
+		}
+	}
+}
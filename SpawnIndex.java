@@ -0,0 +1,321 @@
+import java.util.Arrays;
+
+/**
+ * The tiles of a map players can be spawned on, in a list for each kind of
+ * tile(floor, exit and gold - walls and tiles with a player on them are in
+ * none), so a random tile of some kinds is picked in one go without trying
+ * tiles until one fits.
+ * <p>
+ * The lists of the map as it was loaded and where each tile is in them are
+ * made once(4 bytes for each tile of the map and 4 more for each tile players
+ * can be spawned on) and shared by every game on it, like its tiles(see
+ * Map.copyOnWrite). A tile that changes kind is taken out of its list by moving
+ * the last tile of the list into its place and is added to the end of the list
+ * of its new kind. A game only keeps how long its lists are and, in two small
+ * hash maps, the places in them that don't hold the tile they held when the map
+ * was loaded - so it costs a few hundred bytes until its map changes and then a
+ * few more for every tile that moved.
+ */
+public class SpawnIndex
+{
+	// the kinds of tiles
+	protected static final int FLOOR = 0;
+	protected static final int EXIT = 1;
+	protected static final int GOLD = 2;
+	private static final int KINDS = 3;
+
+	// the kinds the human player and the bots can be spawned on(a bit for each
+	// kind)
+	protected static final int HUMAN_TILES = 1 << FLOOR | 1 << EXIT;
+	protected static final int BOT_TILES = 1 << FLOOR | 1 << EXIT | 1 << GOLD;
+
+	// the tiles of each kind when the map was loaded(x * columns + y) and the
+	// place of each tile in them(place * KINDS + kind, -1 if it was in no list) -
+	// shared by every game on the map and never changed
+	private int[][] loadedCells;
+	private int[] loadedPlaces;
+
+	// the number of tiles of each kind now
+	private int[] counts = new int[KINDS];
+
+	// the places that hold another tile than when the map was loaded(place *
+	// KINDS + kind to the tile) and the tiles that are in another place(tile to
+	// place * KINDS + kind, -1 if it isn't in any list now)
+	private IntHashMap movedCells = new IntHashMap();
+	private IntHashMap movedPlaces = new IntHashMap();
+
+	/**
+	 * Constructor for the index of a map that is found from its tiles
+	 *
+	 * @param grid : the tiles of the map
+	 */
+	public SpawnIndex(Grid grid)
+	{
+		int columns = grid.getColumns();
+		loadedPlaces = new int[grid.getRows() * columns];
+		int[][] cells = new int[KINDS][16];
+		for (int i = 0; i < grid.getRows(); i++)
+		{
+			for (int j = 0; j < columns; j++)
+			{
+				int kind = kindOf(grid.get(i, j));
+				loadedPlaces[i * columns + j] = kind < 0 ? -1 : counts[kind] * KINDS + kind;
+				if (kind >= 0)
+				{
+					if (counts[kind] == cells[kind].length)
+					{
+						cells[kind] = Arrays.copyOf(cells[kind], cells[kind].length * 2);
+					}
+					cells[kind][counts[kind]++] = i * columns + j;
+				}
+			}
+		}
+		loadedCells = new int[KINDS][];
+		for (int kind = 0; kind < KINDS; kind++)
+		{
+			loadedCells[kind] = Arrays.copyOf(cells[kind], counts[kind]);
+		}
+	}
+
+	/**
+	 * Constructor for the index of a map from its lists of tiles(see
+	 * Map.findCells) without going through the rest of the map
+	 *
+	 * @param grid      : the tiles of the map, as they were when the lists were
+	 *                  made
+	 * @param freeCells : the tiles that aren't wall or gold(x * columns + y)
+	 * @param goldCells : the gold tiles(x * columns + y)
+	 */
+	public SpawnIndex(Grid grid, int[] freeCells, int[] goldCells)
+	{
+		int columns = grid.getColumns();
+		loadedPlaces = new int[grid.getRows() * columns];
+		Arrays.fill(loadedPlaces, -1);
+		loadedCells = new int[KINDS][];
+		loadedCells[GOLD] = goldCells.clone();
+		int[][] cells = new int[KINDS][freeCells.length];
+		for (int cell : freeCells)
+		{
+			int kind = kindOf(grid.get(cell / columns, cell % columns));
+			if (kind == FLOOR || kind == EXIT)
+			{
+				cells[kind][counts[kind]++] = cell;
+			}
+		}
+		for (int kind : new int[]
+		{ FLOOR, EXIT })
+		{
+			loadedCells[kind] = Arrays.copyOf(cells[kind], counts[kind]);
+		}
+		counts[GOLD] = loadedCells[GOLD].length;
+		for (int kind = 0; kind < KINDS; kind++)
+		{
+			for (int place = 0; place < loadedCells[kind].length; place++)
+			{
+				loadedPlaces[loadedCells[kind][place]] = place * KINDS + kind;
+			}
+		}
+	}
+
+	/**
+	 * Constructor for the index of a copy of a map - it shares the lists of the
+	 * loaded map with the index it is copied from
+	 *
+	 * @param index : the index of the map that is copied
+	 */
+	public SpawnIndex(SpawnIndex index)
+	{
+		loadedCells = index.loadedCells;
+		loadedPlaces = index.loadedPlaces;
+		counts = index.counts.clone();
+		movedCells = new IntHashMap(index.movedCells);
+		movedPlaces = new IntHashMap(index.movedPlaces);
+	}
+
+	/**
+	 * @param tile : a tile of the map
+	 * @return : the kind of the tile(-1 if nobody can be spawned on it)
+	 */
+	private static int kindOf(char tile)
+	{
+		switch (tile)
+		{
+		case '.':
+			return FLOOR;
+		case 'E':
+			return EXIT;
+		case 'G':
+			return GOLD;
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * Counts a tile as what it is now
+	 *
+	 * @param cell    : the tile(x * columns + y)
+	 * @param oldTile : what the tile was
+	 * @param newTile : what the tile is now
+	 */
+	protected void update(int cell, char oldTile, char newTile)
+	{
+		int oldKind = kindOf(oldTile);
+		int newKind = kindOf(newTile);
+		if (oldKind == newKind)
+		{
+			return;
+		}
+		if (oldKind >= 0)
+		{
+			// the last tile of the list takes the place of the tile
+			int place = placeOf(cell) / KINDS;
+			int last = --counts[oldKind];
+			if (place != last)
+			{
+				setPlace(cellAt(oldKind, last), place * KINDS + oldKind);
+			}
+			movedCells.remove(last * KINDS + oldKind);
+			setPlace(cell, -1);
+		}
+		if (newKind >= 0)
+		{
+			setPlace(cell, counts[newKind]++ * KINDS + newKind);
+		}
+	}
+
+	/**
+	 * Picks a random tile, every tile of the given kinds being as likely
+	 *
+	 * @param allowed : the kinds of tiles it can be(a bit for each, e.g.
+	 *                HUMAN_TILES)
+	 * @param random  : where the random choice comes from
+	 * @return : the tile(x * columns + y) or -1 if there are no tiles of those
+	 *         kinds
+	 */
+	protected int sample(int allowed, GameRandom random)
+	{
+		int total = countOf(allowed);
+		return total == 0 ? -1 : pickAt(allowed, random.nextInt(total));
+	}
+
+	/**
+	 * Picks different random tiles, every tile of the given kinds being as likely
+	 * - the first ones of the lists of those kinds(one after the other) are
+	 * shuffled with the rest of them one at a time(a Fisher-Yates shuffle that
+	 * stops after count tiles), the tiles that were swapped being kept aside so
+	 * the lists don't change
+	 *
+	 * @param allowed : the kinds of tiles they can be(a bit for each)
+	 * @param count   : how many tiles are picked
+	 * @param random  : where the random choices come from
+	 * @return : the tiles(x * columns + y) - fewer than count if there aren't that
+	 *         many tiles of those kinds
+	 */
+	protected int[] sample(int allowed, int count, GameRandom random)
+	{
+		int total = countOf(allowed);
+		int[] picked = new int[Math.min(count, total)];
+		// the tile in each place of the lists that was swapped(the tiles are 0 or more)
+		IntHashMap swapped = new IntHashMap();
+		for (int i = 0; i < picked.length; i++)
+		{
+			int choice = i + random.nextInt(total - i);
+			int cell = swapped.get(choice, -1);
+			picked[i] = cell >= 0 ? cell : pickAt(allowed, choice);
+			cell = swapped.get(i, -1);
+			swapped.put(choice, cell >= 0 ? cell : pickAt(allowed, i));
+		}
+		return picked;
+	}
+
+	/**
+	 * @param allowed : the kinds of tiles(a bit for each)
+	 * @return : the number of tiles of those kinds
+	 */
+	private int countOf(int allowed)
+	{
+		int total = 0;
+		for (int kind = 0; kind < KINDS; kind++)
+		{
+			if ((allowed & 1 << kind) != 0)
+			{
+				total += counts[kind];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @param allowed : the kinds of tiles(a bit for each)
+	 * @param choice  : a place in the lists of those kinds one after the other
+	 *                (less than countOf(allowed))
+	 * @return : the tile in that place
+	 */
+	private int pickAt(int allowed, int choice)
+	{
+		int kind = 0;
+		while ((allowed & 1 << kind) == 0 || choice >= counts[kind])
+		{
+			if ((allowed & 1 << kind) != 0)
+			{
+				choice -= counts[kind];
+			}
+			kind++;
+		}
+		return cellAt(kind, choice);
+	}
+
+	/**
+	 * @param kind  : the kind of tiles
+	 * @param place : a place in the list of that kind(less than its count)
+	 * @return : the tile in that place
+	 */
+	private int cellAt(int kind, int place)
+	{
+		int cell = movedCells.get(place * KINDS + kind, -1);
+		return cell >= 0 ? cell : loadedCells[kind][place];
+	}
+
+	/**
+	 * @param cell : a tile(x * columns + y)
+	 * @return : its place in the lists(place * KINDS + kind, -1 if it isn't in
+	 *         any)
+	 */
+	private int placeOf(int cell)
+	{
+		return movedPlaces.get(cell, loadedPlaces[cell]);
+	}
+
+	/**
+	 * Puts a tile in a place of the lists - the hash maps only keep it if it isn't
+	 * where it was when the map was loaded
+	 *
+	 * @param cell  : the tile(x * columns + y)
+	 * @param place : its place(place * KINDS + kind, -1 if it isn't in any list)
+	 */
+	private void setPlace(int cell, int place)
+	{
+		if (place == loadedPlaces[cell])
+		{
+			movedPlaces.remove(cell);
+		}
+		else
+		{
+			movedPlaces.put(cell, place);
+		}
+		if (place < 0)
+		{
+			return;
+		}
+		int[] cells = loadedCells[place % KINDS];
+		if (place / KINDS < cells.length && cells[place / KINDS] == cell)
+		{
+			movedCells.remove(place);
+		}
+		else
+		{
+			movedCells.put(place, cell);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The operations of the benchmark harness measured by JMH, each in a JVM of its
+ * own. JMH can't generate benchmarks in the default package and a class in a
+ * package can't name the ones in it, so the operation of each benchmark is
+ * prepared by the harness(see Benchmark.operation) once per fork and called
+ * through an IntConsumer - what it works out goes to the sink of the harness.
+ * <p>
+ * Run it from the directory with the map files after mvn package: java -jar
+ * target/benchmarks.jar [regexp] [-p name="turn HARD"]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GameBenchmarks
+{
+	// the names of the benchmarks as the harness prints them
+	@Param(
+	{ "pathfind Maze of Doom", "pathfind A* generated 256", "pathfind JPS generated 256",
+			"pathfind HPA* generated 256", "pathfind A* generated 1024", "pathfind JPS generated 1024",
+			"pathfind HPA* generated 1024", "chase A* 256", "chase incremental 256", "chase HPA* 256", "swarm A* 256",
+			"swarm flow field 256", "wall change HPA* 256", "readMap Maze of Doom", "readMap binary 1024",
+			"new game repository 1024", "turn EASY", "turn NORMAL", "turn HARD", "turn binary NORMAL", "snapshot 64",
+			"restore 64", "field of view 5 cached", "nearest gold 1024 path", "render map ANSI 256" })
+	public String name;
+
+	private IntConsumer operation;
+	private int count;
+
+	/**
+	 * Prepares the operation of the benchmark
+	 */
+	@Setup(Level.Trial)
+	public void prepare() throws ReflectiveOperationException
+	{
+		Method prepare = Class.forName("Benchmark").getDeclaredMethod("operation", String.class);
+		prepare.setAccessible(true);
+		operation = (IntConsumer) prepare.invoke(null, name);
+	}
+
+	/**
+	 * Runs the operation once
+	 */
+	@Benchmark
+	public void run()
+	{
+		operation.accept(count++);
+	}
+}
@@ -0,0 +1,39 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the scans of a bit grid against looking at the bits one at a time.
+ */
+class BitGridTest
+{
+	@Test
+	void nextClearFindsTheFirstClearBit()
+	{
+		Grid grid = new Grid(20, 20);
+		BitGrid bits = new BitGrid(grid);
+		Random random = new Random(9);
+		// long runs of set bits so the scans go over whole words
+		for (int i = 0; i < 30; i++)
+		{
+			int from = random.nextInt(grid.getSize());
+			bits.set(from, Math.min(from + random.nextInt(200), grid.getSize()));
+		}
+		for (int i = 0; i < 2000; i++)
+		{
+			int from = random.nextInt(grid.getSize());
+			int to = from + random.nextInt(grid.getSize() - from + 1);
+			int expected = -1;
+			for (int index = from; index < to && expected < 0; index++)
+			{
+				if (!bits.get(index))
+				{
+					expected = index;
+				}
+			}
+			assertEquals(expected, bits.nextClear(from, to), "from " + from + " to " + to);
+		}
+	}
+}
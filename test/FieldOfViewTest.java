@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the fields of view kept by the cache are the ones that would be
+ * worked out now while walls appear and disappear.
+ */
+class FieldOfViewTest
+{
+	@Test
+	void fieldsOfViewAroundAChangedWallAreWorkedOutAgain()
+	{
+		// far more fields of view kept than there are points around a wall
+		check(1024, 30, 3);
+	}
+
+	@Test
+	void fieldsOfViewAreDroppedToMakeRoom()
+	{
+		// fewer fields of view kept than there are points around a wall
+		check(64, 8, 30);
+	}
+
+	/**
+	 * Asks for fields of view while walls appear and disappear and compares them
+	 * with the ones worked out without the cache
+	 *
+	 * @param capacity : the most fields of view that are kept at once
+	 * @param points   : the points are in a square of this size
+	 * @param radius   : the largest radius
+	 */
+	private static void check(int capacity, int points, int radius)
+	{
+		char[][] map = Benchmark.generateMap(40, 40, 0.2, 13);
+		Grid grid = new Grid(map);
+		FieldOfView fieldOfView = new FieldOfView(grid, capacity);
+		Random random = new Random(13);
+		for (int i = 0; i < 20000; i++)
+		{
+			if (random.nextInt(4) == 0)
+			{
+				int x = 1 + random.nextInt(map.length - 2);
+				int y = 1 + random.nextInt(map[0].length - 2);
+				grid.set(x, y, grid.isWall(x, y) ? '.' : '#');
+				fieldOfView.wallChanged(x, y);
+			}
+			int x = 1 + random.nextInt(points);
+			int y = 1 + random.nextInt(points);
+			int r = 1 + random.nextInt(radius);
+			int[] visible = fieldOfView.getVisible(x, y, r).clone();
+			int[] expected = new FieldOfView(grid, 1).compute(x, y, r);
+			Arrays.sort(visible);
+			Arrays.sort(expected);
+			assertEquals(Arrays.toString(expected), Arrays.toString(visible), "step " + i);
+		}
+	}
+}
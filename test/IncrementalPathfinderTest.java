@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the incremental pathfinder against A* while walls are added and
+ * removed under it.
+ */
+class IncrementalPathfinderTest
+{
+	@Test
+	void neighboursOfARemovedWallAreReachedAgain()
+	{
+		char[][] corridor =
+		{ "########".toCharArray(), "#......#".toCharArray(), "########".toCharArray() };
+		IncrementalPathfinder incremental = new IncrementalPathfinder(new Grid(corridor));
+		incremental.pathfind(1, 5, 1, 2);
+		incremental.setMapPoint(1, 2, '#');
+		incremental.setMapPoint(1, 2, '.');
+		assertArrayEquals(new int[][]
+		{
+				{ 1, 2 },
+				{ 1, 1 } }, incremental.pathfind(1, 3, 1, 1));
+	}
+
+	@Test
+	void routesAreAsShortAsAStarWhileWallsChange()
+	{
+		char[][] map = Benchmark.generateMap(32, 32, 0.2, 7);
+		IncrementalPathfinder incremental = new IncrementalPathfinder(new Grid(map));
+		AStarAlgorithm aStar = new AStarAlgorithm(new Grid(map));
+		Random random = new Random(7);
+		int[] start = randomFloor(map, random);
+		int[] end = randomFloor(map, random);
+		for (int i = 0; i < 20000; i++)
+		{
+			// a tile inside the border turns into a wall or back into floor
+			int x = 1 + random.nextInt(map.length - 2);
+			int y = 1 + random.nextInt(map[0].length - 2);
+			if ((x != start[0] || y != start[1]) && (x != end[0] || y != end[1]))
+			{
+				map[x][y] = map[x][y] == '#' ? '.' : '#';
+				incremental.setMapPoint(x, y, map[x][y]);
+				aStar.setMapPoint(x, y, map[x][y]);
+			}
+			int[][] route = incremental.pathfind(start[0], start[1], end[0], end[1]);
+			int[][] expected = aStar.pathfind(start[0], start[1], end[0], end[1]);
+			assertEquals(expected == null ? -1 : expected.length, route == null ? -1 : route.length,
+					"route length in step " + i);
+			if (route != null && route.length > 1)
+			{
+				start = route[0];
+			}
+			else
+			{
+				start = randomFloor(map, random);
+				end = randomFloor(map, random);
+			}
+		}
+	}
+
+	/**
+	 * @param map    : a map
+	 * @param random : where the random choice comes from
+	 * @return : the coordinates of a random floor tile of the map
+	 */
+	private static int[] randomFloor(char[][] map, Random random)
+	{
+		while (true)
+		{
+			int x = random.nextInt(map.length);
+			int y = random.nextInt(map[0].length);
+			if (map[x][y] != '#')
+			{
+				return new int[]
+				{ x, y };
+			}
+		}
+	}
+}
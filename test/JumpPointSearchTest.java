@@ -0,0 +1,68 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks Jump Point Search against A* while walls are added and removed under
+ * it.
+ */
+class JumpPointSearchTest
+{
+	@Test
+	void jumpsStopAtAWallThatClosesAfterTheyWereFound()
+	{
+		char[][] corridor =
+		{ "########".toCharArray(), "#......#".toCharArray(), "########".toCharArray() };
+		JumpPointSearch jumpPoint = new JumpPointSearch(new Grid(corridor));
+		assertEquals(5, jumpPoint.pathfind(1, 1, 1, 6).length);
+		jumpPoint.setMapPoint(1, 3, '#');
+		assertEquals(null, jumpPoint.pathfind(1, 1, 1, 6));
+		jumpPoint.setMapPoint(1, 3, '.');
+		assertEquals(5, jumpPoint.pathfind(1, 1, 1, 6).length);
+	}
+
+	@Test
+	void routesAreAsShortAsAStarWhileWallsChange()
+	{
+		char[][] map = Benchmark.generateMap(32, 32, 0.2, 11);
+		JumpPointSearch jumpPoint = new JumpPointSearch(new Grid(map));
+		AStarAlgorithm aStar = new AStarAlgorithm(new Grid(map));
+		Random random = new Random(11);
+		for (int i = 0; i < 20000; i++)
+		{
+			// a tile inside the border turns into a wall or back into floor
+			int x = 1 + random.nextInt(map.length - 2);
+			int y = 1 + random.nextInt(map[0].length - 2);
+			map[x][y] = map[x][y] == '#' ? '.' : '#';
+			jumpPoint.setMapPoint(x, y, map[x][y]);
+			aStar.setMapPoint(x, y, map[x][y]);
+			int[] start = randomFloor(map, random);
+			int[] end = randomFloor(map, random);
+			int[][] route = jumpPoint.pathfind(start[0], start[1], end[0], end[1]);
+			int[][] expected = aStar.pathfind(start[0], start[1], end[0], end[1]);
+			assertEquals(expected == null ? -1 : expected.length, route == null ? -1 : route.length,
+					"route length in step " + i);
+		}
+	}
+
+	/**
+	 * @param map    : a map
+	 * @param random : where the random choice comes from
+	 * @return : the coordinates of a random floor tile of the map
+	 */
+	private static int[] randomFloor(char[][] map, Random random)
+	{
+		while (true)
+		{
+			int x = random.nextInt(map.length);
+			int y = random.nextInt(map[0].length);
+			if (map[x][y] != '#')
+			{
+				return new int[]
+				{ x, y };
+			}
+		}
+	}
+}
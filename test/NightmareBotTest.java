@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that a NIGHTMARE bot finds its way again when a wall of the map
+ * opens or closes while it chases the human player, whatever algorithm it
+ * finds its routes with.
+ */
+class NightmareBotTest
+{
+	// how many turns the bot gets to catch the human player
+	private static final int TURNS = 40;
+
+	@ParameterizedTest
+	@ValueSource(ints =
+	{ BotPlayer.INCREMENTAL_PATHFINDING, BotPlayer.A_STAR_PATHFINDING, BotPlayer.JUMP_POINT_PATHFINDING,
+			BotPlayer.HIERARCHICAL_PATHFINDING, BotPlayer.FLOW_FIELD_PATHFINDING })
+	void botGoesThroughAWallThatOpens(int pathfinding)
+	{
+		GameLogic game = newGame(pathfinding, "#########", "#...#...#", "#########");
+		// the bot can't get to the player until the wall opens
+		playTurns(game, 3);
+		assertEquals(GameLogic.PLAYING, game.getState());
+		game.getMap().setMapPoint(1, 4, '.');
+		playTurns(game, TURNS);
+		assertEquals(GameLogic.CAUGHT, game.getState());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints =
+	{ BotPlayer.INCREMENTAL_PATHFINDING, BotPlayer.A_STAR_PATHFINDING, BotPlayer.JUMP_POINT_PATHFINDING,
+			BotPlayer.HIERARCHICAL_PATHFINDING, BotPlayer.FLOW_FIELD_PATHFINDING })
+	void botGoesAroundAWallThatCloses(int pathfinding)
+	{
+		GameLogic game = newGame(pathfinding, "#########", "#.......#", "#.#####.#", "#.......#", "#########");
+		// the short way along the top closes once the bot is on it
+		playTurns(game, 1);
+		game.getMap().setMapPoint(1, 3, '#');
+		playTurns(game, TURNS);
+		assertEquals(GameLogic.CAUGHT, game.getState());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints =
+	{ BotPlayer.INCREMENTAL_PATHFINDING, BotPlayer.A_STAR_PATHFINDING, BotPlayer.JUMP_POINT_PATHFINDING })
+	void restoredBotRepairsItsRoute(int pathfinding)
+	{
+		GameLogic game = newGame(pathfinding, "#########", "#...#...#", "#########");
+		playTurns(game, 2);
+		// the wall opens between the turns of the bot, so the restored bot still has
+		// to be told about it
+		game.getMap().setMapPoint(1, 4, '.');
+		GameLogic restored = GameLogic.restore(game.snapshot());
+		playTurns(restored, TURNS);
+		assertEquals(GameLogic.CAUGHT, restored.getState());
+	}
+
+	/**
+	 * @param pathfinding : the algorithm of the bot
+	 * @param rows        : the rows of the map - the human player starts in the top
+	 *                    left corner and the bot in the top right one
+	 * @return : the game
+	 */
+	private static GameLogic newGame(int pathfinding, String... rows)
+	{
+		char[][] map = new char[rows.length][];
+		for (int i = 0; i < rows.length; i++)
+		{
+			map[i] = rows[i].toCharArray();
+		}
+		GameLogic game = new GameLogic(new Map("Test", 1, map), 1);
+		game.spawnHumanPlayer(1, 1);
+		game.setBotPathfinding(pathfinding);
+		game.spawnBot(4, 1, map[0].length - 2);
+		return game;
+	}
+
+	/**
+	 * Plays turns in which the human player stays where he is
+	 *
+	 * @param game  : the game
+	 * @param turns : the most turns that are played(fewer if the game ends)
+	 */
+	private static void playTurns(GameLogic game, int turns)
+	{
+		for (int i = 0; i < turns && !game.isGameOver(); i++)
+		{
+			game.playTurn(GameLogic.HELLO);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the spawn index of a game picks from the tiles its map has now
+ * while they change, and that its copies don't see the changes of each other.
+ */
+class SpawnIndexTest
+{
+	// the tiles a tile of the map turns into
+	private static final char[] TILES =
+	{ '.', '.', 'E', 'G', 'P', 'B', '#' };
+
+	@Test
+	void picksFromTheTilesTheMapHasNow()
+	{
+		char[][] tiles = Benchmark.generateMap(24, 24, 0.2, 3);
+		Map map = new Map("Test", 1, tiles);
+		map.freeze();
+		Map game = map.copyOnWrite();
+		Random random = new Random(3);
+		GameRandom gameRandom = new GameRandom(3);
+		for (int i = 0; i < 5000; i++)
+		{
+			int x = 1 + random.nextInt(tiles.length - 2);
+			int y = 1 + random.nextInt(tiles[0].length - 2);
+			game.setMapPoint(x, y, TILES[random.nextInt(TILES.length)]);
+			for (int allowed : new int[]
+			{ SpawnIndex.HUMAN_TILES, SpawnIndex.BOT_TILES, 1 << SpawnIndex.GOLD })
+			{
+				int[] expected = cellsOf(game.getGrid(), allowed);
+				int cell = game.getSpawnIndex().sample(allowed, gameRandom);
+				assertTrue(expected.length == 0 ? cell == -1 : Arrays.binarySearch(expected, cell) >= 0,
+						"tile " + cell + " in step " + i);
+				// asking for more tiles than there are gives every one of them once
+				int[] all = game.getSpawnIndex().sample(allowed, Integer.MAX_VALUE, gameRandom);
+				assertEquals(Arrays.toString(expected), Arrays.toString(sorted(all)), "tiles in step " + i);
+			}
+		}
+		// the map the game was copied from hasn't changed
+		assertEquals(Arrays.toString(cellsOf(map.getGrid(), SpawnIndex.BOT_TILES)),
+				Arrays.toString(sorted(map.getSpawnIndex().sample(SpawnIndex.BOT_TILES, Integer.MAX_VALUE,
+						gameRandom))));
+	}
+
+	@Test
+	void picksEveryTileAsOften()
+	{
+		char[][] tiles =
+		{ "#######".toCharArray(), "#..E.G#".toCharArray(), "#######".toCharArray() };
+		SpawnIndex index = new SpawnIndex(new Grid(tiles));
+		GameRandom random = new GameRandom(5);
+		int[] picks = new int[tiles.length * tiles[0].length];
+		for (int i = 0; i < 50000; i++)
+		{
+			int[] cells = index.sample(SpawnIndex.BOT_TILES, 2, random);
+			assertTrue(cells[0] != cells[1]);
+			picks[cells[0]]++;
+			picks[cells[1]]++;
+		}
+		for (int y = 1; y <= 5; y++)
+		{
+			// each of the 5 tiles is in 2 of every 5 picks
+			assertEquals(20000.0, picks[tiles[0].length + y], 600.0, "tile " + y);
+		}
+	}
+
+	/**
+	 * @param grid    : the tiles of a map
+	 * @param allowed : the kinds of tiles(a bit for each)
+	 * @return : the tiles of those kinds(x * columns + y), in order
+	 */
+	private static int[] cellsOf(Grid grid, int allowed)
+	{
+		String kinds = ".EG";
+		int[] cells = new int[grid.getRows() * grid.getColumns()];
+		int count = 0;
+		for (int i = 0; i < grid.getRows(); i++)
+		{
+			for (int j = 0; j < grid.getColumns(); j++)
+			{
+				int kind = kinds.indexOf(grid.get(i, j));
+				if (kind >= 0 && (allowed & 1 << kind) != 0)
+				{
+					cells[count++] = i * grid.getColumns() + j;
+				}
+			}
+		}
+		return Arrays.copyOf(cells, count);
+	}
+
+	/**
+	 * @param cells : tiles
+	 * @return : the tiles in order
+	 */
+	private static int[] sorted(int[] cells)
+	{
+		Arrays.sort(cells);
+		return cells;
+	}
+}